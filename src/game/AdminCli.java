@@ -0,0 +1,447 @@
+package game;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A command line tool to inspect and maintain player databases without starting the application.<br><br>
+ * Usage: <code>AdminCli &lt;command&gt; [--option=value ...] &lt;database&gt; [&lt;database&gt; ...]</code>, where
+ * each database is the path of an object file (.ser), the path of a directory of shards or a JDBC URL, and the
+ * command is one of:
+ * <ul>
+ *     <li><code>list</code>: prints every player as CSV</li>
+ *     <li><code>top</code>: prints the <code>k</code> fastest players as CSV (option <code>k</code>, default: 10)
+ *     </li>
+ *     <li><code>stats</code>: prints the number of players, ranked players and attempts, and the best time</li>
+ *     <li><code>export</code>: writes every player, or with <code>--history=true</code> every recorded attempt, as
+ *     CSV to the file given by option <code>out</code>, or to the standard output</li>
+ *     <li><code>compact</code>: folds old attempts into rollups following <code>RetentionPolicy.DEFAULT</code>,
+ *     then saves the database</li>
+ *     <li><code>verify</code>: checks the database for inconsistent players</li>
+ *     <li><code>shard</code>: copies every player into a new <code>ShardedFilePlayerStore</code> in the directory
+ *     given by option <code>out</code>, with as many shards as option <code>shards</code> (default: the number of
+ *     available processors)</li>
+ * </ul>
+ * The process exits with status <code>1</code> if a database cannot be opened, saved or verified, and with status
+ * <code>2</code> on invalid arguments.<br><br>
+ * The tool only touches the persistence classes, so it neither loads FXML nor starts the JavaFX toolkit. For the
+ * fastest startup, run it from the class path rather than the module path, so the JavaFX modules are not resolved
+ * at all, with <code>-XX:TieredStopAtLevel=1 -Xshare:auto</code>, which suits short runs from cron jobs and scripts.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerManager
+ */
+public class AdminCli {
+
+    /**
+     * The usage message printed on invalid arguments.
+     */
+    private static final String USAGE = "Usage: AdminCli <list|top|stats|export|compact|verify|shard> "
+            + "[--option=value ...] <database> [<database> ...]";
+
+    /**
+     * Runs a command on every given database.
+     *
+     * @param args the command, followed by its options and the databases
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println(USAGE);
+            System.exit(2);
+        }
+        String command = args[0];
+        Map<String, String> options = new HashMap<>();
+        List<String> databases = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--")) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    System.out.println("Unrecognised argument: " + arg);
+                    System.exit(2);
+                }
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else {
+                databases.add(arg);
+            }
+        }
+        if (databases.isEmpty()) {
+            System.out.println(USAGE);
+            System.exit(2);
+        }
+        int k = intOption(options, "k", 10);
+        int shards = intOption(options, "shards", Runtime.getRuntime().availableProcessors());
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+        boolean ok = true;
+        for (String database : databases) {
+            if (databases.size() > 1) {
+                out.println("# " + database);
+            }
+            PlayerStore store = open(database, out);
+            if (store == null) {
+                ok = false;
+                continue;
+            }
+            PlayerManager manager = new PlayerManager(store, false);
+            try {
+                switch (command) {
+                    case "list":
+                        list(manager, out);
+                        break;
+                    case "top":
+                        top(manager, k, out);
+                        break;
+                    case "stats":
+                        stats(manager, out);
+                        break;
+                    case "export":
+                        ok &= export(manager, options.get("out"), Boolean.parseBoolean(options.get("history")), out);
+                        break;
+                    case "compact":
+                        ok &= compact(manager, out);
+                        break;
+                    case "verify":
+                        ok &= verify(manager, out);
+                        break;
+                    case "shard":
+                        ok &= shard(manager, options.get("out"), shards, out);
+                        break;
+                    default:
+                        out.println(USAGE);
+                        out.flush();
+                        System.exit(2);
+                }
+            } finally {
+                manager.close();
+            }
+        }
+        out.flush();
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Reads a positive whole number option, exiting with status <code>2</code> if it is not one.
+     *
+     * @param options      the options given
+     * @param name         the name of the option
+     * @param defaultValue the value used if the option is not given
+     * @return the value of the option
+     */
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.out.println("Invalid value for --" + name + ": " + value);
+        System.exit(2);
+        return defaultValue;
+    }
+
+    /**
+     * Opens a database, reporting why it cannot be opened.<br><br>
+     * Object files are read up front, so that a missing or unreadable file is reported rather than treated as an
+     * empty database. Directories are opened as a <code>ShardedFilePlayerStore</code>, through
+     * <code>PlayerManager.openStore()</code>.
+     *
+     * @param database the path of an object file (.ser), the path of a directory of shards, or a JDBC URL
+     * @param out      the output
+     * @return the <code>PlayerStore</code>, or <code>null</code> if the database cannot be opened
+     */
+    private static PlayerStore open(String database, PrintWriter out) {
+        if (database.startsWith("jdbc:")) {
+            try {
+                return PlayerManager.openStore(database);
+            } catch (IllegalStateException e) {
+                out.println(e.getMessage());
+                return null;
+            }
+        }
+        File file = new File(database);
+        if (file.isDirectory()) {
+            return PlayerManager.openStore(database);
+        }
+        if (!file.isFile()) {
+            out.println("Not found: " + database);
+            return null;
+        }
+        PlayerManager.PlayerDatabase contents = FilePlayerStore.read(file);
+        if (contents == null) {
+            out.println("Unreadable: " + database);
+            return null;
+        }
+        return new FilePlayerStore(file, contents);
+    }
+
+    /**
+     * Prints every player as CSV, from a snapshot of the database.
+     *
+     * @param manager the database
+     * @param out     the output
+     */
+    private static void list(PlayerManager manager, PrintWriter out) {
+        out.println("name,best_time,attempts,registered");
+        try (PlayerSnapshot snapshot = manager.snapshot()) {
+            for (Player p : snapshot) {
+                printPlayer(p, out);
+            }
+        }
+    }
+
+    /**
+     * Prints the fastest players as CSV.
+     *
+     * @param manager the database
+     * @param k       the maximum number of players to be printed
+     * @param out     the output
+     */
+    private static void top(PlayerManager manager, int k, PrintWriter out) {
+        out.println("rank,name,best_time,attempts,registered");
+        int rank = 1;
+        for (Player p : manager.topPlayers(k)) {
+            out.print(rank++);
+            out.print(',');
+            printPlayer(p, out);
+        }
+    }
+
+    /**
+     * Prints a summary of the database.
+     *
+     * @param manager the database
+     * @param out     the output
+     */
+    private static void stats(PlayerManager manager, PrintWriter out) {
+        PlayerTable table = manager.table();
+        int[] fastest = table.top(1);
+        out.println("players=" + table.size());
+        out.println("ranked=" + table.countRanked());
+        out.println("attempts=" + table.totalAttempts());
+        if (fastest.length > 0) {
+            out.println("best_time=" + format(table.getBestTime(fastest[0])));
+            out.println("best_player=" + csv(table.getName(fastest[0])));
+        }
+    }
+
+    /**
+     * Exports the players, or their recorded attempts, as CSV, from a snapshot of the database.
+     *
+     * @param manager the database
+     * @param path    the file to be written, or <code>null</code> for the standard output
+     * @param history whether to export every recorded attempt rather than every player
+     * @param out     the standard output
+     * @return <code>true</code> if the export is written. Otherwise, it will return <code>false</code>.
+     */
+    private static boolean export(PlayerManager manager, String path, boolean history, PrintWriter out) {
+        PrintWriter target = out;
+        try {
+            if (path != null) {
+                target = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(path), StandardCharsets.UTF_8), 1 << 16));
+            }
+            PrintWriter writer = target;
+            if (history) {
+                writer.println("name,timestamp,time");
+                try (PlayerSnapshot snapshot = manager.snapshot()) {
+                    for (Player p : snapshot) {
+                        String name = csv(p.getName());
+                        p.getHistory().forEach((timestamp, time) -> {
+                            writer.print(name);
+                            writer.print(',');
+                            writer.print(timestamp);
+                            writer.print(',');
+                            writer.println(format(time));
+                        });
+                    }
+                }
+            } else {
+                list(manager, writer);
+            }
+            if (target != out) {
+                target.close();
+                if (target.checkError()) {
+                    out.println("Could not write " + path);
+                    return false;
+                }
+                out.println("Exported to " + path);
+            }
+            return true;
+        } catch (IOException e) {
+            out.println("Could not write " + path + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Compacts the histories of every player, then saves the database.
+     *
+     * @param manager the database
+     * @param out     the output
+     * @return <code>true</code> if the database is saved. Otherwise, it will return <code>false</code>.
+     */
+    private static boolean compact(PlayerManager manager, PrintWriter out) {
+        long before = 0;
+        long after = 0;
+        List<Player> players = manager.players();
+        for (Player p : players) {
+            before += p.getHistory().size();
+        }
+        new HistoryCompactor(manager, RetentionPolicy.DEFAULT).compactNow();
+        for (Player p : players) {
+            after += p.getHistory().size();
+        }
+        out.println("raw_attempts_before=" + before);
+        out.println("raw_attempts_after=" + after);
+        if (!manager.save()) {
+            out.println("Could not save the database");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks every player for inconsistencies: missing or duplicate names, a best time without attempts or the
+     * other way around, invalid best times, and histories holding more attempts than counted or a time faster than
+     * the best time. The players are checked from a snapshot of the database.
+     *
+     * @param manager the database
+     * @param out     the output
+     * @return <code>true</code> if no problem is found. Otherwise, it will return <code>false</code>.
+     */
+    private static boolean verify(PlayerManager manager, PrintWriter out) {
+        Set<String> names = new HashSet<>();
+        int players = 0;
+        int problems = 0;
+        try (PlayerSnapshot snapshot = manager.snapshot()) {
+            for (Player p : snapshot) {
+                players++;
+                String name = p.getName();
+                List<String> issues = new ArrayList<>();
+                if (name == null || name.isEmpty()) {
+                    issues.add("missing name");
+                } else if (!names.add(name)) {
+                    issues.add("duplicate name");
+                }
+                Double best = p.getBestTime();
+                if (p.getAttempts() < 0) {
+                    issues.add("negative attempts");
+                }
+                if (best == null && p.getAttempts() > 0) {
+                    issues.add("attempts without a best time");
+                } else if (best != null && p.getAttempts() == 0) {
+                    issues.add("best time without attempts");
+                }
+                if (best != null && !(best > 0 && best < Double.POSITIVE_INFINITY)) {
+                    issues.add("invalid best time " + best);
+                }
+                AttemptHistory history = p.getHistory();
+                if (history.size() > p.getAttempts()) {
+                    issues.add("history of " + history.size() + " attempts exceeds " + p.getAttempts());
+                }
+                double fastest = history.best(Long.MIN_VALUE, Long.MAX_VALUE);
+                if (best != null && fastest < best - 1e-6) {
+                    issues.add("history holds " + format(fastest) + ", faster than the best time " + format(best));
+                }
+                for (String issue : issues) {
+                    out.println("problem," + csv(name == null ? "" : name) + "," + csv(issue));
+                }
+                problems += issues.size();
+            }
+        }
+        out.println("players=" + players);
+        out.println("problems=" + problems);
+        return problems == 0;
+    }
+
+    /**
+     * Copies every player into a new sharded store.
+     *
+     * @param manager   the database
+     * @param directory the directory of the new store, which must not hold shards yet
+     * @param shards    the number of shards
+     * @param out       the output
+     * @return <code>true</code> if every shard is written. Otherwise, it will return <code>false</code>.
+     */
+    private static boolean shard(PlayerManager manager, String directory, int shards, PrintWriter out) {
+        if (directory == null) {
+            out.println("Missing option --out=<directory>");
+            return false;
+        }
+        ShardedFilePlayerStore store = new ShardedFilePlayerStore(new File(directory), shards);
+        if (store.size() > 0) {
+            out.println("Already holds players: " + directory);
+            return false;
+        }
+        int copied = store.putAll(manager.players());
+        out.println("players=" + copied);
+        out.println("shards=" + store.getShardCount());
+        if (!store.flush()) {
+            out.println("Could not write " + directory);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Prints a player as a CSV row of name, best time, attempts and registration time.
+     *
+     * @param p   the player
+     * @param out the output
+     */
+    private static void printPlayer(Player p, PrintWriter out) {
+        out.print(csv(p.getName()));
+        out.print(',');
+        out.print(p.getBestTime() == null ? "" : format(p.getBestTime()));
+        out.print(',');
+        out.print(p.getAttempts());
+        out.print(',');
+        out.println(p.getRegistered());
+    }
+
+    /**
+     * Formats a time with microsecond precision, independent of the default locale.
+     *
+     * @param time the time in seconds
+     * @return the formatted time
+     */
+    private static String format(double time) {
+        return String.format(Locale.ROOT, "%.6f", time);
+    }
+
+    /**
+     * Quotes a CSV field if needed.
+     *
+     * @param value the value of the field
+     * @return the value, quoted if it contains a comma, a quote or a line break
+     */
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+}
@@ -0,0 +1,573 @@
+package game;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class stores the series of attempts made by a <code>Player</code> in a compressed, column-like encoding.<br><br>
+ * Each attempt is a pair of an epoch-millisecond timestamp and a reaction time. Reaction times are quantized to
+ * microseconds and written as unsigned varints, while timestamps are written as zigzag varints of the difference to
+ * the previous timestamp. A typical attempt therefore takes around five bytes instead of a pair of boxed values.
+ * <br><br>
+ * Attempts are grouped into blocks of up to <code>BLOCK_SIZE</code> entries. Every block keeps a summary of its
+ * timestamp range and its fastest and slowest reaction times, which lets range queries skip whole blocks without
+ * decoding them. Appends only ever touch the last block, and scans decode the blocks sequentially.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see Player
+ */
+public class AttemptHistory implements Serializable {
+
+    /**
+     * Serialization version. The history writes its blocks itself, in <code>writeObject()</code>, so the version
+     * only changes if that encoding does.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The maximum number of attempts stored in a single block.
+     */
+    static final int BLOCK_SIZE = 128;
+
+    /**
+     * The maximum number of bytes taken by an encoded varint.
+     */
+    private static final int MAX_VARINT_LENGTH = 10;
+
+    /**
+     * This field stores the encoded blocks, ordered by time.
+     */
+    private transient List<Block> blocks = new ArrayList<>();
+
+    /**
+     * This field stores the total number of attempts stored in the history.
+     */
+    private transient int size;
+
+    /**
+     * A callback receiving decoded attempts, used to scan the history without boxing.
+     */
+    public interface AttemptConsumer {
+
+        /**
+         * Receives a single attempt.
+         *
+         * @param timestamp the time the attempt was made, in epoch milliseconds
+         * @param time      the reaction time achieved, in seconds
+         */
+        void accept(long timestamp, double time);
+    }
+
+    /**
+     * Appends an attempt to the end of the history.<br><br>
+     * Attempts are expected to arrive in chronological order; an earlier timestamp is still stored correctly,
+     * but widens the summary of the last block.
+     *
+     * @param timestamp the time the attempt was made, in epoch milliseconds
+     * @param time      the reaction time achieved, in seconds
+     */
+    public synchronized void append(long timestamp, double time) {
+        writableBlock(timestamp).append(timestamp, toMicros(time));
+        size++;
+    }
+
+    /**
+     * Makes room for one more attempt, so that the following <code>append()</code> allocates nothing.<br><br>
+     * Called before a game starts, to keep the growth of the history off the measurement of the game.
+     *
+     * @param timestamp the time the next attempt is expected around, in epoch milliseconds
+     */
+    public synchronized void reserve(long timestamp) {
+        writableBlock(timestamp).ensureCapacity(2 * MAX_VARINT_LENGTH);
+    }
+
+    /**
+     * Retrieves the number of attempts stored in the history.
+     *
+     * @return the number of attempts
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Decodes every attempt in chronological order.
+     *
+     * @param consumer the callback receiving each attempt
+     */
+    public synchronized void forEach(AttemptConsumer consumer) {
+        for (Block block : blocks) {
+            block.decode(consumer);
+        }
+    }
+
+    /**
+     * Decodes the attempts made within the given time range, skipping blocks entirely outside of it.
+     *
+     * @param from     the start of the range, in epoch milliseconds (inclusive)
+     * @param to       the end of the range, in epoch milliseconds (exclusive)
+     * @param consumer the callback receiving each attempt within the range
+     */
+    public synchronized void forEach(long from, long to, AttemptConsumer consumer) {
+        for (Block block : blocks) {
+            if (block.maxTimestamp < from || block.minTimestamp >= to) {
+                continue;
+            }
+            block.decode((timestamp, time) -> {
+                if (timestamp >= from && timestamp < to) {
+                    consumer.accept(timestamp, time);
+                }
+            });
+        }
+    }
+
+    /**
+     * Finds the fastest reaction time achieved within the given time range.<br><br>
+     * Blocks lying entirely within the range are answered from their summaries without being decoded.
+     *
+     * @param from the start of the range, in epoch milliseconds (inclusive)
+     * @param to   the end of the range, in epoch milliseconds (exclusive)
+     * @return the fastest reaction time in seconds, or <code>NaN</code> if no attempt was made in the range
+     */
+    public synchronized double best(long from, long to) {
+        long[] best = {Long.MAX_VALUE};
+        for (Block block : blocks) {
+            if (block.maxTimestamp < from || block.minTimestamp >= to || block.minMicros >= best[0]) {
+                continue;
+            }
+            if (block.minTimestamp >= from && block.maxTimestamp < to) {
+                best[0] = block.minMicros;
+            } else {
+                block.decode((timestamp, time) -> {
+                    if (timestamp >= from && timestamp < to) {
+                        best[0] = Math.min(best[0], toMicros(time));
+                    }
+                });
+            }
+        }
+        return best[0] == Long.MAX_VALUE ? Double.NaN : best[0] / 1e6;
+    }
+
+    /**
+     * Retrieves the timestamp of the most recent attempt.
+     *
+     * @return the timestamp in epoch milliseconds, or <code>Long.MIN_VALUE</code> if the history is empty
+     */
+    public synchronized long lastTimestamp() {
+        long last = Long.MIN_VALUE;
+        for (Block block : blocks) {
+            last = Math.max(last, block.maxTimestamp);
+        }
+        return last;
+    }
+
+    /**
+     * Checks whether any attempt was made before the given time, from the summaries of the blocks.
+     *
+     * @param cutoff the time in epoch milliseconds
+     * @return <code>true</code> if <code>removeBefore()</code> would remove any attempt. Otherwise, it will return
+     * <code>false</code>.
+     */
+    public synchronized boolean hasBefore(long cutoff) {
+        for (Block block : blocks) {
+            if (block.minTimestamp < cutoff) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every attempt made before the given time, handing each removed attempt to the consumer in
+     * chronological order.<br><br>
+     * Blocks lying entirely before the cutoff are dropped as a whole, and only a block straddling the cutoff is
+     * re-encoded.
+     *
+     * @param cutoff   the time before which attempts are removed, in epoch milliseconds
+     * @param consumer the callback receiving each removed attempt
+     */
+    public synchronized void removeBefore(long cutoff, AttemptConsumer consumer) {
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            if (block.minTimestamp >= cutoff) {
+                continue;
+            }
+            if (block.maxTimestamp < cutoff) {
+                block.decode(consumer);
+                size -= block.count;
+                blocks.remove(i--);
+                continue;
+            }
+            Block kept = new Block(block.maxTimestamp);
+            block.decode((timestamp, time) -> {
+                if (timestamp < cutoff) {
+                    consumer.accept(timestamp, time);
+                } else {
+                    if (kept.count == 0) {
+                        kept.firstTimestamp = timestamp;
+                        kept.lastTimestamp = timestamp;
+                    }
+                    kept.append(timestamp, toMicros(time));
+                }
+            });
+            size -= block.count - kept.count;
+            kept.trim();
+            blocks.set(i, kept);
+        }
+    }
+
+    /**
+     * Copies the attempts appended last, such as those made since the history was last saved.
+     *
+     * @param n the number of attempts to be copied
+     * @return a new <code>AttemptHistory</code> holding the last <code>n</code> attempts, or every attempt if there
+     * are no more than <code>n</code>
+     */
+    public synchronized AttemptHistory latest(int n) {
+        AttemptHistory result = new AttemptHistory();
+        int[] skip = {size - n};
+        forEach((timestamp, time) -> {
+            if (skip[0]-- <= 0) {
+                result.append(timestamp, time);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Creates the union of two histories, ordered by time.<br><br>
+     * Attempts present in both histories with the same timestamp and reaction time are only kept once, so merging
+     * a database with a copy of itself does not duplicate its history.
+     *
+     * @param a the first history
+     * @param b the second history
+     * @return a new <code>AttemptHistory</code> containing the attempts of both
+     */
+    public static AttemptHistory union(AttemptHistory a, AttemptHistory b) {
+        return combine(a, b, true);
+    }
+
+    /**
+     * Combines two histories into one, ordered by time, keeping every attempt of both.<br><br>
+     * Unlike <code>union()</code>, attempts present in both histories with the same timestamp and reaction time are
+     * kept twice, so that the size of the result is always the sum of the sizes of the histories.
+     *
+     * @param a the first history
+     * @param b the second history
+     * @return a new <code>AttemptHistory</code> containing the attempts of both
+     */
+    public static AttemptHistory concat(AttemptHistory a, AttemptHistory b) {
+        return combine(a, b, false);
+    }
+
+    /**
+     * Combines two histories into one, ordered by time.
+     *
+     * @param a        the first history
+     * @param b        the second history
+     * @param distinct whether attempts present in both histories are only kept once
+     * @return a new <code>AttemptHistory</code> containing the attempts of both
+     */
+    private static AttemptHistory combine(AttemptHistory a, AttemptHistory b, boolean distinct) {
+        long[][] left = a.toColumns();
+        long[][] right = b.toColumns();
+        AttemptHistory result = new AttemptHistory();
+        int i = 0;
+        int j = 0;
+        while (i < left[0].length || j < right[0].length) {
+            boolean takeLeft = j == right[0].length
+                    || (i < left[0].length && (left[0][i] < right[0][j]
+                    || (left[0][i] == right[0][j] && left[1][i] <= right[1][j])));
+            long timestamp = takeLeft ? left[0][i] : right[0][j];
+            long micros = takeLeft ? left[1][i++] : right[1][j++];
+            if (distinct && !takeLeft && i > 0 && left[0][i - 1] == timestamp && left[1][i - 1] == micros) {
+                continue;
+            }
+            result.append(timestamp, micros / 1e6);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a frozen copy of the history, for a snapshot of its <code>Player</code>.<br><br>
+     * Only the list of blocks is copied: the blocks before the last one are never changed again, and are shared,
+     * while the last block is shared through a view of the attempts it holds so far, which later appends do not
+     * reach. The copy must not be changed.
+     *
+     * @return a new <code>AttemptHistory</code> holding the current attempts
+     *
+     * @see PlayerSnapshot
+     */
+    synchronized AttemptHistory freeze() {
+        AttemptHistory copy = new AttemptHistory();
+        copy.blocks = new ArrayList<>(blocks);
+        if (!blocks.isEmpty()) {
+            int last = blocks.size() - 1;
+            copy.blocks.set(last, blocks.get(last).view());
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Retrieves the last block, starting a new one if the history is empty or the last block is full.
+     *
+     * @param timestamp the base timestamp of a new block
+     * @return a block with room for at least one more attempt
+     */
+    private Block writableBlock(long timestamp) {
+        Block last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+        if (last == null || last.count == BLOCK_SIZE) {
+            if (last != null) {
+                last.trim();
+            }
+            last = new Block(timestamp);
+            blocks.add(last);
+        }
+        return last;
+    }
+
+    /**
+     * Decodes the history into a pair of parallel arrays.
+     *
+     * @return the timestamps at index 0 and the reaction times in microseconds at index 1
+     */
+    private synchronized long[][] toColumns() {
+        long[][] columns = new long[2][size];
+        int[] n = {0};
+        forEach((timestamp, time) -> {
+            columns[0][n[0]] = timestamp;
+            columns[1][n[0]++] = toMicros(time);
+        });
+        return columns;
+    }
+
+    /**
+     * Quantizes a reaction time to whole microseconds.
+     *
+     * @param time the reaction time in seconds
+     * @return the reaction time in microseconds
+     */
+    private static long toMicros(double time) {
+        return Math.round(time * 1e6);
+    }
+
+    /**
+     * Writes the history as its block count followed by each block, with the encoded data trimmed to its length.
+     *
+     * @param out the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(blocks.size());
+        for (Block block : blocks) {
+            out.writeInt(block.count);
+            out.writeLong(block.firstTimestamp);
+            out.writeLong(block.lastTimestamp);
+            out.writeLong(block.minTimestamp);
+            out.writeLong(block.maxTimestamp);
+            out.writeLong(block.minMicros);
+            out.writeLong(block.maxMicros);
+            out.writeInt(block.length);
+            out.write(block.data, 0, block.length);
+        }
+    }
+
+    /**
+     * Reads a history written by <code>writeObject()</code>.
+     *
+     * @param in the stream to read from
+     * @throws IOException            if an I/O error occurs
+     * @throws ClassNotFoundException if a class of the serialized object cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        blocks = new ArrayList<>(count);
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            Block block = new Block(0);
+            block.count = in.readInt();
+            block.firstTimestamp = in.readLong();
+            block.lastTimestamp = in.readLong();
+            block.minTimestamp = in.readLong();
+            block.maxTimestamp = in.readLong();
+            block.minMicros = in.readLong();
+            block.maxMicros = in.readLong();
+            block.length = in.readInt();
+            block.data = new byte[block.length];
+            in.readFully(block.data);
+            blocks.add(block);
+            size += block.count;
+        }
+    }
+
+    /**
+     * This private static inner class represents a block of encoded attempts along with its summary.
+     */
+    private static class Block {
+
+        /**
+         * This field stores the encoded attempts.
+         */
+        private byte[] data = new byte[64];
+
+        /**
+         * This field stores the number of bytes used in <code>data</code>.
+         */
+        private int length;
+
+        /**
+         * This field stores the number of attempts stored in the block.
+         */
+        private int count;
+
+        /**
+         * This field stores the timestamp the first delta is taken from.
+         */
+        private long firstTimestamp;
+
+        /**
+         * This field stores the timestamp of the last appended attempt, which the next delta is taken from.
+         */
+        private long lastTimestamp;
+
+        /**
+         * This field stores the earliest timestamp in the block, summarizing it for range scans.
+         */
+        private long minTimestamp = Long.MAX_VALUE;
+
+        /**
+         * This field stores the latest timestamp in the block, summarizing it for range scans.
+         */
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        /**
+         * This field stores the fastest reaction time in the block, in microseconds.
+         */
+        private long minMicros = Long.MAX_VALUE;
+
+        /**
+         * This field stores the slowest reaction time in the block, in microseconds.
+         */
+        private long maxMicros = Long.MIN_VALUE;
+
+        /**
+         * Creates an empty block whose deltas start from the given timestamp.
+         *
+         * @param firstTimestamp the base timestamp of the block
+         */
+        Block(long firstTimestamp) {
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = firstTimestamp;
+        }
+
+        /**
+         * Encodes an attempt at the end of the block and updates the block's summary.
+         *
+         * @param timestamp the timestamp in epoch milliseconds
+         * @param micros    the reaction time in microseconds
+         */
+        void append(long timestamp, long micros) {
+            long delta = timestamp - lastTimestamp;
+            writeVarint((delta << 1) ^ (delta >> 63));
+            writeVarint(micros);
+            lastTimestamp = timestamp;
+            count++;
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+            minMicros = Math.min(minMicros, micros);
+            maxMicros = Math.max(maxMicros, micros);
+        }
+
+        /**
+         * Decodes every attempt in the block.
+         *
+         * @param consumer the callback receiving each attempt
+         */
+        void decode(AttemptConsumer consumer) {
+            long timestamp = firstTimestamp;
+            int pos = 0;
+            for (int n = 0; n < count; n++) {
+                long zigzag = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[pos++];
+                    zigzag |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                timestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+                long micros = 0;
+                shift = 0;
+                do {
+                    b = data[pos++];
+                    micros |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                consumer.accept(timestamp, micros / 1e6);
+            }
+        }
+
+        /**
+         * Creates a view of the attempts the block holds so far, sharing its encoded data. Appends to the block
+         * only write past the bytes used, or to a grown copy of <code>data</code>, so they do not reach the view.
+         *
+         * @return a new <code>Block</code> holding the current attempts
+         */
+        Block view() {
+            Block view = new Block(firstTimestamp);
+            view.data = data;
+            view.length = length;
+            view.count = count;
+            view.lastTimestamp = lastTimestamp;
+            view.minTimestamp = minTimestamp;
+            view.maxTimestamp = maxTimestamp;
+            view.minMicros = minMicros;
+            view.maxMicros = maxMicros;
+            return view;
+        }
+
+        /**
+         * Shrinks <code>data</code> to the number of bytes used, once the block is full.
+         */
+        void trim() {
+            if (data.length != length) {
+                data = Arrays.copyOf(data, length);
+            }
+        }
+
+        /**
+         * Grows <code>data</code> if fewer than the given number of bytes are left after <code>length</code>.
+         *
+         * @param bytes the number of bytes needed
+         */
+        void ensureCapacity(int bytes) {
+            if (length + bytes > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + bytes + 6));
+            }
+        }
+
+        /**
+         * Writes an unsigned varint to the end of <code>data</code>, growing it if needed.
+         *
+         * @param value the value to be written
+         */
+        private void writeVarint(long value) {
+            ensureCapacity(MAX_VARINT_LENGTH);
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+
+}
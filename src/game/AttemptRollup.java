@@ -0,0 +1,142 @@
+package game;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * This class represents an aggregate of several attempts, used to keep older attempt data once the individual
+ * attempts have been discarded.<br><br>
+ * Stores the number of attempts, the fastest reaction time, the sum and sum of squares of the reaction times, and
+ * a histogram of reaction times in buckets of <code>BUCKET_WIDTH</code> seconds. Rollups can be merged, so the
+ * aggregate of any number of days or months is obtained by merging their rollups.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see AttemptHistory
+ * @see RetentionPolicy
+ */
+public class AttemptRollup implements Serializable {
+
+    /**
+     * Serialization version, pinned so that the rollups saved with a <code>Player</code> remain readable as the
+     * class changes.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The width of a histogram bucket, in seconds.
+     */
+    public static final double BUCKET_WIDTH = 0.025;
+
+    /**
+     * The number of histogram buckets. The last bucket holds every reaction time beyond the others.
+     */
+    public static final int BUCKETS = 21;
+
+    /**
+     * This field stores the number of attempts in the aggregate.
+     */
+    private long count;
+
+    /**
+     * This field stores the fastest reaction time in the aggregate, or <code>NaN</code> if it is empty.
+     */
+    private double best = Double.NaN;
+
+    /**
+     * This field stores the sum of the reaction times in the aggregate.
+     */
+    private double sum;
+
+    /**
+     * This field stores the sum of the squared reaction times in the aggregate.
+     */
+    private double sumOfSquares;
+
+    /**
+     * This field stores the number of attempts falling in each histogram bucket.
+     */
+    private final int[] histogram = new int[BUCKETS];
+
+    /**
+     * Adds a single reaction time to the aggregate.
+     *
+     * @param time the reaction time in seconds
+     */
+    public void add(double time) {
+        count++;
+        if (Double.isNaN(best) || time < best) {
+            best = time;
+        }
+        sum += time;
+        sumOfSquares += time * time;
+        histogram[Math.min(BUCKETS - 1, Math.max(0, (int) (time / BUCKET_WIDTH)))]++;
+    }
+
+    /**
+     * Merges another aggregate into this one.
+     *
+     * @param other the aggregate to be merged
+     */
+    public void merge(AttemptRollup other) {
+        count += other.count;
+        if (Double.isNaN(best) || other.best < best) {
+            best = other.best;
+        }
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] += other.histogram[i];
+        }
+    }
+
+    /**
+     * Retrieves the number of attempts in the aggregate.
+     *
+     * @return the number of attempts
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Retrieves the fastest reaction time in the aggregate.
+     *
+     * @return the fastest reaction time in seconds, or <code>NaN</code> if the aggregate is empty
+     */
+    public double getBest() {
+        return best;
+    }
+
+    /**
+     * Retrieves the mean reaction time of the aggregate.
+     *
+     * @return the mean reaction time in seconds, or <code>NaN</code> if the aggregate is empty
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Retrieves the standard deviation of the reaction times in the aggregate.
+     *
+     * @return the population standard deviation in seconds, or <code>NaN</code> if the aggregate is empty
+     */
+    public double getStandardDeviation() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double mean = sum / count;
+        return Math.sqrt(Math.max(0, sumOfSquares / count - mean * mean));
+    }
+
+    /**
+     * Retrieves a copy of the histogram of reaction times.
+     *
+     * @return the number of attempts in each bucket of <code>BUCKET_WIDTH</code> seconds
+     */
+    public int[] getHistogram() {
+        return Arrays.copyOf(histogram, BUCKETS);
+    }
+
+}
@@ -0,0 +1,135 @@
+package game;
+
+import com.sun.management.ThreadMXBean;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A headless check that recording the result of a game allocates nothing.<br><br>
+ * Usage: <code>ClickPathAllocationCheck [--option=value ...]</code>, with the following options:
+ * <ul>
+ *     <li><code>games</code>: the number of measured games (default: 10000)</li>
+ *     <li><code>warmup</code>: the number of games played by <code>MainController.warmUp()</code> before
+ *     measuring (default: 20000)</li>
+ * </ul>
+ * Sets up a <code>PlayerManager</code> against a temporary database with a <code>RoundEventBus</code> carrying the
+ * same handlers as the game, then plays every game through <code>MainController.commitResult()</code>, as a click
+ * does, after calling <code>Player.reserveAttempt()</code> as the start of a game does. The bytes allocated by the
+ * playing thread are read from the <code>ThreadMXBean</code> around every call, less the bytes allocated by reading
+ * them, and the total and the games that allocated are reported. The process exits with status <code>1</code> if any
+ * game allocated.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see MainController#commitResult(long)
+ * @see MainController#warmUp(int)
+ */
+public class ClickPathAllocationCheck {
+
+    /**
+     * Runs the check.
+     *
+     * @param args the options of the run, as <code>--option=value</code>
+     * @throws Exception if the database file cannot be created
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                System.out.println("Unrecognised argument: " + arg);
+                System.exit(2);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        int games = Integer.parseInt(options.getOrDefault("games", "10000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "20000"));
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation accounting is not supported by this JVM");
+            System.exit(2);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        File file = File.createTempFile("allocation", ".ser");
+        file.deleteOnExit();
+        file.delete();
+        PlayerManager manager = new PlayerManager(file);
+        manager.addPlayer("allocation");
+        Player player = manager.getPlayer("allocation");
+        manager.getLeaderboards();
+        manager.query();
+        manager.table();
+        RoundEventBus bus = new RoundEventBus(Integer.highestOneBit(Math.max(1, games)) << 2);
+        bus.addHandler("leaderboards", manager.leaderboardHandler());
+        bus.addHandler("publisher", manager.publisherHandler());
+        bus.addHandler("index", manager.indexHandler());
+        bus.addHandler("table", manager.tableHandler());
+        manager.setEventBus(bus);
+        bus.start();
+        MainController controller = new MainController(manager, player);
+
+        System.out.println("Warming up for " + warmup + " games");
+        MainController.warmUp(warmup);
+
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            overhead = Math.min(overhead,
+                    threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+        }
+
+        play(threads, overhead, controller, player, games, 0);
+        long[] counts = play(threads, overhead, controller, player, games, 0.05);
+        bus.stop();
+        manager.close();
+
+        System.out.println("games,new_bests,allocating_games,allocated_bytes,bytes_per_game,worst_game_bytes");
+        System.out.printf(Locale.ROOT, "%d,%d,%d,%d,%.3f,%d%n", games, counts[0], counts[1], counts[2],
+                (double) counts[2] / games, counts[3]);
+        System.exit(counts[1] == 0 ? 0 : 1);
+    }
+
+    /**
+     * Plays and measures a series of games, each faster than the one before until it starts again from the slowest.
+     * <br><br>
+     * The check plays two series and only reports the second, so that the measuring loop itself is compiled before
+     * it is relied on.
+     *
+     * @param threads    the <code>ThreadMXBean</code> reading the bytes allocated
+     * @param overhead   the bytes allocated by reading the bytes allocated
+     * @param controller the controller playing the games
+     * @param player     the <code>Player</code> the controller plays as
+     * @param games      the number of games
+     * @param offset     the time taken off every reaction, in seconds, so that the series sets its own new bests
+     * @return the number of new best times, of games that allocated, of bytes allocated and of bytes allocated by
+     * the worst game
+     */
+    private static long[] play(ThreadMXBean threads, long overhead, MainController controller, Player player,
+                               int games, double offset) {
+        long thread = Thread.currentThread().getId();
+        long[] counts = new long[4];
+        for (int i = 0; i < games; i++) {
+            player.reserveAttempt();
+            long reaction = 400_000_000L - i % 1000 * 250_000L - (long) (offset * 1e9);
+            long before = threads.getThreadAllocatedBytes(thread);
+            controller.commitResult(reaction);
+            long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+            if (allocated > 0) {
+                counts[1]++;
+                counts[2] += allocated;
+                counts[3] = Math.max(counts[3], allocated);
+            }
+            if (controller.describeResult().startsWith("Congratulations")) {
+                counts[0]++;
+            }
+        }
+        return counts;
+    }
+
+}
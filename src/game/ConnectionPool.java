@@ -0,0 +1,107 @@
+package game;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A small, fixed-size pool of JDBC <code>Connection</code>s to a single database URL.<br><br>
+ * Connections are opened lazily, up to <code>size</code> of them, and handed back to the pool once released, so
+ * repeated operations do not pay for opening a connection each time.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see JdbcPlayerStore
+ */
+public class ConnectionPool {
+
+    /**
+     * This field stores the JDBC URL of the database.
+     */
+    private final String url;
+
+    /**
+     * This field stores the connections that are currently idle.
+     */
+    private final BlockingQueue<Connection> idle;
+
+    /**
+     * This field stores every connection opened by the pool.
+     */
+    private final List<Connection> opened = new ArrayList<>();
+
+    /**
+     * This field stores the maximum number of connections.
+     */
+    private final int size;
+
+    /**
+     * Default Constructor.
+     *
+     * @param url  the JDBC URL of the database
+     * @param size the maximum number of connections
+     */
+    public ConnectionPool(String url, int size) {
+        this.url = url;
+        this.size = size;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Takes a connection from the pool, opening a new one if none is idle and the pool is not full, or waiting for
+     * one to be released otherwise.
+     *
+     * @return a <code>Connection</code> to the database
+     * @throws SQLException if a new connection cannot be opened
+     */
+    public Connection acquire() throws SQLException {
+        Connection connection = idle.poll();
+        if (connection != null) {
+            return connection;
+        }
+        synchronized (opened) {
+            if (opened.size() < size) {
+                connection = DriverManager.getConnection(url);
+                opened.add(connection);
+                return connection;
+            }
+        }
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    /**
+     * Returns a connection to the pool.
+     *
+     * @param connection the <code>Connection</code> taken from <code>acquire()</code>
+     */
+    public void release(Connection connection) {
+        idle.offer(connection);
+    }
+
+    /**
+     * Closes every connection opened by the pool.
+     */
+    public void close() {
+        synchronized (opened) {
+            for (Connection connection : opened) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            opened.clear();
+            idle.clear();
+        }
+    }
+
+}
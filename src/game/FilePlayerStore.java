@@ -0,0 +1,661 @@
+package game;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * A <code>PlayerStore</code> keeping every <code>Player</code> in memory and saving them to an object file (.ser).
+ * <br><br>
+ * This is the original storage of the application: the whole <code>PlayerDatabase</code> is read when the store is
+ * created and written back on every <code>flush()</code>.<br><br>
+ * Several processes may share the file. Every record carries a revision, raised by the process saving a change to it,
+ * and a lock file next to the object file (<code>players.ser.lock</code>) counts the saves. Saves hold an exclusive
+ * <code>FileChannel</code> lock on the lock file: if another process saved since the file was last read, the changes
+ * are first read back record by record, so that every process only writes over the records it changed, and the file
+ * is then replaced by a complete new one, so that readers never see it half written. Reads hold a shared lock.
+ * <code>refresh()</code> and <code>watch()</code> bring the changes of other processes into a running store without
+ * reading it again as a whole.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerStore
+ * @see PlayerManager.PlayerDatabase
+ */
+public class FilePlayerStore implements PlayerStore {
+
+    /**
+     * This field stores the object file the database is read from and saved to.
+     */
+    private final File file;
+
+    /**
+     * This field stores the lock file counting the saves to the object file.
+     */
+    private final File lockFile;
+
+    /**
+     * This field stores the object serializing the stores of this process sharing the same file, as a
+     * <code>FileChannel</code> lock is held by the whole process.
+     */
+    private final Object monitor;
+
+    /**
+     * This field stores the objects serializing the stores of this process, keyed by the path of their file.
+     */
+    private static final Map<String, Object> MONITORS = new ConcurrentHashMap<>();
+
+    /**
+     * This field stores the <code>PlayerDatabase</code> holding every <code>Player</code>.
+     */
+    private PlayerManager.PlayerDatabase database;
+
+    /**
+     * This field stores the state of every record when the file was last read or saved, keyed by name.
+     */
+    private Map<String, Synced> synced;
+
+    /**
+     * This field stores the number of saves to the file when it was last read or saved, or <code>-1</code> if unknown.
+     */
+    private long generation = -1;
+
+    /**
+     * This field stores the modification time and length of the file when it was last read or saved, telling
+     * saves by processes that do not count them.
+     */
+    private long fileStamp = -1;
+
+    /**
+     * This field stores the listener told about the changes read from other processes.
+     */
+    private ChangeListener listener;
+
+    /**
+     * This field stores the watcher of the file, or <code>null</code> if it is not watched.
+     */
+    private StoreWatcher watcher;
+
+    /**
+     * Default Constructor.<br><br>
+     * Reads the database from the given file. If the file is not found or cannot be read, it will proceed with an
+     * empty <code>PlayerDatabase</code>.
+     *
+     * @param file the object file (.ser) to read from and save to
+     */
+    public FilePlayerStore(File file) {
+        this(file, null);
+        if (file.exists()) {
+            PlayerManager.PlayerDatabase read;
+            synchronized (monitor) {
+                try (FileChannel channel = openLock()) {
+                    channel.lock(0, Long.MAX_VALUE, true);
+                    generation = readGeneration(channel);
+                    fileStamp = stampOf(file);
+                    read = read(file);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    read = read(file);
+                }
+            }
+            if (read != null) {
+                database = read;
+                synced = snapshot();
+            }
+        }
+    }
+
+    /**
+     * Constructs a store around a <code>PlayerDatabase</code> that has already been read, such as by tools that
+     * need to tell an unreadable file apart from a missing one.
+     *
+     * @param file     the object file (.ser) to save to
+     * @param database the <code>PlayerDatabase</code> read from the file, or <code>null</code> to start empty
+     */
+    FilePlayerStore(File file, PlayerManager.PlayerDatabase database) {
+        this.file = file;
+        this.lockFile = new File(file.getPath() + ".lock");
+        this.monitor = MONITORS.computeIfAbsent(file.getAbsoluteFile().toPath().normalize().toString(),
+                path -> new Object());
+        this.database = database == null ? new PlayerManager.PlayerDatabase() : database;
+        this.synced = snapshot();
+    }
+
+    /**
+     * Retrieves the <code>Player</code> with the given name through the database's name index.
+     *
+     * @param name the name of the <code>Player</code>
+     * @return the <code>Player</code>, or <code>null</code> if not found
+     */
+    @Override
+    public Player get(String name) {
+        return database.index().get(name);
+    }
+
+    /**
+     * Adds a new <code>Player</code> to the database.
+     *
+     * @param player the <code>Player</code> to be added
+     * @return <code>true</code> if no other <code>Player</code> has the same name and the <code>Player</code> is
+     * added. Otherwise, it will return <code>false</code>.
+     */
+    @Override
+    public boolean put(Player player) {
+        if (database.index().containsKey(player.getName())) {
+            return false;
+        }
+        return database.add(player);
+    }
+
+    /**
+     * Removes the <code>Player</code> with the given name from the database.
+     *
+     * @param name the name of the <code>Player</code>
+     * @return the removed <code>Player</code>, or <code>null</code> if not found
+     */
+    @Override
+    public Player delete(String name) {
+        Player p = database.index().remove(name);
+        if (p != null) {
+            database.playerList.remove(p);
+        }
+        return p;
+    }
+
+    /**
+     * Renames a <code>Player</code>, keeping the database's name index up to date.
+     *
+     * @param player  the <code>Player</code> to be renamed
+     * @param newName the new name
+     * @return <code>true</code> if the new name is not used by any other <code>Player</code> and the
+     * <code>Player</code> is renamed. Otherwise, it will return <code>false</code>.
+     */
+    @Override
+    public boolean rename(Player player, String newName) {
+        Map<String, Player> index = database.index();
+        if (index.containsKey(newName)) {
+            return false;
+        }
+        index.remove(player.getName());
+        player.setName(newName);
+        index.put(newName, player);
+        return true;
+    }
+
+    /**
+     * Adds many new <code>Player</code>s to the database in a single pass, checking each name against the
+     * database's name index.
+     *
+     * @param players the <code>Player</code>s to be added
+     * @return the number of <code>Player</code>s added
+     */
+    @Override
+    public int putAll(Collection<Player> players) {
+        Map<String, Player> index = database.index();
+        Map<String, Player> added = new HashMap<>(Math.max(16, players.size() * 2));
+        List<Player> list = new ArrayList<>(players.size());
+        for (Player p : players) {
+            if (!index.containsKey(p.getName()) && added.putIfAbsent(p.getName(), p) == null) {
+                list.add(p);
+            }
+        }
+        database.addAll(list);
+        return list.size();
+    }
+
+    /**
+     * Removes every <code>Player</code> matching the given predicate in a single pass over the
+     * <code>playerList</code>, then rebuilds the name index once.
+     *
+     * @param filter the predicate selecting the <code>Player</code>s to be removed
+     * @return the removed <code>Player</code>s
+     */
+    @Override
+    public List<Player> deleteIf(Predicate<Player> filter) {
+        List<Player> removed = new ArrayList<>();
+        database.playerList.removeIf(p -> filter.test(p) && removed.add(p));
+        if (!removed.isEmpty()) {
+            database.reindex();
+        }
+        return removed;
+    }
+
+    /**
+     * Renames many <code>Player</code>s at once, then rebuilds the name index once.
+     *
+     * @param renames the new names, keyed by the <code>Player</code>s to be renamed
+     * @return <code>true</code> if the <code>Player</code>s are renamed. Otherwise, it will return
+     * <code>false</code>.
+     */
+    @Override
+    public boolean renameAll(Map<Player, String> renames) {
+        if (!canRenameAll(renames)) {
+            return false;
+        }
+        for (Map.Entry<Player, String> e : renames.entrySet()) {
+            e.getKey().setName(e.getValue());
+        }
+        database.reindex();
+        return true;
+    }
+
+    /**
+     * Provides an <code>Iterator</code> over the database's <code>playerList</code>.
+     *
+     * @return an <code>Iterator</code> of type <code>Player</code>
+     */
+    @Override
+    public Iterator<Player> scan() {
+        return database.iterator();
+    }
+
+    /**
+     * Retrieves the fastest <code>Player</code>s by sorting every <code>Player</code> with a best time.
+     *
+     * @param limit the maximum number of <code>Player</code>s to be returned
+     * @return a <code>List</code> of at most <code>limit</code> <code>Player</code>s, from fastest to slowest
+     */
+    @Override
+    public List<Player> rank(int limit) {
+        List<Player> ranked = new ArrayList<>();
+        for (Player p : database.playerList) {
+            if (p.getBestTime() != null) {
+                ranked.add(p);
+            }
+        }
+        ranked.sort(Comparator.comparing(Player::getBestTime));
+        return new ArrayList<>(ranked.subList(0, Math.min(limit, ranked.size())));
+    }
+
+    /**
+     * Retrieves the number of <code>Player</code>s in the database.
+     *
+     * @return the number of <code>Player</code>s
+     */
+    @Override
+    public int size() {
+        return database.playerList.size();
+    }
+
+    /**
+     * Retrieves the <code>Player</code>s of the database without copying them, as the <code>playerList</code> is
+     * never changed in place.
+     *
+     * @return a read-only <code>List</code> of the <code>Player</code>s currently in the database
+     */
+    @Override
+    public List<Player> members() {
+        return database.members();
+    }
+
+    /**
+     * Writes the <code>PlayerDatabase</code> to the store's file, holding an exclusive lock on the lock file.<br><br>
+     * If another process saved since the file was last read, its changes are read back first: records only changed
+     * by the other process are updated in place, records changed by both are combined by
+     * <code>Player.reconcile()</code>, and records added or removed by the other process are added or removed unless
+     * they were changed here. The database is then written to a temporary file, which replaces the object file.
+     * <br><br>
+     * The <code>Player</code>s are written from a <code>PlayerSnapshot</code>, so that the file holds every
+     * <code>Player</code> as it was at the same moment, even while games keep being recorded.
+     *
+     * @return <code>true</code> if the database is successfully written. Otherwise it will return <code>false</code>
+     *
+     * @see ObjectOutputStream
+     * @see FileOutputStream
+     * @see FileLock
+     */
+    @Override
+    public boolean flush() {
+        synchronized (monitor) {
+            try (FileChannel channel = openLock()) {
+                channel.lock();
+                long current = readGeneration(channel);
+                if (current != generation || stampOf(file) != fileStamp) {
+                    PlayerManager.PlayerDatabase disk = read(file);
+                    if (disk != null) {
+                        reconcile(disk);
+                    }
+                }
+                for (Player p : database.playerList) {
+                    Synced s = synced.get(p.getName());
+                    if (s == null || s.player != p || s.version != p.getVersion()) {
+                        p.setRevision((s == null ? p.getRevision() : Math.max(p.getRevision(), s.revision)) + 1);
+                    }
+                }
+                Map<String, Synced> saved = new HashMap<>(Math.max(16, database.playerList.size() * 2));
+                List<Player> frozen = new ArrayList<>(database.playerList.size());
+                try (PlayerSnapshot snapshot = PlayerSnapshot.open(database.members())) {
+                    for (Player p : snapshot.members()) {
+                        Player image = snapshot.resolve(p);
+                        frozen.add(image);
+                        saved.put(image.getName(),
+                                new Synced(p, image.getRevision(), image.getVersion(), image.getAttempts()));
+                    }
+                }
+                File temp = new File(file.getPath() + ".tmp");
+                try (ObjectOutputStream output =
+                             new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                    output.writeObject(new PlayerManager.PlayerDatabase(frozen));
+                }
+                try {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                generation = current + 1;
+                writeGeneration(channel, generation);
+                fileStamp = stampOf(file);
+                synced = saved;
+                return true;
+            } catch (IOException ioe) {
+                ioe.printStackTrace();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Reads the changes other processes saved since the file was last read or saved, holding a shared lock on the
+     * lock file. Only the records whose revision changed are updated, and changes not saved yet are kept.
+     *
+     * @return <code>true</code> if any <code>Player</code> was added, removed or updated. Otherwise, it will return
+     * <code>false</code>.
+     */
+    @Override
+    public boolean refresh() {
+        if (!file.exists()) {
+            return false;
+        }
+        synchronized (monitor) {
+            PlayerManager.PlayerDatabase disk;
+            try (FileChannel channel = openLock()) {
+                channel.lock(0, Long.MAX_VALUE, true);
+                long current = readGeneration(channel);
+                long stamp = stampOf(file);
+                if (current == generation && stamp == fileStamp) {
+                    return false;
+                }
+                disk = read(file);
+                if (disk == null) {
+                    return false;
+                }
+                generation = current;
+                fileStamp = stamp;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+            return reconcile(disk);
+        }
+    }
+
+    /**
+     * Sets the listener told about the changes read from other processes.
+     *
+     * @param listener the listener, or <code>null</code> for none
+     */
+    @Override
+    public void setChangeListener(ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts watching the object file and its lock file for saves by other processes.
+     *
+     * @param onChange the callback run after every save
+     * @return <code>true</code> if the file is being watched. Otherwise, it will return <code>false</code>.
+     */
+    @Override
+    public boolean watch(Runnable onChange) {
+        if (watcher != null) {
+            return true;
+        }
+        try {
+            watcher = new StoreWatcher(file.getAbsoluteFile().getParentFile(),
+                    name -> name.equals(file.getName()) || name.equals(lockFile.getName()), onChange);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Stops watching the file, if it is watched. The store holds no other resources between flushes.
+     */
+    @Override
+    public void close() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Applies the records of the database read from the file that changed since it was last read or saved.<br><br>
+     * Records added by the other process are added all at once, after the others are applied, so that the list of
+     * <code>Player</code>s is copied once however many were added.
+     *
+     * @param disk the database read from the file
+     * @return <code>true</code> if any <code>Player</code> was added, removed or updated
+     */
+    private boolean reconcile(PlayerManager.PlayerDatabase disk) {
+        Map<String, Player> ours = database.index();
+        Map<String, Player> added = new LinkedHashMap<>();
+        boolean changed = false;
+        for (Player d : disk.playerList) {
+            String name = d.getName();
+            Synced s = synced.get(name);
+            if (s != null && s.revision == d.getRevision()) {
+                continue;
+            }
+            Player mine = ours.get(name);
+            if (mine == null) {
+                if (s != null || added.putIfAbsent(name, d) != null) {
+                    continue; // removed or renamed here since, which is kept, or repeated in the file
+                }
+                synced.put(name, new Synced(d));
+            } else if (s != null && s.player == mine && s.version == mine.getVersion()) {
+                mine.adopt(d);
+                synced.put(name, new Synced(mine));
+                if (listener != null) {
+                    listener.reloaded(mine);
+                }
+            } else {
+                mine.reconcile(d, s != null && s.player == mine ? s.attempts : 0);
+                synced.put(name, new Synced(mine, d.getRevision(), -1, d.getAttempts()));
+                if (listener != null) {
+                    listener.reloaded(mine);
+                }
+            }
+            changed = true;
+        }
+        if (!added.isEmpty()) {
+            database.addAll(added.values());
+            if (listener != null) {
+                for (Player d : added.values()) {
+                    listener.added(d);
+                }
+            }
+        }
+        Map<String, Player> theirs = disk.index();
+        Iterator<Map.Entry<String, Synced>> it = synced.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Synced> e = it.next();
+            if (theirs.containsKey(e.getKey())) {
+                continue;
+            }
+            Synced s = e.getValue();
+            Player mine = ours.get(e.getKey());
+            if (mine != null && mine == s.player && s.version == mine.getVersion()) {
+                delete(e.getKey());
+                if (listener != null) {
+                    listener.removed(mine);
+                }
+                changed = true;
+            }
+            it.remove();
+        }
+        return changed;
+    }
+
+    /**
+     * Records the state of every <code>Player</code> of the database, as just read or saved.
+     *
+     * @return the state of every record, keyed by name
+     */
+    private Map<String, Synced> snapshot() {
+        Map<String, Synced> snapshot = new HashMap<>(Math.max(16, database.playerList.size() * 2));
+        for (Player p : database.playerList) {
+            snapshot.put(p.getName(), new Synced(p));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Opens the lock file, creating it if needed.<br><br>
+     * A lock taken on the returned channel is released as the channel is closed, so callers only need to close the
+     * channel.
+     *
+     * @return the <code>FileChannel</code> of the lock file
+     * @throws IOException if the lock file cannot be opened
+     */
+    private FileChannel openLock() throws IOException {
+        return FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Reads the number of saves from the lock file.
+     *
+     * @param channel the <code>FileChannel</code> of the lock file
+     * @return the number of saves, or <code>0</code> if none was counted
+     * @throws IOException if the lock file cannot be read
+     */
+    private static long readGeneration(FileChannel channel) throws IOException {
+        if (channel.size() < Long.BYTES) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // keep reading until the counter is complete
+        }
+        return buffer.getLong(0);
+    }
+
+    /**
+     * Writes the number of saves to the lock file.
+     *
+     * @param channel    the <code>FileChannel</code> of the lock file
+     * @param generation the number of saves
+     * @throws IOException if the lock file cannot be written
+     */
+    private static void writeGeneration(FileChannel channel, long generation) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, generation);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+    }
+
+    /**
+     * Combines the modification time and length of a file, which change with every save.
+     *
+     * @param file the file
+     * @return the stamp of the file
+     */
+    private static long stampOf(File file) {
+        return file.lastModified() * 31 + file.length();
+    }
+
+    /**
+     * Reads a <code>PlayerDatabase</code> from the given object file.
+     *
+     * @param source the object file (.ser) to be read
+     * @return the <code>PlayerDatabase</code> stored in the file. If the file is not found or cannot be read, then
+     * it will return <code>null</code> instead.
+     *
+     * @see ObjectInputStream
+     * @see FileInputStream
+     */
+    static PlayerManager.PlayerDatabase read(File source) {
+        if (source.exists()) {
+            try (ObjectInputStream input =
+                         new ObjectInputStream(new BufferedInputStream(new FileInputStream(source)))) {
+                return (PlayerManager.PlayerDatabase) input.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                e.printStackTrace();
+                System.out.println("Data not read. Application is still safe to run without loaded data.");
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This private static inner class holds the state of a record when the file was last read or saved.
+     */
+    private static class Synced {
+
+        /**
+         * The <code>Player</code> holding the record.
+         */
+        private final Player player;
+
+        /**
+         * The revision of the record in the file.
+         */
+        private final long revision;
+
+        /**
+         * The version stamp of the <code>Player</code>, or <code>-1</code> if it holds changes not saved yet.
+         */
+        private final long version;
+
+        /**
+         * The number of attempts of the record in the file.
+         */
+        private final int attempts;
+
+        /**
+         * Records the state of a <code>Player</code> matching its record in the file.
+         *
+         * @param player the <code>Player</code>
+         */
+        Synced(Player player) {
+            this(player, player.getRevision(), player.getVersion(), player.getAttempts());
+        }
+
+        /**
+         * Records the state of a record.
+         *
+         * @param player   the <code>Player</code> holding the record
+         * @param revision the revision of the record in the file
+         * @param version  the version stamp of the <code>Player</code>, or <code>-1</code> if it holds changes not
+         *                 saved yet
+         * @param attempts the number of attempts of the record in the file
+         */
+        Synced(Player player, long revision, long version, int attempts) {
+            this.player = player;
+            this.revision = revision;
+            this.version = version;
+            this.attempts = attempts;
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package game;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.GridPane;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class serves as the controller class for <code>headToHeadDialog.fxml</code>.<br><br>
+ * Lets the users choose the <code>Player</code>s of a head-to-head round, one for each key of
+ * <code>HeadToHeadRound.KEYS</code>. Keys left without a <code>Player</code> are not used.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see Dialog
+ * @see HeadToHeadRound
+ */
+public class HeadToHeadDialogController {
+
+    /**
+     * This field refers to the <code>GridPane</code> holding a row for every key.
+     */
+    @FXML
+    private GridPane playerGrid;
+
+    /**
+     * This field stores the <code>ComboBox</code> choosing the <code>Player</code> of every key.
+     */
+    private final List<ComboBox<String>> choices = new ArrayList<>();
+
+    /**
+     * This field stores the <code>PlayerManager</code> the <code>Player</code>s are chosen from.
+     */
+    private PlayerManager pm;
+
+    /**
+     * Fills every row with the names of the <code>Player</code>s, choosing the selected <code>Player</code> for the
+     * first key.
+     *
+     * @param playerManager  the <code>PlayerManager</code> object from the main application
+     * @param selectedPlayer the currently-selected <code>Player</code>, or <code>null</code>
+     */
+    public void initialize(PlayerManager playerManager, Player selectedPlayer) {
+        pm = playerManager;
+        ObservableList<String> names = FXCollections.observableArrayList();
+        names.add("");
+        for (Player p : playerManager.players()) {
+            names.add(p.getName());
+        }
+        FXCollections.sort(names);
+        for (int i = 0; i < HeadToHeadRound.KEYS.length; i++) {
+            ComboBox<String> choice = new ComboBox<>(names);
+            choice.setPrefWidth(200);
+            if (i == 0 && selectedPlayer != null) {
+                choice.setValue(selectedPlayer.getName());
+            }
+            playerGrid.add(new Label("Key " + HeadToHeadRound.KEYS[i].getName() + ":"), 0, i);
+            playerGrid.add(choice, 1, i);
+            choices.add(choice);
+        }
+    }
+
+    /**
+     * Builds the round of the chosen <code>Player</code>s.
+     *
+     * @return a new <code>HeadToHeadRound</code>, or <code>null</code> if fewer than two different
+     * <code>Player</code>s were chosen
+     */
+    public HeadToHeadRound processResults() {
+        List<Player> players = new ArrayList<>();
+        List<KeyCode> keys = new ArrayList<>();
+        for (int i = 0; i < choices.size(); i++) {
+            String name = choices.get(i).getValue();
+            Player p = name == null || name.isEmpty() ? null : pm.getPlayer(name);
+            if (p != null && !players.contains(p)) {
+                players.add(p);
+                keys.add(HeadToHeadRound.KEYS[i]);
+            }
+        }
+        if (players.size() < 2) {
+            return null;
+        }
+        return new HeadToHeadRound(players.toArray(new Player[0]), keys.toArray(new KeyCode[0]));
+    }
+
+}
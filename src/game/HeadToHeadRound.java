@@ -0,0 +1,266 @@
+package game;
+
+import javafx.scene.input.KeyCode;
+
+import java.util.Arrays;
+
+/**
+ * This class holds a head-to-head round, in which several <code>Player</code>s react to the same green light on one
+ * machine, each with their own key.<br><br>
+ * Every <code>Player</code> has a slot, found from the code of their key through an array indexed by the ordinal of
+ * the <code>KeyCode</code>. <code>capture()</code> only stores the time a key was pressed in its slot, so that
+ * timestamping a press takes the same few steps however many <code>Player</code>s are in the round, and a press
+ * waiting behind another one is not delayed by more than that. Everything else, from computing the reaction times to
+ * recording them and updating the UI, is left until the round is over, when <code>commit()</code> records every
+ * result at once.<br><br>
+ * A <code>Player</code> pressing their key before the lights turn green fails the round, without ending it for the
+ * others. A <code>Player</code> who never pressed their key when the round ends has no result. The round is not
+ * thread-safe; it is used from the JavaFX Application Thread.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see MainController
+ * @see PlayerManager#recordRound(Player[], double[])
+ */
+class HeadToHeadRound {
+
+    /**
+     * The keys given to the players of a round, in order: the corners of the keyboard, far enough apart for four
+     * players to share it.
+     */
+    static final KeyCode[] KEYS = {KeyCode.Q, KeyCode.P, KeyCode.Z, KeyCode.M};
+
+    /**
+     * This field stores the <code>Player</code>s of the round, one per slot.
+     */
+    private final Player[] players;
+
+    /**
+     * This field stores the key of every slot.
+     */
+    private final KeyCode[] keys;
+
+    /**
+     * This field stores the slot of every key, indexed by the ordinal of its <code>KeyCode</code>, or
+     * <code>-1</code> for keys not used in the round.
+     */
+    private final int[] slots = new int[KeyCode.values().length];
+
+    /**
+     * This field stores, for every slot, the <code>System.nanoTime()</code> its key was pressed after the lights
+     * turned green, or <code>0</code> if it was not.
+     */
+    private final long[] pressed;
+
+    /**
+     * This field indicates, for every slot, whether its key was pressed before the lights turned green.
+     */
+    private final boolean[] early;
+
+    /**
+     * This field stores the <code>System.nanoTime()</code> the lights turned green, or <code>0</code> if they have
+     * not yet.
+     */
+    private long onset;
+
+    /**
+     * This field stores the number of slots whose key was not pressed yet.
+     */
+    private int remaining;
+
+    /**
+     * Default Constructor.
+     *
+     * @param players the <code>Player</code>s of the round
+     * @param keys    the key of every <code>Player</code>, in the same order
+     * @throws IllegalArgumentException if there is not one key per <code>Player</code>, a key or a
+     *                                  <code>Player</code> is given twice, or there are no <code>Player</code>s
+     */
+    HeadToHeadRound(Player[] players, KeyCode[] keys) {
+        if (players.length == 0 || players.length != keys.length) {
+            throw new IllegalArgumentException("Expected one key per player");
+        }
+        Arrays.fill(slots, -1);
+        for (int i = 0; i < keys.length; i++) {
+            if (slots[keys[i].ordinal()] >= 0) {
+                throw new IllegalArgumentException("Key used twice: " + keys[i]);
+            }
+            for (int j = 0; j < i; j++) {
+                if (players[j] == players[i]) {
+                    throw new IllegalArgumentException("Player given twice: " + players[i].getName());
+                }
+            }
+            slots[keys[i].ordinal()] = i;
+        }
+        this.players = players.clone();
+        this.keys = keys.clone();
+        this.pressed = new long[players.length];
+        this.early = new boolean[players.length];
+        reset();
+    }
+
+    /**
+     * Prepares the round to be played again, and reserves room for the result of every <code>Player</code>.
+     *
+     * @see Player#reserveAttempt()
+     */
+    void reset() {
+        Arrays.fill(pressed, 0);
+        Arrays.fill(early, false);
+        onset = 0;
+        remaining = players.length;
+        for (Player p : players) {
+            p.reserveAttempt();
+        }
+    }
+
+    /**
+     * Marks the time the lights turned green, from which the reactions are timed.
+     *
+     * @param onset the <code>System.nanoTime()</code> the lights turned green
+     */
+    void arm(long onset) {
+        this.onset = onset;
+    }
+
+    /**
+     * Checks whether a key belongs to a <code>Player</code> of the round.
+     *
+     * @param code the code of the key
+     * @return <code>true</code> if the key is used in the round. Otherwise, it will return <code>false</code>.
+     */
+    boolean owns(KeyCode code) {
+        return slots[code.ordinal()] >= 0;
+    }
+
+    /**
+     * Stores the time a key was pressed in its slot. Only the first press of every key counts, and a press before
+     * the lights turned green fails its <code>Player</code>. Allocates nothing.
+     *
+     * @param code the code of the key
+     * @param now  the <code>System.nanoTime()</code> the key was pressed, taken before anything else
+     * @return <code>true</code> if every key has now been pressed, which ends the round. Otherwise, it will return
+     * <code>false</code>.
+     */
+    boolean capture(KeyCode code, long now) {
+        int slot = slots[code.ordinal()];
+        if (slot < 0 || pressed[slot] != 0 || early[slot]) {
+            return false;
+        }
+        if (onset == 0) {
+            early[slot] = true;
+        } else {
+            pressed[slot] = now;
+        }
+        return --remaining == 0;
+    }
+
+    /**
+     * Checks whether the lights have turned green.
+     *
+     * @return <code>true</code> if the round is timing reactions. Otherwise, it will return <code>false</code>.
+     */
+    boolean isArmed() {
+        return onset != 0;
+    }
+
+    /**
+     * Checks whether every <code>Player</code> failed the round, so that there is nothing left to time.
+     *
+     * @return <code>true</code> if every key was pressed too early. Otherwise, it will return <code>false</code>.
+     */
+    boolean allFailed() {
+        for (boolean e : early) {
+            if (!e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the number of <code>Player</code>s in the round.
+     *
+     * @return the number of <code>Player</code>s
+     */
+    int size() {
+        return players.length;
+    }
+
+    /**
+     * Retrieves the <code>Player</code> of a slot.
+     *
+     * @param slot the slot
+     * @return the <code>Player</code>
+     */
+    Player getPlayer(int slot) {
+        return players[slot];
+    }
+
+    /**
+     * Retrieves the key of a slot.
+     *
+     * @param slot the slot
+     * @return the code of the key
+     */
+    KeyCode getKey(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Checks whether the <code>Player</code> of a slot pressed their key too early.
+     *
+     * @param slot the slot
+     * @return <code>true</code> if the <code>Player</code> failed the round. Otherwise, it will return
+     * <code>false</code>.
+     */
+    boolean isEarly(int slot) {
+        return early[slot];
+    }
+
+    /**
+     * Retrieves the reaction time of the <code>Player</code> of a slot.
+     *
+     * @param slot the slot
+     * @return the reaction time in seconds, or <code>NaN</code> if the <code>Player</code> failed the round or has not
+     * reacted
+     */
+    double getTime(int slot) {
+        return pressed[slot] == 0 ? Double.NaN : (pressed[slot] - onset) / 1000000000.0;
+    }
+
+    /**
+     * Records the result of every <code>Player</code> who pressed their key, at once. <code>Player</code>s who did
+     * not press their key are left out.
+     *
+     * @param manager the <code>PlayerManager</code> recording the results
+     * @return whether every <code>Player</code> set a new best time, by slot
+     *
+     * @see PlayerManager#recordRound(Player[], double[])
+     */
+    boolean[] commit(PlayerManager manager) {
+        int played = 0;
+        for (int i = 0; i < players.length; i++) {
+            if (early[i] || pressed[i] != 0) {
+                played++;
+            }
+        }
+        Player[] who = new Player[played];
+        double[] times = new double[played];
+        int[] slotOf = new int[played];
+        for (int i = 0, j = 0; i < players.length; i++) {
+            if (early[i] || pressed[i] != 0) {
+                who[j] = players[i];
+                times[j] = getTime(i);
+                slotOf[j++] = i;
+            }
+        }
+        boolean[] recorded = manager.recordRound(who, times);
+        boolean[] newBests = new boolean[players.length];
+        for (int j = 0; j < played; j++) {
+            newBests[slotOf[j]] = recorded[j];
+        }
+        return newBests;
+    }
+
+}
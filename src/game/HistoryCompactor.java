@@ -0,0 +1,85 @@
+package game;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class periodically compacts the attempt histories of every <code>Player</code> managed by a
+ * <code>PlayerManager</code>, according to a <code>RetentionPolicy</code>.<br><br>
+ * Compaction runs on a single background daemon thread, so the in-memory footprint of each <code>Player</code>
+ * stays bounded without pausing the game.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see RetentionPolicy
+ * @see Player#compact(RetentionPolicy, long)
+ */
+public class HistoryCompactor {
+
+    /**
+     * This field stores the <code>PlayerManager</code> whose players are compacted.
+     */
+    private final PlayerManager playerManager;
+
+    /**
+     * This field stores the <code>RetentionPolicy</code> applied on each compaction.
+     */
+    private final RetentionPolicy policy;
+
+    /**
+     * This field stores the executor running the scheduled compactions, or <code>null</code> if not started.
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Default Constructor.
+     *
+     * @param playerManager the <code>PlayerManager</code> whose players are compacted
+     * @param policy        the <code>RetentionPolicy</code> applied on each compaction
+     */
+    public HistoryCompactor(PlayerManager playerManager, RetentionPolicy policy) {
+        this.playerManager = playerManager;
+        this.policy = policy;
+    }
+
+    /**
+     * Starts compacting immediately, then again after every period.
+     *
+     * @param period the time between compactions
+     * @param unit   the unit of <code>period</code>
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "history-compactor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::compactNow, 0, period, unit);
+    }
+
+    /**
+     * Compacts every <code>Player</code> on the calling thread.
+     */
+    public void compactNow() {
+        long now = System.currentTimeMillis();
+        for (Player p : playerManager.players()) {
+            p.compact(policy, now);
+        }
+    }
+
+    /**
+     * Stops any further compaction.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+}
@@ -0,0 +1,683 @@
+package game;
+
+import java.io.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A <code>PlayerStore</code> backed by an embedded SQL database, such as SQLite or H2 in file mode.<br><br>
+ * Each <code>Player</code> is a row of the <code>players</code> table, keyed by name. The best time, attempts and
+ * registration time are kept in their own columns, with an index on the best time, so lookups and rankings are
+ * answered by the database without reading every row. The full <code>Player</code>, including its history, is
+ * stored as a serialized blob.<br><br>
+ * Only the <code>Player</code>s that are looked up, scanned or added are materialized in memory, and they are kept
+ * in a <code>PlayerCache</code>. With a bounded cache, only the recently used <code>Player</code>s stay on the heap,
+ * and the least recently used are written back as they are evicted if they changed, so heap use follows the
+ * <code>Player</code>s in play rather than every registered <code>Player</code>. The <code>Player</code>s that changed
+ * since they were last saved are written back together by <code>flush()</code> as one batch of prepared statements
+ * within a single transaction, and bulk changes are written the same way.<br><br>
+ * The bound only holds while nothing else keeps every <code>Player</code>. The <code>PlayerIndex</code> of
+ * <code>PlayerManager.query()</code>, the <code>Leaderboards</code>, the <code>PlayerTable</code> of
+ * <code>PlayerManager.table()</code>, snapshots opened on <code>members()</code> and each run of a
+ * <code>HistoryCompactor</code> all read every <code>Player</code>, and all but the compactor keep strong references
+ * to them for as long as they are built. Once any of them is in use, heap use follows every registered
+ * <code>Player</code> again, whatever the size of the cache.
+ * Connections are taken from a <code>ConnectionPool</code>. The JDBC driver of the chosen database must be on the
+ * class path.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerStore
+ * @see ConnectionPool
+ */
+public class JdbcPlayerStore implements PlayerStore {
+
+    /**
+     * The number of rows fetched per query while scanning the table.
+     */
+    private static final int PAGE_SIZE = 256;
+
+    /**
+     * The number of names looked up per query when checking many names at once, below the default limit of
+     * parameters per statement of SQLite.
+     */
+    private static final int IN_LIST_SIZE = 500;
+
+    /**
+     * This field stores the pool of connections to the database.
+     */
+    private final ConnectionPool pool;
+
+    /**
+     * This field stores the <code>Player</code>s materialized from the database, keyed by name.
+     */
+    private final PlayerCache loaded;
+
+    /**
+     * Default Constructor.<br><br>
+     * Creates the <code>players</code> table and its indexes if they do not exist yet. Every <code>Player</code>
+     * materialized stays in memory.
+     *
+     * @param url      the JDBC URL of the database, such as <code>jdbc:sqlite:players.db</code>
+     * @param poolSize the maximum number of connections to the database
+     * @throws SQLException if the database cannot be opened or the table cannot be created
+     */
+    public JdbcPlayerStore(String url, int poolSize) throws SQLException {
+        this(url, poolSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a store keeping at most the given number of recently used <code>Player</code>s in memory.<br><br>
+     * Creates the <code>players</code> table and its indexes if they do not exist yet.
+     *
+     * @param url       the JDBC URL of the database, such as <code>jdbc:sqlite:players.db</code>
+     * @param poolSize  the maximum number of connections to the database
+     * @param cacheSize the maximum number of <code>Player</code>s held in memory by the store itself, which does not
+     *                  bound the <code>Player</code>s kept by an index, leaderboard or table built over the store
+     * @throws SQLException if the database cannot be opened or the table cannot be created
+     *
+     * @see PlayerCache
+     */
+    public JdbcPlayerStore(String url, int poolSize, int cacheSize) throws SQLException {
+        this.loaded = new PlayerCache(cacheSize, p -> writeBack(List.of(p)));
+        this.pool = new ConnectionPool(url, poolSize);
+        Connection connection = pool.acquire();
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS players ("
+                    + "name VARCHAR(255) PRIMARY KEY, "
+                    + "best_time DOUBLE, "
+                    + "attempts INTEGER NOT NULL, "
+                    + "registered BIGINT NOT NULL, "
+                    + "data BLOB NOT NULL)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS players_best_time ON players (best_time)");
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Retrieves the <code>Player</code> with the given name, reading it from the database if it is not
+     * materialized yet.
+     *
+     * @param name the name of the <code>Player</code>
+     * @return the <code>Player</code>, or <code>null</code> if not found
+     */
+    @Override
+    public Player get(String name) {
+        Player p = loaded.get(name);
+        if (p != null) {
+            return p;
+        }
+        List<Player> found = query("SELECT name, data FROM players WHERE name = ?", name);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Inserts a new <code>Player</code> into the database.
+     *
+     * @param player the <code>Player</code> to be added
+     * @return <code>true</code> if no other <code>Player</code> has the same name and the <code>Player</code> is
+     * added. Otherwise, it will return <code>false</code>.
+     */
+    @Override
+    public boolean put(Player player) {
+        if (get(player.getName()) != null) {
+            return false;
+        }
+        boolean added = update("INSERT INTO players (name, best_time, attempts, registered, data) "
+                + "VALUES (?, ?, ?, ?, ?)", player.getName(), player.getBestTime(), player.getAttempts(),
+                player.getRegistered(), serialize(player)) == 1;
+        if (added) {
+            loaded.put(player);
+        }
+        return added;
+    }
+
+    /**
+     * Deletes the <code>Player</code> with the given name from the database.
+     *
+     * @param name the name of the <code>Player</code>
+     * @return the removed <code>Player</code>, or <code>null</code> if not found
+     */
+    @Override
+    public Player delete(String name) {
+        Player p = get(name);
+        if (p != null && update("DELETE FROM players WHERE name = ?", name) == 1) {
+            loaded.remove(name);
+            return p;
+        }
+        return null;
+    }
+
+    /**
+     * Renames a <code>Player</code>, updating its key in the database immediately.
+     *
+     * @param player  the <code>Player</code> to be renamed
+     * @param newName the new name
+     * @return <code>true</code> if the new name is not used by any other <code>Player</code> and the
+     * <code>Player</code> is renamed. Otherwise, it will return <code>false</code>.
+     */
+    @Override
+    public boolean rename(Player player, String newName) {
+        String oldName = player.getName();
+        if (get(newName) != null || update("UPDATE players SET name = ? WHERE name = ?", newName, oldName) != 1) {
+            return false;
+        }
+        player.setName(newName);
+        loaded.rename(oldName, player);
+        return true;
+    }
+
+    /**
+     * Inserts many new <code>Player</code>s as one batch within a single transaction.<br><br>
+     * The names already taken are found within the same transaction by one query per
+     * <code>IN_LIST_SIZE</code> names, rather than one query per name.
+     *
+     * @param players the <code>Player</code>s to be added
+     * @return the number of <code>Player</code>s added
+     */
+    @Override
+    public int putAll(Collection<Player> players) {
+        List<Player> candidates = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Player p : players) {
+            if (names.add(p.getName()) && loaded.peek(p.getName()) == null) {
+                candidates.add(p);
+            }
+        }
+        List<Player> added = new ArrayList<>(candidates.size());
+        boolean committed = transaction(connection -> {
+            Set<String> taken = existingNames(connection, candidates);
+            List<Object[]> rows = new ArrayList<>(candidates.size());
+            added.clear();
+            for (Player p : candidates) {
+                if (!taken.contains(p.getName())) {
+                    added.add(p);
+                    rows.add(new Object[]{p.getName(), p.getBestTime(), p.getAttempts(), p.getRegistered(),
+                            serialize(p)});
+                }
+            }
+            executeBatch(connection,
+                    "INSERT INTO players (name, best_time, attempts, registered, data) VALUES (?, ?, ?, ?, ?)", rows);
+        });
+        if (!committed) {
+            return 0;
+        }
+        for (Player p : added) {
+            loaded.put(p);
+        }
+        return added.size();
+    }
+
+    /**
+     * Removes every <code>Player</code> matching the given predicate, scanning the table once and deleting the
+     * matches as one batch within a single transaction.
+     *
+     * @param filter the predicate selecting the <code>Player</code>s to be removed
+     * @return the removed <code>Player</code>s
+     */
+    @Override
+    public List<Player> deleteIf(Predicate<Player> filter) {
+        List<Player> matches = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        Iterator<Player> it = scan();
+        while (it.hasNext()) {
+            Player p = it.next();
+            if (filter.test(p)) {
+                matches.add(p);
+                rows.add(new Object[]{p.getName()});
+            }
+        }
+        if (!transaction(connection -> executeBatch(connection, "DELETE FROM players WHERE name = ?", rows))) {
+            return new ArrayList<>();
+        }
+        for (Player p : matches) {
+            loaded.remove(p.getName());
+        }
+        return matches;
+    }
+
+    /**
+     * Renames many <code>Player</code>s as one batch of updates within a single transaction.
+     *
+     * @param renames the new names, keyed by the <code>Player</code>s to be renamed
+     * @return <code>true</code> if the <code>Player</code>s are renamed. Otherwise, it will return
+     * <code>false</code>.
+     */
+    @Override
+    public boolean renameAll(Map<Player, String> renames) {
+        if (!canRenameAll(renames)) {
+            return false;
+        }
+        List<Object[]> rows = new ArrayList<>(renames.size());
+        for (Map.Entry<Player, String> e : renames.entrySet()) {
+            rows.add(new Object[]{e.getValue(), e.getKey().getName()});
+        }
+        if (!transaction(connection -> executeBatch(connection, "UPDATE players SET name = ? WHERE name = ?", rows))) {
+            return false;
+        }
+        Map<Player, String> oldNames = new HashMap<>(renames.size() * 2);
+        for (Player p : renames.keySet()) {
+            oldNames.put(p, p.getName());
+        }
+        for (Map.Entry<Player, String> e : renames.entrySet()) {
+            e.getKey().setName(e.getValue());
+        }
+        for (Map.Entry<Player, String> e : oldNames.entrySet()) {
+            if (!e.getValue().equals(e.getKey().getName())) {
+                loaded.rename(e.getValue(), e.getKey());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Provides an <code>Iterator</code> over every <code>Player</code>, ordered by name.<br><br>
+     * Rows are read lazily, <code>PAGE_SIZE</code> at a time, by seeking past the last name read, so no cursor is
+     * held open between pages.
+     *
+     * @return an <code>Iterator</code> of type <code>Player</code>
+     */
+    @Override
+    public Iterator<Player> scan() {
+        return new Iterator<>() {
+
+            /**
+             * This field stores the <code>Player</code>s of the page being read.
+             */
+            private List<Player> page = query("SELECT name, data FROM players ORDER BY name LIMIT ?", PAGE_SIZE);
+
+            /**
+             * This field stores the position of the next <code>Player</code> to be returned within
+             * <code>page</code>.
+             */
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                if (position == page.size() && page.size() == PAGE_SIZE) {
+                    String last = page.get(page.size() - 1).getName();
+                    page = query("SELECT name, data FROM players WHERE name > ? ORDER BY name LIMIT ?",
+                            last, PAGE_SIZE);
+                    position = 0;
+                }
+                return position < page.size();
+            }
+
+            @Override
+            public Player next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(position++);
+            }
+        };
+    }
+
+    /**
+     * Retrieves the fastest <code>Player</code>s using the index on the best time.<br><br>
+     * Flushes first, so changes made to materialized <code>Player</code>s are taken into account.
+     *
+     * @param limit the maximum number of <code>Player</code>s to be returned
+     * @return a <code>List</code> of at most <code>limit</code> <code>Player</code>s, from fastest to slowest
+     */
+    @Override
+    public List<Player> rank(int limit) {
+        flush();
+        return query("SELECT name, data FROM players WHERE best_time IS NOT NULL ORDER BY best_time LIMIT ?", limit);
+    }
+
+    /**
+     * Counts the rows of the <code>players</code> table.
+     *
+     * @return the number of <code>Player</code>s, or <code>0</code> if the database cannot be read
+     */
+    @Override
+    public int size() {
+        Connection connection = null;
+        try {
+            connection = pool.acquire();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM players")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        } finally {
+            if (connection != null) {
+                pool.release(connection);
+            }
+        }
+    }
+
+    /**
+     * Writes every materialized <code>Player</code> that changed since it was last saved back to the database, as
+     * one batch of updates within a single transaction.
+     *
+     * @return <code>true</code> if the changes are committed. Otherwise, it will return <code>false</code>.
+     */
+    @Override
+    public boolean flush() {
+        return loaded.writeDirty(this::writeBack);
+    }
+
+    /**
+     * Retrieves the number of <code>Player</code>s held in memory.
+     *
+     * @return the number of <code>Player</code>s
+     */
+    public int getCachedCount() {
+        return loaded.size();
+    }
+
+    /**
+     * Retrieves the share of lookups by name answered without reading the database.
+     *
+     * @return the hit rate between 0 and 1, or <code>NaN</code> if nothing has been looked up yet
+     */
+    public double getHitRate() {
+        return loaded.getHitRate();
+    }
+
+    /**
+     * Retrieves the number of lookups by name answered without reading the database.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return loaded.getHits();
+    }
+
+    /**
+     * Retrieves the number of lookups by name that had to read the database.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return loaded.getMisses();
+    }
+
+    /**
+     * Retrieves the number of <code>Player</code>s evicted from memory to keep within the cache size.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return loaded.getEvictions();
+    }
+
+    /**
+     * Retrieves the number of evicted <code>Player</code>s that were written back because they had changed.
+     *
+     * @return the number of write-backs
+     */
+    public long getWriteBacks() {
+        return loaded.getWriteBacks();
+    }
+
+    /**
+     * Closes every connection to the database.
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * Writes the given <code>Player</code>s back to the database, as one batch of updates within a single
+     * transaction.
+     *
+     * @param players the <code>Player</code>s to be written
+     * @return <code>true</code> if the changes are committed. Otherwise, it will return <code>false</code>.
+     */
+    boolean writeBack(List<Player> players) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Player p : players) {
+            rows.add(new Object[]{p.getBestTime(), p.getAttempts(), p.getRegistered(), serialize(p), p.getName()});
+        }
+        return transaction(connection -> executeBatch(connection,
+                "UPDATE players SET best_time = ?, attempts = ?, registered = ?, data = ? WHERE name = ?", rows));
+    }
+
+    /**
+     * Runs the given work within a single transaction, rolling it back if any statement fails.
+     *
+     * @param work the statements to be run
+     * @return <code>true</code> if the transaction is committed. Otherwise, it will return <code>false</code>.
+     */
+    private boolean transaction(Work work) {
+        Connection connection = null;
+        try {
+            connection = pool.acquire();
+            connection.setAutoCommit(false);
+            try {
+                work.run(connection);
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (connection != null) {
+                pool.release(connection);
+            }
+        }
+    }
+
+    /**
+     * Finds which of the names of the given <code>Player</code>s are already taken in the database, querying
+     * <code>IN_LIST_SIZE</code> names at a time.
+     *
+     * @param connection the connection to run the queries on
+     * @param players    the <code>Player</code>s whose names are looked up
+     * @return the names found in the database
+     * @throws SQLException if a query fails
+     */
+    private static Set<String> existingNames(Connection connection, List<Player> players) throws SQLException {
+        Set<String> taken = new HashSet<>();
+        for (int from = 0; from < players.size(); from += IN_LIST_SIZE) {
+            int to = Math.min(players.size(), from + IN_LIST_SIZE);
+            StringBuilder sql = new StringBuilder("SELECT name FROM players WHERE name IN (");
+            Object[] parameters = new Object[to - from];
+            for (int i = from; i < to; i++) {
+                sql.append(i == from ? "?" : ", ?");
+                parameters[i - from] = players.get(i).getName();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql.append(')').toString())) {
+                bind(statement, parameters);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        taken.add(rs.getString(1));
+                    }
+                }
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Runs a statement once for every row of parameters, as a single batch.
+     *
+     * @param connection the connection to run the statement on
+     * @param sql        the statement
+     * @param rows       the values bound to the statement's parameters, one array per execution
+     * @throws SQLException if the batch fails
+     */
+    private static void executeBatch(Connection connection, String sql, List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Object[] row : rows) {
+                bind(statement, row);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Runs a query returning <code>name</code> and <code>data</code> columns, materializing each row.<br><br>
+     * Rows whose <code>Player</code> is already materialized resolve to the existing instance. The rows are only
+     * materialized once the query's connection is released, as adding them to the cache may write back the
+     * <code>Player</code>s it evicts.
+     *
+     * @param sql        the query
+     * @param parameters the values bound to the query's parameters
+     * @return the <code>Player</code>s of the rows, or an empty <code>List</code> if the query fails
+     */
+    private List<Player> query(String sql, Object... parameters) {
+        List<String> names = new ArrayList<>();
+        List<byte[]> data = new ArrayList<>();
+        Connection connection = null;
+        try {
+            connection = pool.acquire();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                bind(statement, parameters);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        names.add(rs.getString(1));
+                        data.add(rs.getBytes(2));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        } finally {
+            if (connection != null) {
+                pool.release(connection);
+            }
+        }
+        List<Player> result = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            Player p = loaded.peek(names.get(i));
+            if (p == null) {
+                p = deserialize(data.get(i));
+                if (p == null) {
+                    continue;
+                }
+                if (!p.getName().equals(names.get(i))) {
+                    p.setName(names.get(i));
+                    loaded.rename(names.get(i), p);
+                } else {
+                    loaded.put(p);
+                }
+            }
+            result.add(p);
+        }
+        return result;
+    }
+
+    /**
+     * Runs an insert, update or delete statement.
+     *
+     * @param sql        the statement
+     * @param parameters the values bound to the statement's parameters
+     * @return the number of rows changed, or <code>-1</code> if the statement fails
+     */
+    private int update(String sql, Object... parameters) {
+        Connection connection = null;
+        try {
+            connection = pool.acquire();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                bind(statement, parameters);
+                return statement.executeUpdate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        } finally {
+            if (connection != null) {
+                pool.release(connection);
+            }
+        }
+    }
+
+    /**
+     * Binds values to the parameters of a statement, in order.
+     *
+     * @param statement  the statement
+     * @param parameters the values, where a <code>null</code> is bound as an SQL <code>NULL</code> double
+     * @throws SQLException if a value cannot be bound
+     */
+    private static void bind(PreparedStatement statement, Object... parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            Object value = parameters[i];
+            if (value == null) {
+                statement.setNull(i + 1, Types.DOUBLE);
+            } else if (value instanceof byte[]) {
+                statement.setBytes(i + 1, (byte[]) value);
+            } else {
+                statement.setObject(i + 1, value);
+            }
+        }
+    }
+
+    /**
+     * A group of statements run within a single transaction.
+     */
+    private interface Work {
+
+        /**
+         * Runs the statements.
+         *
+         * @param connection the connection the transaction is open on
+         * @throws SQLException if a statement fails
+         */
+        void run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Serializes a <code>Player</code> for the <code>data</code> column.
+     *
+     * @param player the <code>Player</code> to be serialized
+     * @return the serialized bytes
+     */
+    static byte[] serialize(Player player) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(player);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes a <code>Player</code> from the <code>data</code> column.
+     *
+     * @param data the serialized bytes
+     * @return the <code>Player</code>, or <code>null</code> if it cannot be read
+     */
+    static Player deserialize(byte[] data) {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (Player) input.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+}
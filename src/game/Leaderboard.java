@@ -0,0 +1,368 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * This class maintains a leaderboard of the best times achieved within a rolling time window.<br><br>
+ * Time is divided into buckets of <code>bucketMillis</code>, and the window covers the latest
+ * <code>windowBuckets</code> buckets. For each <code>Player</code>, only the fastest time of each bucket within the
+ * window is kept, and the player's best time in the window is the minimum of those. Players are ordered by that
+ * time in a <code>TreeSet</code>.<br><br>
+ * Recording an attempt touches only the attempting player, and a bucket expiring touches only the players who made
+ * an attempt within it, so both take <code>O(log n)</code> time per affected player rather than a recomputation
+ * over every player's history. Removing a player only marks its entry, which the buckets still listing it skip
+ * as they expire, so that it takes <code>O(log n)</code> time as well.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see Leaderboards
+ */
+public class Leaderboard {
+
+    /**
+     * This field stores the length of a bucket, in milliseconds.
+     */
+    private final long bucketMillis;
+
+    /**
+     * This field stores the number of buckets covered by the window.
+     */
+    private final int windowBuckets;
+
+    /**
+     * This field stores the entry of every player with an attempt in the window.
+     */
+    private final Map<Player, Entry> entries = new HashMap<>();
+
+    /**
+     * This field stores the entries ordered by their best time in the window.
+     */
+    private final TreeSet<Entry> ranking = new TreeSet<>(Comparator.<Entry>comparingDouble(e -> e.best)
+            .thenComparingLong(e -> e.id));
+
+    /**
+     * This field stores, for each bucket in the window, the entries having an attempt within it.
+     */
+    private final TreeMap<Long, List<Entry>> buckets = new TreeMap<>();
+
+    /**
+     * This field stores the id given to the next entry, used to order entries with equal times.
+     */
+    private long nextId;
+
+    /**
+     * This field stores the latest bucket the leaderboard has advanced to.
+     */
+    private long currentBucket = Long.MIN_VALUE;
+
+    /**
+     * Default Constructor.
+     *
+     * @param bucketMillis  the length of a bucket, in milliseconds
+     * @param windowBuckets the number of buckets covered by the window
+     */
+    public Leaderboard(long bucketMillis, int windowBuckets) {
+        this.bucketMillis = bucketMillis;
+        this.windowBuckets = windowBuckets;
+    }
+
+    /**
+     * Records an attempt made by a <code>Player</code>.<br><br>
+     * Attempts older than the window, and attempts of a <code>Player</code> already removed from the database, are
+     * ignored. The removal is checked under the leaderboard's lock, which <code>remove()</code> takes after the
+     * <code>Player</code> is marked, so a game handled late on another thread cannot rank it again.
+     *
+     * @param player    the <code>Player</code> who made the attempt
+     * @param time      the reaction time achieved, in seconds
+     * @param timestamp the time the attempt was made, in epoch milliseconds
+     */
+    public synchronized void record(Player player, double time, long timestamp) {
+        if (player.isRemoved()) {
+            return;
+        }
+        long bucket = Math.floorDiv(timestamp, bucketMillis);
+        advance(Math.max(bucket, currentBucket));
+        if (bucket <= currentBucket - windowBuckets) {
+            return;
+        }
+        Entry entry = entries.get(player);
+        if (entry == null) {
+            entry = new Entry(player, nextId++, windowBuckets);
+            entries.put(player, entry);
+        } else {
+            ranking.remove(entry);
+        }
+        if (entry.put(bucket, time)) {
+            buckets.computeIfAbsent(bucket, key -> new ArrayList<>()).add(entry);
+        }
+        ranking.add(entry);
+    }
+
+    /**
+     * Retrieves the fastest <code>Player</code>s within the window ending at the given time.
+     *
+     * @param k   the maximum number of <code>Player</code>s to be returned
+     * @param now the current time in epoch milliseconds
+     * @return a <code>List</code> of at most <code>k</code> <code>Standing</code>s, from fastest to slowest
+     */
+    public synchronized List<Standing> top(int k, long now) {
+        advance(Math.floorDiv(now, bucketMillis));
+        List<Standing> result = new ArrayList<>(Math.min(k, ranking.size()));
+        Iterator<Entry> it = ranking.iterator();
+        while (it.hasNext() && result.size() < k) {
+            Entry entry = it.next();
+            result.add(new Standing(entry.player, entry.best));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Retrieves the best time of a <code>Player</code> within the window ending at the given time.
+     *
+     * @param player the <code>Player</code> to be looked up
+     * @param now    the current time in epoch milliseconds
+     * @return the best time in seconds, or <code>NaN</code> if the player has no attempt within the window
+     */
+    public synchronized double getBest(Player player, long now) {
+        advance(Math.floorDiv(now, bucketMillis));
+        Entry entry = entries.get(player);
+        return entry == null ? Double.NaN : entry.best;
+    }
+
+    /**
+     * Removes a <code>Player</code> from the leaderboard, such as when it is deleted from the database.<br><br>
+     * The entry of the <code>Player</code> is marked as removed rather than searched for in the buckets, which skip it
+     * as they expire.
+     *
+     * @param player the <code>Player</code> to be removed
+     */
+    public synchronized void remove(Player player) {
+        Entry entry = entries.remove(player);
+        if (entry != null) {
+            ranking.remove(entry);
+            entry.removed = true;
+        }
+    }
+
+    /**
+     * Removes many <code>Player</code>s from the leaderboard at once, such as after a bulk delete, taking the
+     * leaderboard's lock once.
+     *
+     * @param players the <code>Player</code>s to be removed
+     *
+     * @see #remove(Player)
+     */
+    public synchronized void removeAll(Collection<Player> players) {
+        for (Player player : players) {
+            remove(player);
+        }
+    }
+
+    /**
+     * Moves the window forward to end at the given bucket, expiring every bucket falling out of it.
+     *
+     * @param bucket the latest bucket of the window
+     */
+    private void advance(long bucket) {
+        if (bucket <= currentBucket) {
+            return;
+        }
+        currentBucket = bucket;
+        long oldest = bucket - windowBuckets + 1;
+        while (!buckets.isEmpty() && buckets.firstKey() < oldest) {
+            for (Entry entry : buckets.pollFirstEntry().getValue()) {
+                if (entry.removed) {
+                    continue;
+                }
+                ranking.remove(entry);
+                if (entry.expire(oldest)) {
+                    ranking.add(entry);
+                } else {
+                    entries.remove(entry.player);
+                }
+            }
+        }
+    }
+
+    /**
+     * This class represents a <code>Player</code>'s position on a leaderboard.
+     *
+     * @author Samuel A. Kosasih
+     */
+    public static class Standing {
+
+        /**
+         * This field stores the <code>Player</code>.
+         */
+        private final Player player;
+
+        /**
+         * This field stores the <code>Player</code>'s best time within the window.
+         */
+        private final double time;
+
+        /**
+         * Default Constructor.
+         *
+         * @param player the <code>Player</code>
+         * @param time   the <code>Player</code>'s best time within the window, in seconds
+         */
+        Standing(Player player, double time) {
+            this.player = player;
+            this.time = time;
+        }
+
+        /**
+         * Retrieves the <code>Player</code>.
+         *
+         * @return the <code>Player</code>
+         */
+        public Player getPlayer() {
+            return player;
+        }
+
+        /**
+         * Retrieves the <code>Player</code>'s best time within the window.
+         *
+         * @return the best time in seconds
+         */
+        public double getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * This private static inner class stores the per-bucket minima of a single <code>Player</code>, as a ring of
+     * at most <code>windowBuckets</code> buckets ordered from oldest to newest.
+     */
+    private static class Entry {
+
+        /**
+         * This field stores the <code>Player</code> of the entry.
+         */
+        private final Player player;
+
+        /**
+         * This field stores the unique id of the entry, ordering entries with equal best times.
+         */
+        private final long id;
+
+        /**
+         * This field stores the bucket of every slot of the ring.
+         */
+        private final long[] bucketIds;
+
+        /**
+         * This field stores the fastest time of every slot of the ring.
+         */
+        private final double[] minima;
+
+        /**
+         * This field stores the slot of the oldest bucket of the ring.
+         */
+        private int head;
+
+        /**
+         * This field stores the number of buckets in the ring.
+         */
+        private int count;
+
+        /**
+         * This field stores the best time of the <code>Player</code> within the window, or <code>NaN</code> if the
+         * ring is empty.
+         */
+        private double best = Double.NaN;
+
+        /**
+         * This field indicates whether the <code>Player</code> was removed from the leaderboard, so that the buckets
+         * still listing the entry skip it.
+         */
+        private boolean removed;
+
+        /**
+         * Default Constructor.
+         *
+         * @param player   the <code>Player</code> of the entry
+         * @param id       the unique id of the entry
+         * @param capacity the number of buckets in the window
+         */
+        Entry(Player player, long id, int capacity) {
+            this.player = player;
+            this.id = id;
+            this.bucketIds = new long[capacity];
+            this.minima = new double[capacity];
+        }
+
+        /**
+         * Records a time in the given bucket, which must not be older than the entry's newest bucket's window.
+         *
+         * @param bucket the bucket of the attempt
+         * @param time   the reaction time achieved
+         * @return <code>true</code> if the bucket is new to this entry
+         */
+        boolean put(long bucket, double time) {
+            boolean added = false;
+            int slot = -1;
+            for (int i = 0; i < count; i++) {
+                int index = (head + i) % minima.length;
+                if (bucketIds[index] == bucket) {
+                    slot = index;
+                    break;
+                }
+            }
+            if (slot < 0) {
+                slot = (head + count) % minima.length;
+                if (count == minima.length) {
+                    head = (head + 1) % minima.length;
+                } else {
+                    count++;
+                }
+                bucketIds[slot] = bucket;
+                minima[slot] = time;
+                added = true;
+            } else {
+                minima[slot] = Math.min(minima[slot], time);
+            }
+            best = Double.isNaN(best) ? time : Math.min(best, time);
+            return added;
+        }
+
+        /**
+         * Drops every bucket older than the given bucket and recomputes the best time.
+         *
+         * @param oldest the oldest bucket still within the window
+         * @return <code>true</code> if the entry still has a bucket within the window
+         */
+        boolean expire(long oldest) {
+            int kept = 0;
+            long[] ids = new long[count];
+            double[] mins = new double[count];
+            for (int i = 0; i < count; i++) {
+                int index = (head + i) % minima.length;
+                if (bucketIds[index] >= oldest) {
+                    ids[kept] = bucketIds[index];
+                    mins[kept++] = minima[index];
+                }
+            }
+            head = 0;
+            count = kept;
+            best = Double.NaN;
+            for (int i = 0; i < kept; i++) {
+                bucketIds[i] = ids[i];
+                minima[i] = mins[i];
+                best = Double.isNaN(best) ? mins[i] : Math.min(best, mins[i]);
+            }
+            return kept > 0;
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package game;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class groups the daily, weekly and monthly <code>Leaderboard</code>s of a <code>PlayerManager</code>.<br><br>
+ * The daily leaderboard covers the last 24 hours in hourly buckets, while the weekly and monthly leaderboards cover
+ * the last 7 and 30 days in daily buckets.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see Leaderboard
+ * @see PlayerManager#getLeaderboards()
+ */
+public class Leaderboards {
+
+    /**
+     * The length of an hour, in milliseconds.
+     */
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    /**
+     * The length of a day, in milliseconds.
+     */
+    private static final long DAY = 24 * HOUR;
+
+    /**
+     * The leaderboard of the last 24 hours.
+     */
+    private final Leaderboard daily = new Leaderboard(HOUR, 24);
+
+    /**
+     * The leaderboard of the last 7 days.
+     */
+    private final Leaderboard weekly = new Leaderboard(DAY, 7);
+
+    /**
+     * The leaderboard of the last 30 days.
+     */
+    private final Leaderboard monthly = new Leaderboard(DAY, 30);
+
+    /**
+     * Builds the leaderboards from the attempt histories of the given <code>Player</code>s.<br><br>
+     * Only the part of each history within the longest window is read, using the history's block summaries to
+     * skip older attempts.
+     *
+     * @param players the <code>Player</code>s to be ranked
+     * @param now     the current time in epoch milliseconds
+     * @return the new <code>Leaderboards</code>
+     */
+    public static Leaderboards build(Iterable<Player> players, long now) {
+        Leaderboards leaderboards = new Leaderboards();
+        for (Player p : players) {
+            leaderboards.record(p, p.getHistory(), now);
+        }
+        return leaderboards;
+    }
+
+    /**
+     * Records the attempts of a history made within the longest window on every leaderboard, such as those merged
+     * into a <code>Player</code> from another database.<br><br>
+     * Uses the history's block summaries to skip older attempts.
+     *
+     * @param player  the <code>Player</code> who made the attempts
+     * @param history the attempts to be recorded
+     * @param now     the current time in epoch milliseconds
+     */
+    public void record(Player player, AttemptHistory history, long now) {
+        history.forEach(now - 30 * DAY, Long.MAX_VALUE, (timestamp, time) -> record(player, time, timestamp));
+    }
+
+    /**
+     * Records an attempt on every leaderboard.
+     *
+     * @param player    the <code>Player</code> who made the attempt
+     * @param time      the reaction time achieved, in seconds
+     * @param timestamp the time the attempt was made, in epoch milliseconds
+     */
+    public void record(Player player, double time, long timestamp) {
+        daily.record(player, time, timestamp);
+        weekly.record(player, time, timestamp);
+        monthly.record(player, time, timestamp);
+    }
+
+    /**
+     * Removes a <code>Player</code> from every leaderboard.
+     *
+     * @param player the <code>Player</code> to be removed
+     */
+    public void remove(Player player) {
+        daily.remove(player);
+        weekly.remove(player);
+        monthly.remove(player);
+    }
+
+    /**
+     * Removes many <code>Player</code>s from every leaderboard at once.
+     *
+     * @param players the <code>Player</code>s to be removed
+     */
+    public void removeAll(Collection<Player> players) {
+        daily.removeAll(players);
+        weekly.removeAll(players);
+        monthly.removeAll(players);
+    }
+
+    /**
+     * Retrieves the fastest <code>Player</code>s of the last 24 hours.
+     *
+     * @param k the maximum number of <code>Player</code>s to be returned
+     * @return the <code>Standing</code>s from fastest to slowest
+     */
+    public List<Leaderboard.Standing> daily(int k) {
+        return daily.top(k, System.currentTimeMillis());
+    }
+
+    /**
+     * Retrieves the fastest <code>Player</code>s of the last 7 days.
+     *
+     * @param k the maximum number of <code>Player</code>s to be returned
+     * @return the <code>Standing</code>s from fastest to slowest
+     */
+    public List<Leaderboard.Standing> weekly(int k) {
+        return weekly.top(k, System.currentTimeMillis());
+    }
+
+    /**
+     * Retrieves the fastest <code>Player</code>s of the last 30 days.
+     *
+     * @param k the maximum number of <code>Player</code>s to be returned
+     * @return the <code>Standing</code>s from fastest to slowest
+     */
+    public List<Leaderboard.Standing> monthly(int k) {
+        return monthly.top(k, System.currentTimeMillis());
+    }
+
+}
@@ -5,21 +5,29 @@ import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
 
 /**
  * This class serves as the controller class for <code>mainWindow.fxml</code>.<br><br>
@@ -30,6 +38,13 @@ import java.util.TimerTask;
  * selected, the class serves only to the <code>selectedPlayer</code>, until a new <code>Player</code> is selected from
  * the <code>selectNewPlayer()</code> method by clicking on <code>selectButton</code>. All updates will be handled by
  * calling methods from a <code>PlayerManager</code> object stored in the class.<br><br>
+ * Clicking on <code>headToHeadButton</code> switches to head-to-head rounds, in which several <code>Player</code>s
+ * react to the same lights, each with their own key, as held by a <code>HeadToHeadRound</code>. Selecting a
+ * <code>Player</code> switches back.<br><br>
+ * Selecting <code>lowLatencyButton</code>, or setting the <code>reacxion.lowLatency</code> system property, plays the
+ * games on a full-screen <code>StimulusScreen</code> instead of the <code>lights</code> and <code>clickArea</code>,
+ * with a single <code>Canvas</code> drawn in place of the nodes of the main window. The main window is only updated
+ * once the result is dismissed, so that no CSS or layout work runs in the frames of the game.<br><br>
  * Time-related functionalities are served using the <code>Timer</code> class, and <code>SubTimer</code> inner class
  * which extends <code>TimerTask</code>.<br><br>
  * <b>Note that any changes made using the <code>PlayerManager</code> field may not be saved if the application crashes</b>
@@ -62,6 +77,28 @@ public class MainController {
     @FXML
     private Button exitButton;
 
+    /**
+     * This field refers to the <code>Button</code> located in our <code>ToolBar</code>.<br><br>
+     * Functions as a launcher to our <code>statsDialog.fxml</code> dialog to view statistics of all players.
+     */
+    @FXML
+    private Button statsButton;
+
+    /**
+     * This field refers to the <code>Button</code> located in our <code>ToolBar</code>.<br><br>
+     * Functions as a launcher to our <code>headToHeadDialog.fxml</code> dialog to choose the players of head-to-head
+     * rounds.
+     */
+    @FXML
+    private Button headToHeadButton;
+
+    /**
+     * This field refers to the <code>ToggleButton</code> located in our <code>ToolBar</code>.<br><br>
+     * Switches the low-latency presentation mode on and off.
+     */
+    @FXML
+    private ToggleButton lowLatencyButton;
+
     /**
      * This field refers to the <code>Label</code> located at the <code>bottom</code> position of our
      * <code>mainPane</code><br><br>
@@ -125,6 +162,17 @@ public class MainController {
      */
     private PlayerManager playerManager;
 
+    /**
+     * This field is a <code>HistoryCompactor</code>, used to roll up old attempt data in the background.
+     */
+    private HistoryCompactor compactor;
+
+    /**
+     * This field is a <code>RoundEventBus</code>, used to hand the results of each game to consumers running on
+     * their own threads, away from the game.
+     */
+    private RoundEventBus eventBus;
+
     /**
      * This field is a <code>Player</code> object variable used to store the currently-selected <code>Player</code>.
      */
@@ -147,12 +195,123 @@ public class MainController {
      */
     private EventHandler<KeyEvent> handleEnterFail;
 
+    /**
+     * This field is an <code>EventHandler</code> of type <code>KeyEvent</code>, filtering every key pressed in the
+     * scene during a head-to-head round, so that the key of every <code>Player</code> is timestamped before anything
+     * else handles it.
+     */
+    private EventHandler<KeyEvent> handleHeadToHeadKey;
+
+    /**
+     * This field stores the head-to-head round being played, or <code>null</code> if the games are played by the
+     * <code>selectedPlayer</code> alone.
+     */
+    private HeadToHeadRound headToHead;
+
+    /**
+     * This field indicates whether a head-to-head round has started and is not over yet.
+     */
+    private boolean headToHeadPlaying;
+
+    /**
+     * The time a head-to-head round waits for the players who have not reacted after the lights turn green, in
+     * milliseconds.
+     */
+    private static final long HEAD_TO_HEAD_TIMEOUT = 3000;
+
+    /**
+     * This field indicates whether the games are played on the <code>screen</code>, the low-latency presentation
+     * mode.
+     */
+    private boolean lowLatency;
+
+    /**
+     * This field stores the full-screen <code>StimulusScreen</code> of the low-latency presentation mode, created
+     * for its first game.
+     */
+    private StimulusScreen screen;
+
+    /**
+     * The phases of a game played on the <code>screen</code>.
+     */
+    private enum Phase {
+        WAITING, GO, RESULT
+    }
+
+    /**
+     * This field stores the phase of the game played on the <code>screen</code>.
+     */
+    private Phase phase = Phase.RESULT;
+
+    /**
+     * This field stores the update of the main window left until the result shown on the <code>screen</code> is
+     * dismissed, or <code>null</code>.
+     */
+    private Runnable dismissal;
+
+    /**
+     * This field is an <code>EventHandler</code> of type <code>KeyEvent</code> to handle the keys pressed on the
+     * <code>screen</code>, timestamping them before anything else.
+     */
+    private EventHandler<KeyEvent> handleScreenKey;
+
+    /**
+     * This field is an <code>EventHandler</code> of type <code>MouseEvent</code> to handle the mouse clicks on the
+     * <code>screen</code>, timestamping them before anything else. As on the <code>clickArea</code>, the reaction is
+     * taken when the click completes, so both presentation modes time the same event.
+     */
+    private EventHandler<MouseEvent> handleScreenClick;
+
     /**
      * This field stores a <code>Long</code> value to store the system's time at the point the
      * <code>run()</code> method is called and the <code>lights</code> turn green.
      */
     private long start;
 
+    /**
+     * This field stores the reaction time of the last game, in seconds.
+     */
+    private double result;
+
+    /**
+     * This field indicates whether the last game set a new best time.
+     */
+    private boolean newBest;
+
+    /**
+     * This field stores a fixed delay before the <code>lights</code> turn green, in milliseconds, or a negative value
+     * for a random delay of 2 to 10 seconds.
+     */
+    private long onsetDelay = -1;
+
+    /**
+     * This field stores a listener notified with <code>start</code> whenever the <code>lights</code> turn green, or
+     * <code>null</code>.
+     */
+    private LongConsumer onsetListener;
+
+    /**
+     * Default Constructor.<br><br>
+     * Used by the <code>FXMLLoader</code>. The <code>PlayerManager</code> is created, and a <code>Player</code>
+     * selected, once the controller is initialized.
+     */
+    public MainController() {
+        this(null, null);
+    }
+
+    /**
+     * Constructs a controller with a given <code>PlayerManager</code> and <code>Player</code>, for use with
+     * <code>FXMLLoader.setControllerFactory()</code> by tools driving the game without a user, such as
+     * <code>TimingBenchmark</code>.
+     *
+     * @param playerManager the <code>PlayerManager</code> to be used, or <code>null</code> for the default database
+     * @param player        the <code>Player</code> to play as, or <code>null</code> to ask the user
+     */
+    MainController(PlayerManager playerManager, Player player) {
+        this.playerManager = playerManager;
+        this.selectedPlayer = player;
+    }
+
     /**
      * Initializes most of the UI components to provide the user with interactions.<br><br>
      * This method is first called when the <code>Main</code> class loads the <code>mainWindow.fxml</code>
@@ -162,9 +321,34 @@ public class MainController {
      * @see Main
      */
     public void initialize() {
-        playerManager = new PlayerManager();
+        if (playerManager == null) {
+            playerManager = new PlayerManager();
+        }
+        compactor = new HistoryCompactor(playerManager, RetentionPolicy.DEFAULT);
+        compactor.start(1, TimeUnit.HOURS);
+        eventBus = new RoundEventBus(1024);
+        eventBus.addHandler("leaderboards", playerManager.leaderboardHandler());
+        eventBus.addHandler("autosave", playerManager.autosaveHandler(60_000));
+        eventBus.addHandler("publisher", playerManager.publisherHandler());
+        eventBus.addHandler("index", playerManager.indexHandler());
+        eventBus.addHandler("table", playerManager.tableHandler());
+        playerManager.setEventBus(eventBus);
+        eventBus.start();
+        playerManager.watch();
 
-        selectNewPlayer();
+        int warmUpRounds = Integer.getInteger("reacxion.warmup", 20_000);
+        if (warmUpRounds > 0) {
+            Thread warmUp = new Thread(() -> warmUp(warmUpRounds), "warm-up");
+            warmUp.setDaemon(true);
+            warmUp.setPriority(Thread.MIN_PRIORITY);
+            warmUp.start();
+        }
+
+        if (selectedPlayer == null) {
+            selectNewPlayer();
+        } else {
+            statusLabel.setText("Selected Player: " + selectedPlayer.getName());
+        }
 
         lights = new Rectangle();
         lights.setWidth(350);
@@ -203,6 +387,14 @@ public class MainController {
 
         selectButton.setOnAction(actionEvent -> selectNewPlayer());
 
+        statsButton.setOnAction(actionEvent -> showStats());
+
+        headToHeadButton.setOnAction(actionEvent -> selectHeadToHead());
+
+        lowLatency = Boolean.getBoolean("reacxion.lowLatency");
+        lowLatencyButton.setSelected(lowLatency);
+        lowLatencyButton.setOnAction(actionEvent -> setLowLatency(lowLatencyButton.isSelected()));
+
         exitButton.setOnAction(actionEvent -> handleShutDown());
 
         initialized = true;
@@ -221,6 +413,29 @@ public class MainController {
             }
         };
 
+        handleHeadToHeadKey = keyEvent -> {
+            long now = System.nanoTime();
+            HeadToHeadRound round = headToHead;
+            if (round != null && round.owns(keyEvent.getCode())) {
+                keyEvent.consume();
+                if (round.capture(keyEvent.getCode(), now) && headToHeadPlaying) {
+                    finishHeadToHead();
+                }
+            }
+        };
+
+        handleScreenKey = keyEvent -> {
+            long now = System.nanoTime();
+            KeyCode code = keyEvent.getCode();
+            if (code == KeyCode.ENTER || code == KeyCode.SPACE
+                    || (code == KeyCode.ESCAPE && phase == Phase.RESULT)) {
+                keyEvent.consume();
+                react(now);
+            }
+        };
+
+        handleScreenClick = mouseEvent -> react(System.nanoTime());
+
         before();
     }
 
@@ -230,16 +445,27 @@ public class MainController {
      * the <code>timer</code>'s schedule.
      */
     private void before() {
+        if (dismissal != null || onScreen()) {
+            dismissScreen();
+        }
         lights.setFill(Color.ORANGERED);
         clickArea.setFill(Color.TRANSPARENT);
         instructionsLabel.setText("Click on the area below when the lights turn green");
         startButton.setText("Okay!");
         timeBox.setVisible(false);
+        if (headToHead != null) {
+            beforeHeadToHead();
+            return;
+        }
         startButton.setOnAction(actionEvent -> {
             timer = new Timer(true);
-            int delay = getRandInt();
-            timer.schedule(new StartGame(), delay * 1000L);
+            selectedPlayer.reserveAttempt();
+            long delay = onsetDelay >= 0 ? onsetDelay : getRandInt() * 1000L;
+            timer.schedule(new StartGame(), delay);
             selectButton.setDisable(true);
+            statsButton.setDisable(true);
+            headToHeadButton.setDisable(true);
+            lowLatencyButton.setDisable(true);
             exitButton.setDisable(true);
             clickHereLabel.setVisible(true);
             instructionsLabel.setText("Get Ready...");
@@ -248,9 +474,107 @@ public class MainController {
             clickArea.requestFocus();
             clickArea.addEventHandler(KeyEvent.KEY_PRESSED, handleEnterFail);
             clickArea.setOnMouseClicked(mouseEvent -> fail());
+            showScreen("Get Ready...", "Click or press ENTER when the screen turns green");
+        });
+    }
+
+    /**
+     * Builds and prepares the UI for a head-to-head round.<br><br>
+     * Here, the <code>startButton</code> will start the round, installing <code>handleHeadToHeadKey</code> on the
+     * scene, so that every key is timestamped as soon as it reaches the scene, whichever node has the focus.
+     */
+    private void beforeHeadToHead() {
+        StringBuilder keys = new StringBuilder();
+        for (int i = 0; i < headToHead.size(); i++) {
+            keys.append(i == 0 ? "" : ",  ").append(headToHead.getKey(i).getName()).append(": ")
+                    .append(headToHead.getPlayer(i).getName());
+        }
+        instructionsLabel.setText("Press your key when the lights turn green\n" + keys);
+        startButton.setText("Okay!");
+        startButton.setOnAction(actionEvent -> {
+            timer = new Timer(true);
+            headToHead.reset();
+            headToHeadPlaying = true;
+            long delay = onsetDelay >= 0 ? onsetDelay : getRandInt() * 1000L;
+            timer.schedule(new StartGame(), delay);
+            selectButton.setDisable(true);
+            statsButton.setDisable(true);
+            headToHeadButton.setDisable(true);
+            lowLatencyButton.setDisable(true);
+            exitButton.setDisable(true);
+            instructionsLabel.setText("Get Ready...");
+            startButton.setVisible(false);
+            clickArea.setDisable(true);
+            centerPane.requestFocus();
+            showScreen("Get Ready...", "Press your key when the screen turns green:  " + keys);
+            gameScene().addEventFilter(KeyEvent.KEY_PRESSED, handleHeadToHeadKey);
         });
     }
 
+    /**
+     * Ends a head-to-head round, once every player has pressed their key, or the time to react has run out.<br><br>
+     * The results are recorded at once, then shown from the fastest to the slowest.
+     *
+     * @see HeadToHeadRound#commit(PlayerManager)
+     */
+    private void finishHeadToHead() {
+        headToHeadPlaying = false;
+        timer.cancel();
+        gameScene().removeEventFilter(KeyEvent.KEY_PRESSED, handleHeadToHeadKey);
+        boolean[] newBests = headToHead.commit(playerManager);
+
+        Integer[] order = new Integer[headToHead.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> {
+            double time = headToHead.getTime(i);
+            return Double.isNaN(time) ? Double.MAX_VALUE : time;
+        }));
+        StringBuilder standings = new StringBuilder();
+        for (int i = 0; i < order.length; i++) {
+            int slot = order[i];
+            double time = headToHead.getTime(slot);
+            standings.append(i == 0 ? "" : "\n").append(headToHead.getPlayer(slot).getName()).append(": ")
+                    .append(headToHead.isEarly(slot) ? "too early"
+                            : Double.isNaN(time) ? "no reaction"
+                            : df.format(time) + (newBests[slot] ? " (New Best Time!)" : ""));
+        }
+        double fastest = headToHead.getTime(order[0]);
+        String winner = Double.isNaN(fastest) ? "Nobody wins this round!"
+                : headToHead.getPlayer(order[0]).getName() + " wins!";
+        if (onScreen()) {
+            phase = Phase.RESULT;
+            screen.draw(Color.DIMGRAY, winner, standings.toString().replace("\n", ",  ")
+                    + "   (press ENTER to continue)");
+            dismissal = () -> showHeadToHeadResult(winner, fastest, standings.toString());
+            return;
+        }
+        showHeadToHeadResult(winner, fastest, standings.toString());
+    }
+
+    /**
+     * Builds the UI to display the results of a head-to-head round.
+     *
+     * @param winner    the message announcing the winner
+     * @param fastest   the fastest reaction time, or <code>NaN</code> if nobody reacted
+     * @param standings the result of every player, one per line, from the fastest to the slowest
+     */
+    private void showHeadToHeadResult(String winner, double fastest, String standings) {
+        if (!Double.isNaN(fastest)) {
+            timeLabel.setText(df.format(fastest));
+            timeBox.setVisible(true);
+        }
+        instructionsLabel.setText(winner + "\n" + standings);
+        clickArea.setDisable(false);
+        selectButton.setDisable(false);
+        statsButton.setDisable(false);
+        headToHeadButton.setDisable(false);
+        lowLatencyButton.setDisable(false);
+        exitButton.setDisable(false);
+        after();
+    }
+
     /**
      * Builds the UI to display an indication that the user has failed the game.<br><br>
      * This method is only called whenever the user interacts with the <code>clickArea</code> too early.
@@ -259,7 +583,25 @@ public class MainController {
      */
     private void fail() {
         timer.cancel();
+        playerManager.recordFailure(selectedPlayer);
+        if (onScreen()) {
+            phase = Phase.RESULT;
+            screen.draw(Color.BLACK, "Too early!", "Don't click before the screen turns green"
+                    + "   (press ENTER to continue)");
+            dismissal = this::showFailure;
+            return;
+        }
+        showFailure();
+    }
+
+    /**
+     * Builds the UI to display an indication that the user has failed the game.
+     */
+    private void showFailure() {
         selectButton.setDisable(false);
+        statsButton.setDisable(false);
+        headToHeadButton.setDisable(false);
+        lowLatencyButton.setDisable(false);
         exitButton.setDisable(false);
         instructionsLabel.setText("Don't click before the light turns green!");
         clickHereLabel.setVisible(false);
@@ -289,6 +631,59 @@ public class MainController {
         System.out.println("After method called");
     }
 
+    /**
+     * Resets the UI and starts a new game, as if the user had clicked on <code>startButton</code>.<br><br>
+     * Must be called on the JavaFX Application Thread.
+     */
+    void startRound() {
+        before();
+        startButton.fire();
+    }
+
+    /**
+     * Sets a fixed delay before the <code>lights</code> turn green, replacing the random delay for the following
+     * games.
+     *
+     * @param millis the delay in milliseconds, or a negative value for a random delay
+     */
+    void setOnsetDelay(long millis) {
+        onsetDelay = millis;
+    }
+
+    /**
+     * Sets a listener notified on the JavaFX Application Thread whenever the <code>lights</code> turn green, once
+     * the <code>clickArea</code> is ready to receive the user's reaction.
+     *
+     * @param listener the listener, receiving the <code>System.nanoTime()</code> the game's timing starts from, or
+     *                 <code>null</code>
+     */
+    void setOnsetListener(LongConsumer listener) {
+        onsetListener = listener;
+    }
+
+    /**
+     * Switches to head-to-head rounds between the players of the given round, or back to games played by the
+     * <code>selectedPlayer</code> alone.<br><br>
+     * Must be called on the JavaFX Application Thread, between games.
+     *
+     * @param round the round to be played, or <code>null</code> to play alone
+     */
+    void setHeadToHead(HeadToHeadRound round) {
+        headToHead = round;
+        if (round == null) {
+            statusLabel.setText("Selected Player: " + selectedPlayer.getName());
+        } else {
+            StringBuilder names = new StringBuilder("Head to Head: ");
+            for (int i = 0; i < round.size(); i++) {
+                names.append(i == 0 ? "" : " vs ").append(round.getPlayer(i).getName());
+            }
+            statusLabel.setText(names.toString());
+        }
+        if (initialized) {
+            before();
+        }
+    }
+
     /**
      * Generates an <code>Integer</code> value used to set the <code>timer</code> delay.
      *
@@ -328,6 +723,7 @@ public class MainController {
                 Player p = controller.processResults();
                 if (p != null) {
                     selectedPlayer = p;
+                    headToHead = null;
                     statusLabel.setText("Selected Player: " + p.getName());
                     if (initialized) {
                         before();
@@ -342,17 +738,79 @@ public class MainController {
         }
     }
 
+    /**
+     * Launches the <code>headToHeadDialog.fxml</code> file to allow the users to choose the <code>Player</code>s of
+     * head-to-head rounds.
+     *
+     * @see Dialog
+     * @see HeadToHeadDialogController
+     */
+    private void selectHeadToHead() {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Head to Head");
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("headToHeadDialog.fxml"));
+        try {
+            dialog.getDialogPane().setContent(loader.load());
+        } catch (IOException e) {
+            showDialogError();
+            e.printStackTrace();
+            return;
+        }
+        HeadToHeadDialogController controller = loader.getController();
+        controller.initialize(playerManager, selectedPlayer);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        Optional<ButtonType> result = dialog.showAndWait();
+        if (result.isPresent() && result.get().equals(ButtonType.OK)) {
+            HeadToHeadRound round = controller.processResults();
+            if (round == null) {
+                Alert alert = new Alert(Alert.AlertType.WARNING);
+                alert.setTitle("Not enough players");
+                alert.setHeaderText("Please choose at least two different players.");
+                alert.showAndWait();
+                return;
+            }
+            setHeadToHead(round);
+        }
+    }
+
+    /**
+     * Launches the <code>statsDialog.fxml</code> file to display statistics of all <code>Player</code>s.
+     *
+     * @see Dialog
+     * @see StatsDialogController
+     */
+    private void showStats() {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Statistics");
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("statsDialog.fxml"));
+        try {
+            dialog.getDialogPane().setContent(loader.load());
+        } catch (IOException e) {
+            showDialogError();
+            e.printStackTrace();
+            return;
+        }
+        StatsDialogController controller = loader.getController();
+        controller.initialize(playerManager, selectedPlayer);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.OK);
+        dialog.showAndWait();
+    }
+
     /**
      * Handles the exit event of the application.<br><br>
      * Saves <code>Player</code> progress to the class' <code>PlayerManager</code>.
      */
     public void handleShutDown() {
+        compactor.stop();
+        eventBus.stop();
         if (!playerManager.save()) {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle("Application Error");
             alert.setContentText("Database not saved. Data may be lost. Please contact developer.");
             alert.showAndWait();
         }
+        playerManager.close();
         System.out.println("Application Exited");
         Platform.exit();
     }
@@ -370,23 +828,195 @@ public class MainController {
     }
 
     /**
-     * Handles all the operations to be run when the user interacts with <code>clickArea</code>.
+     * Handles all the operations to be run when the user interacts with <code>clickArea</code>.<br><br>
+     * The result is taken and recorded first, and only then formatted and shown, so that building the UI is not
+     * measured as part of the reaction.
      */
     public void handleClick() {
-        long timeElapsed = System.nanoTime() - start;
-        double converted = timeElapsed / 1000000000.0;
-        timeLabel.setText(df.format(converted));
+        commitResult(System.nanoTime() - start);
+        showResult();
+    }
+
+    /**
+     * Records the result of a game.<br><br>
+     * Allocates nothing once <code>Player.reserveAttempt()</code> has been called for the game and a
+     * <code>RoundEventBus</code> is set, so that recording a reaction cannot trigger a garbage collection.
+     *
+     * @param elapsed the time the user took to react, in nanoseconds
+     *
+     * @see Player#reserveAttempt()
+     */
+    void commitResult(long elapsed) {
+        result = elapsed / 1000000000.0;
+        newBest = playerManager.recordAttempt(selectedPlayer, result);
+    }
+
+    /**
+     * Builds the message reporting the result of the last game.
+     *
+     * @return the message to be shown in <code>instructionsLabel</code>
+     */
+    String describeResult() {
+        if (newBest) {
+            return "Congratulations. New Best Time: " + df.format(selectedPlayer.getBestTime());
+        }
+        return "Well done. (Best Time: " + df.format(selectedPlayer.getBestTime()) + ")";
+    }
+
+    /**
+     * Builds the UI to display the result of the last game, once it has been recorded.
+     */
+    private void showResult() {
+        timeLabel.setText(df.format(result));
         timeBox.setVisible(true);
         clickHereLabel.setVisible(false);
         selectButton.setDisable(false);
+        statsButton.setDisable(false);
+        headToHeadButton.setDisable(false);
+        lowLatencyButton.setDisable(false);
         exitButton.setDisable(false);
-        if (selectedPlayer.refreshBestTime(converted)) {
-            instructionsLabel.setText("Congratulations. New Best Time: " + df.format(selectedPlayer.getBestTime()));
-        } else {
-            instructionsLabel.setText("Well done. (Best Time: " + df.format(selectedPlayer.getBestTime()) + ")");
-        }
+        instructionsLabel.setText(describeResult());
         after();
+    }
 
+    /**
+     * Handles a key pressed or a mouse click on the <code>screen</code>, according to the phase of the game.<br><br>
+     * Pressing before the screen turns green fails the game, and pressing once it is green records the result,
+     * which is then drawn on the screen before anything else. Pressing again dismisses the result, which goes back
+     * to the main window and updates it. The keys of a head-to-head round are taken by
+     * <code>handleHeadToHeadKey</code> instead, so pressing during the round does nothing.
+     *
+     * @param now the <code>System.nanoTime()</code> the key was pressed or the click was made, taken before anything
+     *            else
+     */
+    private void react(long now) {
+        if (phase == Phase.RESULT) {
+            dismissScreen();
+        } else if (headToHead == null) {
+            if (phase == Phase.WAITING) {
+                fail();
+            } else {
+                commitResult(now - start);
+                phase = Phase.RESULT;
+                screen.draw(Color.DIMGRAY, df.format(result), describeResult() + "   (press ENTER to continue)");
+                dismissal = this::showResult;
+            }
+        }
+    }
+
+    /**
+     * Shows the <code>screen</code> for a game, if the low-latency presentation mode is on, creating it for the first
+     * game.
+     *
+     * @param headline the headline drawn until the screen turns green
+     * @param detail   the instructions drawn until the screen turns green
+     */
+    private void showScreen(String headline, String detail) {
+        if (!lowLatency) {
+            return;
+        }
+        if (screen == null) {
+            screen = new StimulusScreen(centerPane.getScene().getWindow(), handleScreenKey, handleScreenClick);
+        }
+        phase = Phase.WAITING;
+        screen.draw(Color.ORANGERED, headline, detail);
+        screen.show();
+    }
+
+    /**
+     * Hides the <code>screen</code>, and applies the update of the main window left until then.
+     */
+    private void dismissScreen() {
+        if (screen != null) {
+            screen.hide();
+        }
+        Runnable update = dismissal;
+        dismissal = null;
+        if (update != null) {
+            update.run();
+        }
+    }
+
+    /**
+     * Checks whether the current game is played on the <code>screen</code>.
+     *
+     * @return <code>true</code> if the <code>screen</code> is shown. Otherwise, it will return <code>false</code>.
+     */
+    private boolean onScreen() {
+        return screen != null && screen.isShowing();
+    }
+
+    /**
+     * Retrieves the <code>Scene</code> receiving the keys of the current game.
+     *
+     * @return the <code>Scene</code> of the <code>screen</code> if it is shown, or of the main window otherwise
+     */
+    private Scene gameScene() {
+        return onScreen() ? screen.getScene() : centerPane.getScene();
+    }
+
+    /**
+     * Switches the low-latency presentation mode on or off for the following games.<br><br>
+     * Must be called on the JavaFX Application Thread, between games.
+     *
+     * @param lowLatency <code>true</code> to play the games on a full-screen <code>StimulusScreen</code>, or
+     *                   <code>false</code> to play them in the main window
+     */
+    void setLowLatency(boolean lowLatency) {
+        this.lowLatency = lowLatency;
+        lowLatencyButton.setSelected(lowLatency);
+        if (!lowLatency && screen != null) {
+            dismissScreen();
+            screen = null;
+        }
+    }
+
+    /**
+     * Retrieves the node turning green when the game starts timing, for tools measuring when it reaches the screen,
+     * such as <code>TimingBenchmark</code>.
+     *
+     * @return the <code>Canvas</code> of the <code>screen</code> in the low-latency presentation mode, or the
+     * <code>lights</code> otherwise
+     */
+    Node getStimulus() {
+        return onScreen() ? screen.getCanvas() : lights;
+    }
+
+    /**
+     * Retrieves the node the user reacts on, and on which the result is first shown.
+     *
+     * @return the <code>Canvas</code> of the <code>screen</code> in the low-latency presentation mode, or the
+     * <code>clickArea</code> otherwise
+     */
+    Node getResponseArea() {
+        return onScreen() ? screen.getCanvas() : clickArea;
+    }
+
+    /**
+     * Plays the given number of games on a scratch <code>PlayerManager</code>, which is never saved, so that the
+     * code recording and describing a result is compiled before the first real game is measured.<br><br>
+     * Goes through <code>commitResult()</code> and <code>describeResult()</code> with a <code>RoundEventBus</code>
+     * set, as a real game does, leaving out only the UI. Run on a background thread by <code>initialize()</code>,
+     * for as many games as the <code>reacxion.warmup</code> system property, or 20000 if it is not set.
+     *
+     * @param rounds the number of games to be played
+     */
+    static void warmUp(int rounds) {
+        PlayerManager scratch = new PlayerManager(new FilePlayerStore(new File("warm-up.ser"), null));
+        Player player = scratch.getPlayer("Anonymous");
+        RoundEventBus bus = new RoundEventBus(1024);
+        bus.addHandler("warm-up", (event, sequence, endOfBatch) -> {
+        });
+        scratch.setEventBus(bus);
+        bus.start();
+        MainController controller = new MainController(scratch, player);
+        for (int i = 0; i < rounds; i++) {
+            player.reserveAttempt();
+            controller.commitResult(150_000_000L + i % 100 * 1_000_000L);
+            controller.describeResult();
+        }
+        bus.stop();
+        scratch.close();
     }
 
     /**
@@ -406,6 +1036,37 @@ public class MainController {
         @Override
         public void run() {
             Platform.runLater(() -> {
+                if (headToHead != null) {
+                    if (!headToHeadPlaying) {
+                        return;
+                    }
+                    if (onScreen()) {
+                        screen.drawOnset();
+                        phase = Phase.GO;
+                    } else {
+                        lights.setFill(Color.GREEN);
+                        instructionsLabel.setText("GO!");
+                    }
+                    start = System.nanoTime();
+                    headToHead.arm(start);
+                    timer.schedule(new EndHeadToHead(), HEAD_TO_HEAD_TIMEOUT);
+                    if (onsetListener != null) {
+                        onsetListener.accept(start);
+                    }
+                    return;
+                }
+                if (onScreen()) {
+                    if (phase != Phase.WAITING) {
+                        return;
+                    }
+                    screen.drawOnset();
+                    start = System.nanoTime();
+                    phase = Phase.GO;
+                    if (onsetListener != null) {
+                        onsetListener.accept(start);
+                    }
+                    return;
+                }
                 lights.setFill(Color.GREEN);
                 instructionsLabel.setText("CLICK NOW");
                 start = System.nanoTime();
@@ -413,12 +1074,36 @@ public class MainController {
                 clickArea.removeEventHandler(KeyEvent.KEY_PRESSED, handleEnterFail);
                 clickArea.addEventHandler(KeyEvent.KEY_PRESSED, handleEnter);
                 clickArea.setOnMouseClicked(mouseEvent -> handleClick());
+                if (onsetListener != null) {
+                    onsetListener.accept(start);
+                }
             });
         }
 
 
     }
 
-}
+    /**
+     * This class is a private inner class ending a head-to-head round once the players have had
+     * <code>HEAD_TO_HEAD_TIMEOUT</code> to react.
+     *
+     * @author Samuel A. Kosasih
+     * @see TimerTask
+     */
+    private class EndHeadToHead extends TimerTask {
 
+        /**
+         * Ends the round, unless every player has already reacted.
+         */
+        @Override
+        public void run() {
+            Platform.runLater(() -> {
+                if (headToHeadPlaying) {
+                    finishHeadToHead();
+                }
+            });
+        }
+
+    }
 
+}
@@ -1,6 +1,13 @@
 package game;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * This class represents a <code>Player</code> object.<br><br>
@@ -11,21 +18,146 @@ import java.io.Serializable;
  */
 public class Player implements Serializable {
 
+    /**
+     * Pinned serialization version, matching the one computed for the originally shipped class so that existing
+     * <code>players.ser</code> files remain readable as fields are added.
+     */
+    private static final long serialVersionUID = -6638221489285038277L;
+
+    /**
+     * The fields written for every player, as they were declared when the best time was a <code>Double</code>, so
+     * that existing <code>players.ser</code> files remain readable now that it is stored unboxed.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("bestTime", Double.class),
+            new ObjectStreamField("attempts", int.class),
+            new ObjectStreamField("history", AttemptHistory.class),
+            new ObjectStreamField("dailyRollups", TreeMap.class),
+            new ObjectStreamField("monthlyRollups", TreeMap.class),
+            new ObjectStreamField("registered", long.class),
+            new ObjectStreamField("lastPlayed", long.class),
+            new ObjectStreamField("revision", long.class)
+    };
+
     /**
      * This field stores the player's name as a <code>String</code>.
      */
     private String name;
 
     /**
-     * This field stores the player's best time as a <code>Double</code>.
+     * This field stores the player's best time in seconds, or <code>NaN</code> if the player has no attempts.<br><br>
+     * Stored unboxed, so that recording a new best time allocates nothing.
      */
-    private Double bestTime;
+    private double bestTime;
 
     /**
      * This field stores the player's total number of attempts as an <code>Integer</code>.
      */
     private int attempts;
 
+    /**
+     * This field stores every attempt made by the player as a compressed <code>AttemptHistory</code>.<br><br>
+     * May be <code>null</code> for players read from databases saved before histories were kept.
+     *
+     * @see AttemptHistory
+     */
+    private AttemptHistory history;
+
+    /**
+     * This field stores the aggregates of attempts older than the raw retention window, keyed by day.
+     *
+     * @see RetentionPolicy
+     */
+    private TreeMap<Long, AttemptRollup> dailyRollups;
+
+    /**
+     * This field stores the aggregates of attempts older than the daily retention window, keyed by month.
+     *
+     * @see RetentionPolicy
+     */
+    private TreeMap<Long, AttemptRollup> monthlyRollups;
+
+    /**
+     * This field stores the time the player was registered, in epoch milliseconds.<br><br>
+     * Is <code>0</code> for players read from databases saved before registration times were kept.
+     */
+    private long registered;
+
+    /**
+     * This field stores the time of the player's latest attempt, in epoch milliseconds.<br><br>
+     * Is <code>0</code> for players who never played, and for players read from databases saved before it was kept,
+     * until it is first read from their history.
+     */
+    private long lastPlayed;
+
+    /**
+     * This field stores the revision of the player's record in a shared database file, raised by every process that
+     * saves a change to the player.<br><br>
+     * Is <code>0</code> for players never saved by a process sharing the file.
+     *
+     * @see FilePlayerStore
+     */
+    private long revision;
+
+    /**
+     * This field stores a stamp that changes whenever the player's name, results or stored history change.<br><br>
+     * Not serialized; it only lets caches and stores within a session tell whether what they derived from or saved
+     * of the player is stale.
+     *
+     * @see SummaryCache
+     */
+    private transient volatile long version;
+
+    /**
+     * This field stores the value of the snapshot clock the player's current state was written at, or
+     * <code>0</code> if it was not changed since it was created or read.
+     *
+     * @see PlayerSnapshot
+     */
+    private transient volatile long writtenAt;
+
+    /**
+     * This field stores the frozen copies of the player's earlier states that open snapshots may still see, newest
+     * first, each linked to the next older one, or <code>null</code> if there are none.
+     *
+     * @see PlayerSnapshot
+     */
+    private transient Player older;
+
+    /**
+     * This field stores a frozen copy of the player's current state, handed to every snapshot reading the player
+     * until it changes, or <code>null</code> if none was made since the last change.<br><br>
+     * Kept after the snapshots are closed, so that saving a database again only copies the players that changed
+     * since, at the cost of one small copy per player read, sharing the history's blocks and the rollups.
+     *
+     * @see #asOf(long)
+     */
+    private transient Player frozen;
+
+    /**
+     * This field indicates whether <code>dailyRollups</code> and <code>monthlyRollups</code> are shared with a
+     * frozen copy of the player, and must be copied before they are changed.
+     */
+    private transient boolean rollupsShared;
+
+    /**
+     * This field stores the row of the player in the <code>PlayerTable</code> of its <code>PlayerManager</code>, as
+     * last found there.<br><br>
+     * Only a hint: the table checks it against the name of the row before using it.
+     *
+     * @see PlayerTable
+     */
+    transient int row;
+
+    /**
+     * This field indicates whether the player was removed from its database, so that games handled after the removal
+     * on the threads of a <code>RoundEventBus</code> do not rank it again.
+     *
+     * @see Leaderboard#record(Player, double, long)
+     */
+    private transient volatile boolean removed;
+
     /**
      * Default Constructor.
      *
@@ -33,8 +165,34 @@ public class Player implements Serializable {
      */
     public Player(String name) {
         this.name = name;
-        this.bestTime = null;
+        this.bestTime = Double.NaN;
         attempts = 0;
+        history = new AttemptHistory();
+        registered = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates a frozen copy of a player's current state, for the snapshots that may see it.<br><br>
+     * The copy shares the player's rollups, which the player copies before changing them, and the full blocks of
+     * its history, which are never changed.
+     *
+     * @param live the player, whose lock is held
+     *
+     * @see AttemptHistory#freeze()
+     */
+    private Player(Player live) {
+        this.name = live.name;
+        this.bestTime = live.bestTime;
+        this.attempts = live.attempts;
+        this.history = live.history == null ? null : live.history.freeze();
+        this.dailyRollups = live.dailyRollups;
+        this.monthlyRollups = live.monthlyRollups;
+        this.registered = live.registered;
+        this.lastPlayed = live.lastPlayed;
+        this.revision = live.revision;
+        this.version = live.version;
+        this.writtenAt = live.writtenAt;
+        live.rollupsShared = true;
     }
 
     /**
@@ -51,8 +209,10 @@ public class Player implements Serializable {
      *
      * @param name the new given name. Represented as a <code>String</code>.
      */
-    public void setName(String name) {
+    public synchronized void setName(String name) {
+        beginWrite();
         this.name = name;
+        version++;
     }
 
     /**
@@ -61,9 +221,88 @@ public class Player implements Serializable {
      * @return the player's best time as a <code>Double</code> value
      */
     public Double getBestTime() {
+        double best = bestTime;
+        return Double.isNaN(best) ? null : best;
+    }
+
+    /**
+     * Retrieves the player's best time without boxing it, such as for the columns of a <code>PlayerTable</code>.
+     *
+     * @return the player's best time in seconds, or <code>NaN</code> if the player has no attempts
+     */
+    double getBestTimeOrNaN() {
         return bestTime;
     }
 
+    /**
+     * Retrieves the time of the player's latest attempt.
+     *
+     * @return the time in epoch milliseconds, or <code>0</code> if the player never played or the time is unknown
+     */
+    public synchronized long getLastPlayed() {
+        if (lastPlayed == 0 && history != null && history.size() > 0) {
+            lastPlayed = history.lastTimestamp();
+        }
+        return lastPlayed;
+    }
+
+    /**
+     * Retrieves the revision of the player's record in a shared database file.
+     *
+     * @return the revision
+     */
+    long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Marks the player as removed from its database.<br><br>
+     * A removed player is never added back, as the database creates a new <code>Player</code> for a name that is
+     * taken again.
+     */
+    void markRemoved() {
+        removed = true;
+    }
+
+    /**
+     * Checks whether the player was removed from its database.
+     *
+     * @return <code>true</code> if <code>markRemoved()</code> was called. Otherwise, it will return
+     * <code>false</code>.
+     */
+    boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * Sets the revision of the player's record, as it is about to be saved to a shared database file.<br><br>
+     * Does not change the version stamp, as the player's data is left as it is.
+     *
+     * @param revision the new revision
+     */
+    synchronized void setRevision(long revision) {
+        beginWrite();
+        this.revision = revision;
+    }
+
+    /**
+     * Retrieves the version stamp of the player, which changes whenever its name, results or stored history change.
+     *
+     * @return the version stamp
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves the time the player was registered.
+     *
+     * @return the registration time in epoch milliseconds, or <code>0</code> if unknown
+     */
+    public long getRegistered() {
+        return registered;
+    }
+
     /**
      * Refreshes the player's best time with a new potentially faster time.
      *
@@ -72,18 +311,44 @@ public class Player implements Serializable {
      * better than the value stored in <code>bestTime</code>. Otherwise, it will return <code>false</code>.
      */
     public boolean refreshBestTime(double time) {
+        return refreshBestTime(time, System.currentTimeMillis());
+    }
+
+    /**
+     * Refreshes the player's best time with a new potentially faster time, recording it in the player's history
+     * with the given timestamp.<br><br>
+     * Allocates nothing if <code>reserveAttempt()</code> was called beforehand.
+     *
+     * @param time      the new time achieved by the user
+     * @param timestamp the time the attempt was made, in epoch milliseconds
+     * @return <code>true</code> if the new time is the user's first attempt, or if the new time is
+     * better than the value stored in <code>bestTime</code>. Otherwise, it will return <code>false</code>.
+     */
+    public synchronized boolean refreshBestTime(double time, long timestamp) {
+        beginWrite();
+        lastPlayed = Math.max(getLastPlayed(), timestamp);
+        getHistory().append(timestamp, time);
         increaseAttempts();
-        if (this.bestTime == null) {
-            this.bestTime = time;
-            return true;
-        }
-        if (time < this.bestTime) {
-            this.bestTime = time;
+        version++;
+        if (Double.isNaN(bestTime) || time < bestTime) {
+            bestTime = time;
             return true;
         }
         return false;
     }
 
+    /**
+     * Makes room in the player's history for the next attempt, and reads the time of the latest attempt from the
+     * history if it is not known yet, so that recording the attempt allocates nothing.<br><br>
+     * Called before a game starts.
+     *
+     * @see AttemptHistory#reserve(long)
+     */
+    public synchronized void reserveAttempt() {
+        getLastPlayed();
+        getHistory().reserve(System.currentTimeMillis());
+    }
+
     /**
      * Retrieves the number of attempts made by the user.
      *
@@ -93,6 +358,92 @@ public class Player implements Serializable {
         return attempts;
     }
 
+    /**
+     * Retrieves the history of attempts made by the user.<br><br>
+     * Players read from older databases start with an empty history, which only covers attempts made from then on.
+     *
+     * @return the player's <code>AttemptHistory</code>
+     */
+    public AttemptHistory getHistory() {
+        if (history == null) {
+            history = new AttemptHistory();
+        }
+        return history;
+    }
+
+    /**
+     * Moves attempt data that has aged out of its retention window into the next, coarser tier.<br><br>
+     * Attempts older than the raw window are rolled up per day, and daily rollups older than the daily window are
+     * rolled up per month. Called periodically by the <code>HistoryCompactor</code>.
+     *
+     * @param policy the <code>RetentionPolicy</code> describing the windows
+     * @param now    the current time in epoch milliseconds
+     *
+     * @see HistoryCompactor
+     */
+    synchronized void compact(RetentionPolicy policy, long now) {
+        if (!getHistory().hasBefore(policy.rawCutoff(now))
+                && (dailyRollups == null || dailyRollups.headMap(policy.dailyCutoff(now)).isEmpty())) {
+            return;
+        }
+        beginWrite();
+        ownRollups();
+        if (dailyRollups == null) {
+            dailyRollups = new TreeMap<>();
+        }
+        if (monthlyRollups == null) {
+            monthlyRollups = new TreeMap<>();
+        }
+        int raw = getHistory().size();
+        getHistory().removeBefore(policy.rawCutoff(now), (timestamp, time) ->
+                dailyRollups.computeIfAbsent(policy.day(timestamp), day -> new AttemptRollup()).add(time));
+        boolean changed = getHistory().size() != raw;
+        Iterator<Map.Entry<Long, AttemptRollup>> it =
+                dailyRollups.headMap(policy.dailyCutoff(now)).entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, AttemptRollup> entry = it.next();
+            monthlyRollups.computeIfAbsent(policy.month(entry.getKey()), month -> new AttemptRollup())
+                    .merge(entry.getValue());
+            it.remove();
+            changed = true;
+        }
+        if (changed) {
+            version++;
+        }
+    }
+
+    /**
+     * Aggregates the attempts made within the given time range, combining every retention tier.<br><br>
+     * Raw attempts are filtered exactly, while daily and monthly rollups are included whole when their day or month
+     * overlaps the range.
+     *
+     * @param policy the <code>RetentionPolicy</code> used to compact this player
+     * @param from   the start of the range, in epoch milliseconds (inclusive)
+     * @param to     the end of the range, in epoch milliseconds (exclusive)
+     * @return an <code>AttemptRollup</code> of the attempts within the range
+     */
+    public synchronized AttemptRollup getStats(RetentionPolicy policy, long from, long to) {
+        AttemptRollup stats = new AttemptRollup();
+        if (to <= from) {
+            return stats;
+        }
+        long firstDay = policy.day(from);
+        long lastDay = policy.day(to - 1);
+        if (monthlyRollups != null) {
+            for (AttemptRollup rollup : monthlyRollups.subMap(policy.month(firstDay), true,
+                    policy.month(lastDay), true).values()) {
+                stats.merge(rollup);
+            }
+        }
+        if (dailyRollups != null) {
+            for (AttemptRollup rollup : dailyRollups.subMap(firstDay, true, lastDay, true).values()) {
+                stats.merge(rollup);
+            }
+        }
+        getHistory().forEach(from, to, (timestamp, time) -> stats.add(time));
+        return stats;
+    }
+
     /**
      * Increases the number of attempts made by the user. <br><br>
      * Usually called whenever the user has completed a game.
@@ -101,6 +452,252 @@ public class Player implements Serializable {
         attempts++;
     }
 
+    /**
+     * Combines the results of another <code>Player</code> with the same name into this one.<br><br>
+     * The faster of the two best times is kept, the attempts are summed, every attempt of both histories is kept and
+     * the rollups of matching days and months are merged, so that the number of attempts always matches the history
+     * and the rollups. Two machines can record the same reaction time at the same millisecond, so identical attempts
+     * are not taken for duplicates: merging the same database twice counts its results twice. Used when merging
+     * databases collected from several machines.
+     *
+     * @param other the <code>Player</code> whose results should be folded into this one
+     *
+     * @see PlayerManager#merge(java.io.File)
+     */
+    synchronized void mergeFrom(Player other) {
+        beginWrite();
+        ownRollups();
+        if (!Double.isNaN(other.bestTime) && (Double.isNaN(this.bestTime) || other.bestTime < this.bestTime)) {
+            this.bestTime = other.bestTime;
+        }
+        this.attempts += other.attempts;
+        this.lastPlayed = Math.max(getLastPlayed(), other.getLastPlayed());
+        this.history = AttemptHistory.concat(getHistory(), other.getHistory());
+        this.dailyRollups = mergeRollups(this.dailyRollups, other.dailyRollups);
+        this.monthlyRollups = mergeRollups(this.monthlyRollups, other.monthlyRollups);
+        version++;
+    }
+
+    /**
+     * Replaces the results of this player with those of another copy of the same player, such as the copy another
+     * process saved to a shared database file.<br><br>
+     * This instance is kept, so that everything referring to it sees the new results.
+     *
+     * @param other the copy whose results should replace those of this player
+     *
+     * @see FilePlayerStore#refresh()
+     */
+    synchronized void adopt(Player other) {
+        beginWrite();
+        this.bestTime = other.bestTime;
+        this.attempts = other.attempts;
+        this.history = other.history;
+        this.dailyRollups = other.dailyRollups;
+        this.monthlyRollups = other.monthlyRollups;
+        this.registered = other.registered;
+        this.lastPlayed = other.lastPlayed;
+        this.revision = other.revision;
+        this.rollupsShared = false;
+        version++;
+    }
+
+    /**
+     * Combines the results of this player with those of another copy of the same player, both having changed since
+     * they were last the same, such as when two processes sharing a database file played as the same player.<br><br>
+     * Unlike <code>mergeFrom()</code>, the attempts both copies had in common are only counted once: the faster of the
+     * two best times is kept, and the attempts made on this copy since the two were the same are added to those of
+     * the other, in the count as in the history. The rest of the history, and the rollups, are those of the other
+     * copy, so attempts it has compacted since are not kept raw here as well.
+     *
+     * @param other        the other copy
+     * @param baseAttempts the number of attempts of this copy when the two were last the same
+     *
+     * @see FilePlayerStore#flush()
+     */
+    synchronized void reconcile(Player other, int baseAttempts) {
+        beginWrite();
+        if (!Double.isNaN(other.bestTime) && (Double.isNaN(this.bestTime) || other.bestTime < this.bestTime)) {
+            this.bestTime = other.bestTime;
+        }
+        int added = Math.max(0, this.attempts - baseAttempts);
+        this.attempts = other.attempts + added;
+        this.lastPlayed = Math.max(getLastPlayed(), other.getLastPlayed());
+        this.history = AttemptHistory.union(getHistory().latest(added), other.getHistory());
+        this.dailyRollups = other.dailyRollups;
+        this.monthlyRollups = other.monthlyRollups;
+        this.revision = other.revision;
+        this.rollupsShared = false;
+        version++;
+    }
+
+    /**
+     * Retrieves the player as it was at the given value of the snapshot clock.<br><br>
+     * The current state is returned if it was written before that value, and an earlier state kept for the snapshots
+     * otherwise. The current state is only copied once after every change, however many snapshots read it.
+     *
+     * @param epoch the value of the snapshot clock a snapshot was opened at
+     * @return a frozen copy of the player
+     *
+     * @see PlayerSnapshot#resolve(Player)
+     */
+    synchronized Player asOf(long epoch) {
+        if (writtenAt >= epoch) {
+            for (Player image = older; image != null; image = image.older) {
+                if (image.writtenAt < epoch) {
+                    return image;
+                }
+            }
+        }
+        if (frozen == null) {
+            frozen = new Player(this);
+        }
+        return frozen;
+    }
+
+    /**
+     * Drops the earlier states no open snapshot can see anymore.
+     *
+     * @return <code>true</code> if earlier states are still kept. Otherwise, it will return <code>false</code>.
+     *
+     * @see PlayerSnapshot#close()
+     */
+    synchronized boolean pruneImages() {
+        Player head = null;
+        Player kept = null;
+        long to = writtenAt;
+        for (Player image = older; image != null; image = image.older) {
+            if (PlayerSnapshot.isVisible(image.writtenAt, to)) {
+                if (kept == null) {
+                    head = image;
+                } else {
+                    kept.older = image;
+                }
+                kept = image;
+            }
+            to = image.writtenAt;
+        }
+        if (kept != null) {
+            kept.older = null;
+        }
+        older = head;
+        return head != null;
+    }
+
+    /**
+     * Stamps the change about to be made to the player with the snapshot clock, first keeping a frozen copy of the
+     * current state if an open snapshot may still see it, reusing the copy already handed to snapshots if there is
+     * one. Allocates nothing while no snapshot is open.<br><br>
+     * Called by every method changing the player's data, while holding its lock.
+     */
+    private void beginWrite() {
+        long now = PlayerSnapshot.tick();
+        if (PlayerSnapshot.isVisible(writtenAt, Long.MAX_VALUE)) {
+            Player image = frozen != null ? frozen : new Player(this);
+            image.older = older;
+            if (older == null) {
+                PlayerSnapshot.retain(this);
+            }
+            older = image;
+        }
+        frozen = null;
+        writtenAt = now;
+    }
+
+    /**
+     * Copies the rollups before they are changed, if they are shared with a frozen copy of the player.
+     */
+    private void ownRollups() {
+        if (rollupsShared) {
+            dailyRollups = copyRollups(dailyRollups);
+            monthlyRollups = copyRollups(monthlyRollups);
+            rollupsShared = false;
+        }
+    }
+
+    /**
+     * Copies a map of rollups along with its rollups.
+     *
+     * @param rollups the map to be copied, possibly <code>null</code>
+     * @return the copy, or <code>null</code> if the map is <code>null</code>
+     */
+    private static TreeMap<Long, AttemptRollup> copyRollups(TreeMap<Long, AttemptRollup> rollups) {
+        if (rollups == null) {
+            return null;
+        }
+        TreeMap<Long, AttemptRollup> copy = new TreeMap<>();
+        for (Map.Entry<Long, AttemptRollup> entry : rollups.entrySet()) {
+            AttemptRollup rollup = new AttemptRollup();
+            rollup.merge(entry.getValue());
+            copy.put(entry.getKey(), rollup);
+        }
+        return copy;
+    }
+
+    /**
+     * Merges two maps of rollups, combining the rollups found under the same key.
+     *
+     * @param into the map to be merged into, possibly <code>null</code>
+     * @param from the map to be merged from, possibly <code>null</code>
+     * @return the merged map, or <code>null</code> if both maps are <code>null</code>
+     */
+    private static TreeMap<Long, AttemptRollup> mergeRollups(TreeMap<Long, AttemptRollup> into,
+                                                             TreeMap<Long, AttemptRollup> from) {
+        if (from == null) {
+            return into;
+        }
+        if (into == null) {
+            into = new TreeMap<>();
+        }
+        for (Map.Entry<Long, AttemptRollup> entry : from.entrySet()) {
+            into.computeIfAbsent(entry.getKey(), key -> new AttemptRollup()).merge(entry.getValue());
+        }
+        return into;
+    }
+
+    /**
+     * Writes the player while holding its lock, so a concurrent compaction cannot be observed half-way. The best time
+     * is written boxed, or as <code>null</code> for a player without attempts, as it always was.
+     *
+     * @param out the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("name", name);
+        fields.put("bestTime", Double.isNaN(bestTime) ? null : Double.valueOf(bestTime));
+        fields.put("attempts", attempts);
+        fields.put("history", history);
+        fields.put("dailyRollups", dailyRollups);
+        fields.put("monthlyRollups", monthlyRollups);
+        fields.put("registered", registered);
+        fields.put("lastPlayed", lastPlayed);
+        fields.put("revision", revision);
+        out.writeFields();
+    }
+
+    /**
+     * Reads a player written by <code>writeObject()</code>, or by an older version of the class. Fields missing from
+     * older databases are left to their defaults.
+     *
+     * @param in the stream to read from
+     * @throws IOException            if an I/O error occurs
+     * @throws ClassNotFoundException if a class of the serialized object cannot be found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        name = (String) fields.get("name", null);
+        Double best = (Double) fields.get("bestTime", null);
+        bestTime = best == null ? Double.NaN : best;
+        attempts = fields.get("attempts", 0);
+        history = (AttemptHistory) fields.get("history", null);
+        dailyRollups = (TreeMap<Long, AttemptRollup>) fields.get("dailyRollups", null);
+        monthlyRollups = (TreeMap<Long, AttemptRollup>) fields.get("monthlyRollups", null);
+        registered = fields.get("registered", 0L);
+        lastPlayed = fields.get("lastPlayed", 0L);
+        revision = fields.get("revision", 0L);
+    }
+
     /**
      * Provides a <code>String</code> representation of the <code>Player</code> object.
      *
@@ -0,0 +1,350 @@
+package game;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class computes analytics over the whole player base in parallel.<br><br>
+ * The rows of a <code>PlayerTable</code> are split recursively into ranges that are aggregated on a
+ * <code>ForkJoinPool</code>. Each range produces a mergeable <code>Partial</code> holding the distribution of best
+ * times, the number of players beaten by a reference time and one aggregate per registration month, which are then
+ * merged pairwise back up the tree. Percentiles of attempts per player are taken from a parallel sort of the
+ * attempts column.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerTable
+ * @see ForkJoinPool
+ */
+public class PlayerAnalytics {
+
+    /**
+     * The cohort key used for players whose registration time is unknown.
+     */
+    public static final long UNKNOWN_COHORT = -1;
+
+    /**
+     * The number of rows below which a range is aggregated sequentially instead of being split further.
+     */
+    private static final int THRESHOLD = 4096;
+
+    /**
+     * Computes the analytics of a <code>PlayerTable</code> on the common <code>ForkJoinPool</code>.
+     *
+     * @param table         the <code>PlayerTable</code> to be analysed
+     * @param referenceTime the time, in seconds, to compute the share of beaten players for
+     * @param policy        the <code>RetentionPolicy</code> whose time zone determines registration months
+     * @return the <code>Report</code> of the analytics
+     */
+    public static Report compute(PlayerTable table, double referenceTime, RetentionPolicy policy) {
+        return compute(table, referenceTime, policy, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the analytics of a <code>PlayerTable</code> on the given <code>ForkJoinPool</code>.
+     *
+     * @param table         the <code>PlayerTable</code> to be analysed
+     * @param referenceTime the time, in seconds, to compute the share of beaten players for
+     * @param policy        the <code>RetentionPolicy</code> whose time zone determines registration months
+     * @param pool          the <code>ForkJoinPool</code> to run on
+     * @return the <code>Report</code> of the analytics
+     */
+    public static Report compute(PlayerTable table, double referenceTime, RetentionPolicy policy, ForkJoinPool pool) {
+        Partial partial = pool.invoke(new Task(table, referenceTime, policy, 0, table.size()));
+        int[] attempts = table.attemptsColumn();
+        Arrays.parallelSort(attempts);
+        return new Report(partial, attempts, referenceTime);
+    }
+
+    /**
+     * This class aggregates the players registered within the same month.
+     *
+     * @author Samuel A. Kosasih
+     */
+    public static class Cohort {
+
+        /**
+         * This field stores the number of players in the cohort.
+         */
+        private long players;
+
+        /**
+         * This field stores the total number of attempts made by the cohort.
+         */
+        private long attempts;
+
+        /**
+         * This field stores the distribution of the best times of the cohort's ranked players.
+         */
+        private final AttemptRollup bestTimes = new AttemptRollup();
+
+        /**
+         * Merges another cohort into this one.
+         *
+         * @param other the cohort to be merged
+         */
+        private void merge(Cohort other) {
+            players += other.players;
+            attempts += other.attempts;
+            bestTimes.merge(other.bestTimes);
+        }
+
+        /**
+         * Retrieves the number of players in the cohort.
+         *
+         * @return the number of players
+         */
+        public long getPlayers() {
+            return players;
+        }
+
+        /**
+         * Retrieves the total number of attempts made by the cohort.
+         *
+         * @return the number of attempts
+         */
+        public long getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * Retrieves the distribution of the best times of the cohort's ranked players.
+         *
+         * @return an <code>AttemptRollup</code> with one entry per ranked player
+         */
+        public AttemptRollup getBestTimes() {
+            return bestTimes;
+        }
+    }
+
+    /**
+     * This class holds the results of the analytics.
+     *
+     * @author Samuel A. Kosasih
+     */
+    public static class Report {
+
+        /**
+         * This field stores the merged aggregate of every row.
+         */
+        private final Partial partial;
+
+        /**
+         * This field stores the sorted attempts of every player.
+         */
+        private final int[] sortedAttempts;
+
+        /**
+         * This field stores the time the share of beaten players was computed for.
+         */
+        private final double referenceTime;
+
+        /**
+         * Default Constructor.
+         *
+         * @param partial        the merged aggregate of every row
+         * @param sortedAttempts the sorted attempts of every player
+         * @param referenceTime  the time the share of beaten players was computed for
+         */
+        private Report(Partial partial, int[] sortedAttempts, double referenceTime) {
+            this.partial = partial;
+            this.sortedAttempts = sortedAttempts;
+            this.referenceTime = referenceTime;
+        }
+
+        /**
+         * Retrieves the number of players analysed.
+         *
+         * @return the number of players
+         */
+        public long getPlayers() {
+            return sortedAttempts.length;
+        }
+
+        /**
+         * Retrieves the distribution of best times among the players with at least one attempt.
+         *
+         * @return an <code>AttemptRollup</code> with one entry per ranked player
+         */
+        public AttemptRollup getBestTimes() {
+            return partial.bestTimes;
+        }
+
+        /**
+         * Retrieves a percentile of the number of attempts per player, using the nearest-rank method.
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the number of attempts at the percentile, or <code>0</code> if there are no players
+         */
+        public int getAttemptsPercentile(double percentile) {
+            if (sortedAttempts.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sortedAttempts.length);
+            return sortedAttempts[Math.max(0, Math.min(sortedAttempts.length - 1, rank - 1))];
+        }
+
+        /**
+         * Retrieves the time the share of beaten players was computed for.
+         *
+         * @return the reference time in seconds
+         */
+        public double getReferenceTime() {
+            return referenceTime;
+        }
+
+        /**
+         * Retrieves the share of ranked players whose best time is slower than the reference time.
+         *
+         * @return the share between 0 and 1, or <code>NaN</code> if no player has any attempts
+         */
+        public double getShareBeaten() {
+            long ranked = partial.bestTimes.getCount();
+            return ranked == 0 ? Double.NaN : (double) partial.beaten / ranked;
+        }
+
+        /**
+         * Retrieves the cohorts of players, keyed by registration month.
+         *
+         * @return a <code>SortedMap</code> of <code>Cohort</code>s keyed by the number of months since the year zero,
+         * with players of unknown registration under <code>UNKNOWN_COHORT</code>
+         */
+        public SortedMap<Long, Cohort> getCohorts() {
+            return Collections.unmodifiableSortedMap(partial.cohorts);
+        }
+    }
+
+    /**
+     * This private static inner class is the mergeable aggregate of a range of rows.
+     */
+    private static class Partial {
+
+        /**
+         * The distribution of best times of the ranked players in the range.
+         */
+        private final AttemptRollup bestTimes = new AttemptRollup();
+
+        /**
+         * The number of ranked players in the range slower than the reference time.
+         */
+        private long beaten;
+
+        /**
+         * The cohorts of the range, keyed by registration month.
+         */
+        private final TreeMap<Long, Cohort> cohorts = new TreeMap<>();
+
+        /**
+         * Merges another partial aggregate into this one.
+         *
+         * @param other the aggregate to be merged
+         * @return this <code>Partial</code>
+         */
+        private Partial merge(Partial other) {
+            bestTimes.merge(other.bestTimes);
+            beaten += other.beaten;
+            for (Map.Entry<Long, Cohort> entry : other.cohorts.entrySet()) {
+                cohorts.computeIfAbsent(entry.getKey(), key -> new Cohort()).merge(entry.getValue());
+            }
+            return this;
+        }
+    }
+
+    /**
+     * This private static inner class aggregates a range of rows, splitting it in halves while it is large.
+     */
+    private static class Task extends RecursiveTask<Partial> {
+
+        /**
+         * The serialization version of the task, which is never serialized, declared as <code>RecursiveTask</code>
+         * is <code>Serializable</code>.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * This field stores the <code>PlayerTable</code> being analysed.
+         */
+        private final PlayerTable table;
+
+        /**
+         * This field stores the time to count beaten players for, or <code>NaN</code> for none.
+         */
+        private final double referenceTime;
+
+        /**
+         * This field stores the <code>RetentionPolicy</code> determining registration months.
+         */
+        private final RetentionPolicy policy;
+
+        /**
+         * This field stores the first row of the range (inclusive).
+         */
+        private final int from;
+
+        /**
+         * This field stores the last row of the range (exclusive).
+         */
+        private final int to;
+
+        /**
+         * Default Constructor.
+         *
+         * @param table         the <code>PlayerTable</code> being analysed
+         * @param referenceTime the time to count beaten players for
+         * @param policy        the <code>RetentionPolicy</code> determining registration months
+         * @param from          the first row of the range (inclusive)
+         * @param to            the last row of the range (exclusive)
+         */
+        Task(PlayerTable table, double referenceTime, RetentionPolicy policy, int from, int to) {
+            this.table = table;
+            this.referenceTime = referenceTime;
+            this.policy = policy;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Aggregates the range, forking the upper half when the range is above <code>THRESHOLD</code>.
+         *
+         * @return the aggregate of the range
+         */
+        @Override
+        protected Partial compute() {
+            if (to - from > THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                Task upper = new Task(table, referenceTime, policy, mid, to);
+                upper.fork();
+                Partial lower = new Task(table, referenceTime, policy, from, mid).compute();
+                return lower.merge(upper.join());
+            }
+            Partial partial = new Partial();
+            long lastMonth = Long.MIN_VALUE;
+            Cohort cohort = null;
+            for (int i = from; i < to; i++) {
+                long registered = table.getRegistered(i);
+                long month = registered == 0 ? UNKNOWN_COHORT : policy.month(policy.day(registered));
+                if (month != lastMonth) {
+                    cohort = partial.cohorts.computeIfAbsent(month, key -> new Cohort());
+                    lastMonth = month;
+                }
+                double best = table.getBestTime(i);
+                cohort.players++;
+                cohort.attempts += table.getAttempts(i);
+                if (best == best) {
+                    partial.bestTimes.add(best);
+                    cohort.bestTimes.add(best);
+                    if (best > referenceTime) {
+                        partial.beaten++;
+                    }
+                }
+            }
+            return partial;
+        }
+    }
+
+}
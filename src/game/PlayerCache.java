@@ -0,0 +1,353 @@
+package game;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * This class is a size-bounded cache of the <code>Player</code>s materialized by a disk-resident
+ * <code>PlayerStore</code>, keyed by name.<br><br>
+ * Up to <code>maxSize</code> recently used <code>Player</code>s are held strongly, in access order. Once the cache
+ * is full, the least recently used <code>Player</code> is evicted, after being written back if it changed since it
+ * was last saved, which is told by its version stamp. An evicted <code>Player</code> is then only held weakly, so that
+ * as long as anything else still refers to it, looking up its name returns the same instance rather than a second
+ * copy read from the disk, and <code>writeDirty()</code> still writes its later changes. Heap use therefore follows the
+ * <code>Player</code>s in use rather than every <code>Player</code> ever read, which is every <code>Player</code>
+ * once a structure over the whole store, such as the <code>PlayerIndex</code> or the <code>Leaderboards</code>, is
+ * built.<br><br>
+ * Changes made to an evicted <code>Player</code> are lost if every reference to it is dropped before the next
+ * <code>flush()</code> of the store. The cache is not thread-safe; it is guarded by its store's caller, as the
+ * store itself is.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see JdbcPlayerStore
+ * @see Player#getVersion()
+ */
+class PlayerCache {
+
+    /**
+     * This field stores the <code>Player</code>s held strongly, in access order.
+     */
+    private final LinkedHashMap<String, HotEntry> hot;
+
+    /**
+     * This field stores the evicted <code>Player</code>s that may still be referenced elsewhere.
+     */
+    private final Map<String, ColdEntry> cold = new HashMap<>();
+
+    /**
+     * This field stores the queue the references of collected evicted <code>Player</code>s are put on.
+     */
+    private final ReferenceQueue<Player> collected = new ReferenceQueue<>();
+
+    /**
+     * This field stores the number of lookups answered by the cache.
+     */
+    private long hits;
+
+    /**
+     * This field stores the number of lookups that had to be read from the disk.
+     */
+    private long misses;
+
+    /**
+     * This field stores the number of <code>Player</code>s evicted to keep the cache within its size.
+     */
+    private long evictions;
+
+    /**
+     * This field stores the number of evicted <code>Player</code>s that had to be written back.
+     */
+    private long writeBacks;
+
+    /**
+     * Default Constructor.
+     *
+     * @param maxSize   the maximum number of <code>Player</code>s held strongly
+     * @param writeBack writes an evicted <code>Player</code> that changed back to the disk, returning
+     *                  <code>false</code> if it could not, in which case the <code>Player</code> is kept
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    PlayerCache(int maxSize, Predicate<Player> writeBack) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.hot = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HotEntry> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                HotEntry entry = eldest.getValue();
+                if (entry.isDirty()) {
+                    if (!writeBack.test(entry.player)) {
+                        return false;
+                    }
+                    writeBacks++;
+                    entry.savedVersion = entry.player.getVersion();
+                }
+                cold.put(eldest.getKey(), new ColdEntry(eldest.getKey(), entry, collected));
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Retrieves a cached <code>Player</code>, bringing it back among the recently used if it was evicted.
+     *
+     * @param name the name of the <code>Player</code>
+     * @return the <code>Player</code>, or <code>null</code> if it is not cached and has to be read
+     */
+    Player get(String name) {
+        Player p = peek(name);
+        if (p == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return p;
+    }
+
+    /**
+     * Retrieves a cached <code>Player</code> like <code>get()</code>, without counting the lookup, such as for the
+     * rows of a scan.
+     *
+     * @param name the name of the <code>Player</code>
+     * @return the <code>Player</code>, or <code>null</code> if it is not cached
+     */
+    Player peek(String name) {
+        purge();
+        HotEntry entry = hot.get(name);
+        if (entry != null) {
+            return entry.player;
+        }
+        ColdEntry evicted = cold.remove(name);
+        Player p = evicted == null ? null : evicted.get();
+        if (p != null) {
+            hot.put(name, new HotEntry(p, evicted.savedVersion));
+        }
+        return p;
+    }
+
+    /**
+     * Adds a <code>Player</code> read from or just written to the disk.
+     *
+     * @param player the <code>Player</code>
+     */
+    void put(Player player) {
+        purge();
+        cold.remove(player.getName());
+        hot.put(player.getName(), new HotEntry(player, player.getVersion()));
+    }
+
+    /**
+     * Removes a <code>Player</code> deleted from the disk.
+     *
+     * @param name the name of the <code>Player</code>
+     */
+    void remove(String name) {
+        hot.remove(name);
+        cold.remove(name);
+    }
+
+    /**
+     * Moves a <code>Player</code> renamed on the disk to its new name. The <code>Player</code> stays marked as
+     * changed, as its saved copy still holds its old name.
+     *
+     * @param oldName the name the <code>Player</code> is cached under
+     * @param player  the renamed <code>Player</code>
+     */
+    void rename(String oldName, Player player) {
+        HotEntry entry = hot.remove(oldName);
+        ColdEntry evicted = cold.remove(oldName);
+        long savedVersion = entry != null ? entry.savedVersion : evicted != null ? evicted.savedVersion : -1;
+        hot.put(player.getName(), new HotEntry(player, savedVersion));
+    }
+
+    /**
+     * Writes back every cached <code>Player</code> that changed since it was last saved, including evicted ones that
+     * are still referenced, and marks them as saved at the version stamps they had before being written.
+     *
+     * @param write writes the changed <code>Player</code>s to the disk at once, returning <code>false</code> if they
+     *              could not be written
+     * @return <code>true</code> if nothing changed or the changes are written. Otherwise, it will return
+     * <code>false</code>, and the <code>Player</code>s stay marked as changed.
+     */
+    boolean writeDirty(Predicate<List<Player>> write) {
+        purge();
+        List<Player> players = new ArrayList<>();
+        List<HotEntry> entries = new ArrayList<>();
+        List<ColdEntry> evicted = new ArrayList<>();
+        List<Long> versions = new ArrayList<>();
+        for (HotEntry entry : hot.values()) {
+            long version = entry.player.getVersion();
+            if (version != entry.savedVersion) {
+                players.add(entry.player);
+                entries.add(entry);
+                versions.add(version);
+            }
+        }
+        for (ColdEntry entry : cold.values()) {
+            Player p = entry.get();
+            long version = p == null ? entry.savedVersion : p.getVersion();
+            if (version != entry.savedVersion) {
+                players.add(p);
+                evicted.add(entry);
+                versions.add(version);
+            }
+        }
+        if (players.isEmpty()) {
+            return true;
+        }
+        if (!write.test(players)) {
+            return false;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).savedVersion = versions.get(i);
+        }
+        for (int i = 0; i < evicted.size(); i++) {
+            evicted.get(i).savedVersion = versions.get(entries.size() + i);
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the number of <code>Player</code>s held strongly.
+     *
+     * @return the number of <code>Player</code>s
+     */
+    int size() {
+        return hot.size();
+    }
+
+    /**
+     * Retrieves the number of lookups answered by the cache.
+     *
+     * @return the number of hits
+     */
+    long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of lookups that had to be read from the disk.
+     *
+     * @return the number of misses
+     */
+    long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Retrieves the number of <code>Player</code>s evicted to keep the cache within its size.
+     *
+     * @return the number of evictions
+     */
+    long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Retrieves the number of evicted <code>Player</code>s that had to be written back.
+     *
+     * @return the number of write-backs
+     */
+    long getWriteBacks() {
+        return writeBacks;
+    }
+
+    /**
+     * Retrieves the share of lookups answered by the cache.
+     *
+     * @return the hit rate between 0 and 1, or <code>NaN</code> if nothing has been looked up yet
+     */
+    double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? Double.NaN : (double) hits / lookups;
+    }
+
+    /**
+     * Forgets the evicted <code>Player</code>s that have been collected.
+     */
+    private void purge() {
+        ColdEntry evicted;
+        while ((evicted = (ColdEntry) collected.poll()) != null) {
+            cold.remove(evicted.name, evicted);
+        }
+    }
+
+    /**
+     * This private static inner class holds a recently used <code>Player</code> along with the version stamp it was
+     * last saved at.
+     */
+    private static class HotEntry {
+
+        /**
+         * The <code>Player</code>.
+         */
+        private final Player player;
+
+        /**
+         * The version stamp of the <code>Player</code> when it was last saved, or <code>-1</code> if it never was.
+         */
+        private long savedVersion;
+
+        /**
+         * Creates an entry.
+         *
+         * @param player       the <code>Player</code>
+         * @param savedVersion the version stamp of the <code>Player</code> when it was last saved
+         */
+        HotEntry(Player player, long savedVersion) {
+            this.player = player;
+            this.savedVersion = savedVersion;
+        }
+
+        /**
+         * Checks whether the <code>Player</code> changed since it was last saved.
+         *
+         * @return <code>true</code> if it changed. Otherwise, it will return <code>false</code>.
+         */
+        boolean isDirty() {
+            return player.getVersion() != savedVersion;
+        }
+    }
+
+    /**
+     * This private static inner class weakly holds an evicted <code>Player</code> along with the version stamp it
+     * was last saved at.
+     */
+    private static class ColdEntry extends WeakReference<Player> {
+
+        /**
+         * The name the <code>Player</code> is cached under.
+         */
+        private final String name;
+
+        /**
+         * The version stamp of the <code>Player</code> when it was last saved.
+         */
+        private long savedVersion;
+
+        /**
+         * Creates an entry for an evicted <code>Player</code>.
+         *
+         * @param name  the name the <code>Player</code> is cached under
+         * @param entry the entry the <code>Player</code> was held strongly by
+         * @param queue the queue the reference is put on once the <code>Player</code> is collected
+         */
+        ColdEntry(String name, HotEntry entry, ReferenceQueue<Player> queue) {
+            super(entry.player, queue);
+            this.name = name;
+            this.savedVersion = entry.savedVersion;
+        }
+    }
+
+}
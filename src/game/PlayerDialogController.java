@@ -2,6 +2,7 @@ package game;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.control.*;
@@ -62,6 +63,27 @@ public class PlayerDialogController {
     @FXML
     private Label attemptsLabel;
 
+    /**
+     * This field refers to the <code>Label</code> used to display the <code>Player</code>'s rank among every
+     * <code>Player</code> with a best time.
+     */
+    @FXML
+    private Label rankLabel;
+
+    /**
+     * This field refers to the <code>Label</code> used to display the share of <code>Player</code>s slower than
+     * the <code>Player</code>.
+     */
+    @FXML
+    private Label percentileLabel;
+
+    /**
+     * This field refers to the <code>Label</code> used to display the <code>Player</code>'s average time over the
+     * last 30 days.
+     */
+    @FXML
+    private Label recentLabel;
+
     /**
      * This field refers to the <code>Button</code> used to enable edit mode for the
      * <code>Player</code>'s name.
@@ -111,7 +133,10 @@ public class PlayerDialogController {
      * <code>Player</code> data. <br><br>
      * Populates the <code>playerListView</code> by calling <code>populatePlayerList()</code> method,
      * and adds the functionality to display <code>Player</code> data whenever the user selects one
-     * from <code>playerListView</code>. If the user is not currently selecting any <code>Player</code>,
+     * from <code>playerListView</code>. The data is read from the <code>PlayerManager</code>'s
+     * <code>SummaryCache</code>, so that selecting a <code>Player</code> again does not recompute its
+     * rank and statistics unless they have changed. When the ranking has changed since the last summary, the
+     * summary is computed in the background by <code>summarize()</code> and placeholders are shown meanwhile. If the user is not currently selecting any <code>Player</code>,
      * then the <code>deleteButton</code> and the <code>editButton</code> will be disabled.
      *
      * @param playerManager the <code>PlayerManager</code> object from the main application
@@ -126,16 +151,27 @@ public class PlayerDialogController {
 
         playerListView.getSelectionModel().selectedItemProperty().addListener((observableValue, player, p1) -> {
             if (p1 != null) {
-                Player p = playerListView.getSelectionModel().getSelectedItem();
-                playerNameLabel.setText(p.getName());
-                timeLabel.setText(p.getBestTime() == null ? "N/A" : df.format(p.getBestTime()));
-                attemptsLabel.setText(p.getAttempts() + "");
+                PlayerSummary summary = pm.getSummaries().getIfReady(p1);
+                if (summary != null) {
+                    showSummary(summary);
+                } else {
+                    playerNameLabel.setText(p1.getName());
+                    timeLabel.setText(p1.getBestTime() == null ? "N/A" : df.format(p1.getBestTime()));
+                    attemptsLabel.setText(p1.getAttempts() + "");
+                    rankLabel.setText("Computing...");
+                    percentileLabel.setText("Computing...");
+                    recentLabel.setText("Computing...");
+                    summarize(p1);
+                }
                 editButton.setDisable(false);
                 deleteButton.setDisable(false);
             } else {
                 playerNameLabel.setText("N/A");
                 timeLabel.setText("N/A");
                 attemptsLabel.setText("N/A");
+                rankLabel.setText("N/A");
+                percentileLabel.setText("N/A");
+                recentLabel.setText("N/A");
                 editButton.setDisable(true);
                 deleteButton.setDisable(true);
             }
@@ -143,6 +179,59 @@ public class PlayerDialogController {
         playerListView.getSelectionModel().selectFirst();
     }
 
+    /**
+     * Computes the summary of a <code>Player</code> in the background.<br><br>
+     * Used when the best times it is ranked against must be sorted first, which may build the
+     * <code>PlayerManager</code>'s table. The summary is displayed once computed, if the <code>Player</code> is
+     * still selected by then.
+     *
+     * @param player the selected <code>Player</code>
+     *
+     * @see SummaryCache#get(Player)
+     */
+    private void summarize(Player player) {
+        Task<PlayerSummary> task = new Task<>() {
+            @Override
+            protected PlayerSummary call() {
+                return pm.getSummaries().get(player);
+            }
+        };
+        task.setOnSucceeded(workerStateEvent -> {
+            if (playerListView.getSelectionModel().getSelectedItem() == player) {
+                showSummary(task.getValue());
+            }
+        });
+        task.setOnFailed(workerStateEvent -> {
+            task.getException().printStackTrace();
+            if (playerListView.getSelectionModel().getSelectedItem() == player) {
+                rankLabel.setText("N/A");
+                percentileLabel.setText("N/A");
+                recentLabel.setText("N/A");
+            }
+        });
+        Thread thread = new Thread(task, "summary");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Displays the summary of the selected <code>Player</code>.
+     *
+     * @param summary the <code>PlayerSummary</code> to be displayed
+     */
+    private void showSummary(PlayerSummary summary) {
+        playerNameLabel.setText(summary.getName());
+        timeLabel.setText(summary.getBestTime() == null ? "N/A" : df.format(summary.getBestTime()));
+        attemptsLabel.setText(summary.getAttempts() + "");
+        rankLabel.setText(summary.getRank() == 0 ? "N/A"
+                : summary.getRank() + " of " + summary.getRankedPlayers());
+        percentileLabel.setText(Double.isNaN(summary.getShareBeaten()) ? "N/A"
+                : Math.round(summary.getShareBeaten() * 100) + "% of players");
+        recentLabel.setText(summary.getRecentAttempts() == 0 ? "N/A"
+                : df.format(summary.getRecentMean()) + " \u00b1 "
+                + df.format(summary.getRecentStandardDeviation()));
+    }
+
     /**
      * Handles application logic to make edits to a <code>Player</code>.<br><br>
      * Will show the <code>playerTextField</code> to allow the user to enter a new desired
@@ -184,9 +273,9 @@ public class PlayerDialogController {
 
     /**
      * Handles the application logic to save any changes made in edit mode.<br><br>
-     * Will first retrieve the new name from <code>playerNameTextField</code> and checks whether
-     * the name is being used by any other <code>Player</code>s being stored in the class'
-     * <code>PlayerManager</code> object. <br><br>
+     * Will first retrieve the new name from <code>playerNameTextField</code> and asks the class'
+     * <code>PlayerManager</code> object to rename the <code>Player</code>, which checks whether
+     * the name is being used by any other <code>Player</code>s. <br><br>
      * If a duplicate is found, an <code>Alert</code> will be shown indicating that the user must
      * select a different name. <br><br>
      * If not, or if the new name equals the original name, then the method will proceed to save
@@ -197,20 +286,7 @@ public class PlayerDialogController {
     @FXML
     private void handleDone() {
         String newName = playerNameTextField.getText();
-        boolean proceed;
-        if (newName.equals(selectedPlayer.getName())) {
-            proceed = true;
-        } else {
-            proceed = true;
-            for (Player player : playerListView.getItems()) {
-                if (player.getName().equals(newName)) {
-                    proceed = false;
-                    break;
-                }
-            }
-        }
-        if (proceed) {
-            selectedPlayer.setName(newName);
+        if (pm.renamePlayer(selectedPlayer, newName)) {
             populatePlayerList();
             playerListView.getSelectionModel().select(selectedPlayer);
             playerListView.setDisable(false);
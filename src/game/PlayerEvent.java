@@ -0,0 +1,223 @@
+package game;
+
+/**
+ * This class represents a change to the players of a <code>PlayerManager</code>, as delivered to the subscribers
+ * of its <code>PlayerEventPublisher</code>.<br><br>
+ * Unlike <code>RoundEvent</code>s, instances are immutable and may be kept by subscribers.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerEventPublisher
+ * @see PlayerManager#getPublisher()
+ */
+public class PlayerEvent {
+
+    /**
+     * The kinds of change an event describes.
+     */
+    public enum Type {
+        /** A <code>Player</code> completed a round. */
+        ATTEMPT,
+        /** A <code>Player</code> failed a round by reacting too early. */
+        FAILURE,
+        /** A <code>Player</code> was added. */
+        ADDED,
+        /** A <code>Player</code> was removed. */
+        REMOVED,
+        /** A <code>Player</code> was renamed. */
+        RENAMED,
+        /** A <code>Player</code> was updated with the changes another process saved, or merged from another database. */
+        RELOADED
+    }
+
+    /**
+     * This field stores the kind of change.
+     */
+    private final Type type;
+
+    /**
+     * This field stores the <code>Player</code> the change applies to.
+     */
+    private final Player player;
+
+    /**
+     * This field stores the name of the <code>Player</code> when the change was made.
+     */
+    private final String playerName;
+
+    /**
+     * This field stores the previous name of a renamed <code>Player</code>, or <code>null</code>.
+     */
+    private final String previousName;
+
+    /**
+     * This field stores the reaction time of an attempt, in seconds, or <code>NaN</code>.
+     */
+    private final double time;
+
+    /**
+     * This field stores the time the change was made, in epoch milliseconds.
+     */
+    private final long timestamp;
+
+    /**
+     * This field indicates whether an attempt set a new best time.
+     */
+    private final boolean newBest;
+
+    /**
+     * Default Constructor.
+     *
+     * @param type         the kind of change
+     * @param player       the <code>Player</code> the change applies to
+     * @param previousName the previous name of a renamed <code>Player</code>, or <code>null</code>
+     * @param time         the reaction time of an attempt, in seconds, or <code>NaN</code>
+     * @param timestamp    the time the change was made, in epoch milliseconds
+     * @param newBest      whether an attempt set a new best time
+     */
+    private PlayerEvent(Type type, Player player, String previousName, double time, long timestamp,
+                        boolean newBest) {
+        this.type = type;
+        this.player = player;
+        this.playerName = player.getName();
+        this.previousName = previousName;
+        this.time = time;
+        this.timestamp = timestamp;
+        this.newBest = newBest;
+    }
+
+    /**
+     * Creates an event for a completed round.
+     *
+     * @param player    the <code>Player</code> who played the round
+     * @param time      the reaction time achieved, in seconds
+     * @param timestamp the time the round ended, in epoch milliseconds
+     * @param newBest   whether the round set a new best time
+     * @return the new <code>PlayerEvent</code>
+     */
+    public static PlayerEvent attempt(Player player, double time, long timestamp, boolean newBest) {
+        return new PlayerEvent(Type.ATTEMPT, player, null, time, timestamp, newBest);
+    }
+
+    /**
+     * Creates an event for a failed round.
+     *
+     * @param player    the <code>Player</code> who played the round
+     * @param timestamp the time the round ended, in epoch milliseconds
+     * @return the new <code>PlayerEvent</code>
+     */
+    public static PlayerEvent failure(Player player, long timestamp) {
+        return new PlayerEvent(Type.FAILURE, player, null, Double.NaN, timestamp, false);
+    }
+
+    /**
+     * Creates an event for an added <code>Player</code>.
+     *
+     * @param player the <code>Player</code> added
+     * @return the new <code>PlayerEvent</code>
+     */
+    public static PlayerEvent added(Player player) {
+        return new PlayerEvent(Type.ADDED, player, null, Double.NaN, System.currentTimeMillis(), false);
+    }
+
+    /**
+     * Creates an event for a removed <code>Player</code>.
+     *
+     * @param player the <code>Player</code> removed
+     * @return the new <code>PlayerEvent</code>
+     */
+    public static PlayerEvent removed(Player player) {
+        return new PlayerEvent(Type.REMOVED, player, null, Double.NaN, System.currentTimeMillis(), false);
+    }
+
+    /**
+     * Creates an event for a renamed <code>Player</code>.
+     *
+     * @param player       the <code>Player</code> renamed, already holding its new name
+     * @param previousName the name of the <code>Player</code> before the change
+     * @return the new <code>PlayerEvent</code>
+     */
+    public static PlayerEvent renamed(Player player, String previousName) {
+        return new PlayerEvent(Type.RENAMED, player, previousName, Double.NaN, System.currentTimeMillis(), false);
+    }
+
+    /**
+     * Creates an event for a <code>Player</code> updated with the changes another process saved, or with a
+     * <code>Player</code> of the same name merged from another database.
+     *
+     * @param player the <code>Player</code> updated
+     * @return the new <code>PlayerEvent</code>
+     */
+    public static PlayerEvent reloaded(Player player) {
+        return new PlayerEvent(Type.RELOADED, player, null, Double.NaN, System.currentTimeMillis(), false);
+    }
+
+    /**
+     * Retrieves the kind of change.
+     *
+     * @return the <code>Type</code> of the event
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the <code>Player</code> the change applies to.
+     *
+     * @return the <code>Player</code>
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Retrieves the name of the <code>Player</code> when the change was made.
+     *
+     * @return the name of the <code>Player</code>
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * Retrieves the previous name of a renamed <code>Player</code>.
+     *
+     * @return the previous name, or <code>null</code> if the event is not a <code>RENAMED</code> event
+     */
+    public String getPreviousName() {
+        return previousName;
+    }
+
+    /**
+     * Retrieves the reaction time of an attempt.
+     *
+     * @return the reaction time in seconds, or <code>NaN</code> if the event is not an <code>ATTEMPT</code> event
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Retrieves the time the change was made.
+     *
+     * @return the time in epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Indicates whether an attempt set a new best time.
+     *
+     * @return <code>true</code> if the event is an <code>ATTEMPT</code> event setting a new best time
+     */
+    public boolean isNewBest() {
+        return newBest;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + playerName + (type == Type.ATTEMPT ? " " + time : "");
+    }
+
+}
@@ -0,0 +1,354 @@
+package game;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a <code>Flow.Publisher</code> of <code>PlayerEvent</code>s, letting dashboards, exporters and
+ * other consumers follow the players of a <code>PlayerManager</code> without polling it.<br><br>
+ * Every subscriber has its own bounded buffer and its own <code>Executor</code>, which delivers events as the
+ * subscriber requests them. Publishing never blocks: when a slow subscriber's buffer is full, the
+ * <code>Overflow</code> strategy chosen for it decides which event is given up, so the game thread is never held
+ * back by a consumer.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerEvent
+ * @see PlayerManager#getPublisher()
+ */
+public class PlayerEventPublisher implements Flow.Publisher<PlayerEvent> {
+
+    /**
+     * The strategies for a subscriber whose buffer is full.
+     */
+    public enum Overflow {
+        /** Discards the oldest buffered event to make room for the new one. */
+        DROP_OLDEST,
+        /** Discards the new event. */
+        DROP_LATEST,
+        /**
+         * Replaces a buffered attempt of the same <code>Player</code> with the new one, so only the latest attempt
+         * of each <code>Player</code> waits in the buffer, then discards the oldest event if the buffer is still
+         * full.
+         */
+        CONFLATE
+    }
+
+    /**
+     * The buffer size of subscribers added through <code>subscribe(Flow.Subscriber)</code>.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /**
+     * This field stores the subscriptions of the current subscribers.
+     */
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * This field indicates whether the publisher has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Adds a subscriber with a buffer of <code>DEFAULT_BUFFER_SIZE</code> events, delivered by the common
+     * <code>ForkJoinPool</code>, dropping the oldest events on overflow.
+     *
+     * @param subscriber the subscriber to be added
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super PlayerEvent> subscriber) {
+        subscribe(subscriber, ForkJoinPool.commonPool(), DEFAULT_BUFFER_SIZE, Overflow.DROP_OLDEST);
+    }
+
+    /**
+     * Adds a subscriber.
+     *
+     * @param subscriber the subscriber to be added
+     * @param executor   the <code>Executor</code> calling the subscriber's methods
+     * @param bufferSize the maximum number of events waiting to be delivered to the subscriber
+     * @param overflow   the strategy used when the buffer is full
+     */
+    public void subscribe(Flow.Subscriber<? super PlayerEvent> subscriber, Executor executor, int bufferSize,
+                          Overflow overflow) {
+        Objects.requireNonNull(subscriber);
+        Objects.requireNonNull(executor);
+        Objects.requireNonNull(overflow);
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        Subscription subscription = new Subscription(subscriber, executor, bufferSize, overflow);
+        subscriptions.add(subscription);
+        if (closed) {
+            subscription.complete();
+        }
+        subscription.schedule();
+    }
+
+    /**
+     * Indicates whether any subscriber is listening, so that publishers can avoid creating events for nobody.
+     *
+     * @return <code>true</code> if there is at least one subscriber
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Offers an event to every subscriber, without blocking.
+     *
+     * @param event the event to be published
+     */
+    public void publish(PlayerEvent event) {
+        if (closed) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Completes every subscriber once it has received the events already buffered for it.
+     */
+    public void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * This private inner class links a single subscriber to the publisher.<br><br>
+     * Signals to the subscriber are serialized by a work-in-progress counter: whoever moves it from zero schedules
+     * one delivery task on the subscriber's <code>Executor</code>, which keeps draining until no more work is left.
+     */
+    private class Subscription implements Flow.Subscription, Runnable {
+
+        /**
+         * This field stores the subscriber the events are delivered to.
+         */
+        private final Flow.Subscriber<? super PlayerEvent> subscriber;
+
+        /**
+         * This field stores the <code>Executor</code> the subscriber's methods are called on.
+         */
+        private final Executor executor;
+
+        /**
+         * This field stores the maximum number of events buffered for the subscriber.
+         */
+        private final int capacity;
+
+        /**
+         * This field stores the strategy used when an event is offered while <code>buffer</code> is full.
+         */
+        private final Overflow overflow;
+
+        /**
+         * This field stores the events waiting to be delivered, oldest first.<br><br>
+         * Guarded by its own lock, which also guards <code>completed</code>.
+         */
+        private final ArrayDeque<PlayerEvent> buffer;
+
+        /**
+         * This field stores the number of events the subscriber has requested but not received yet.
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * This field stores the work-in-progress counter, the number of signals left for the running delivery task
+         * to pick up, or <code>0</code> if no task is scheduled.
+         */
+        private final AtomicInteger wip = new AtomicInteger();
+
+        /**
+         * This field indicates whether <code>onSubscribe()</code> has been called on the subscriber.
+         */
+        private volatile boolean subscribed;
+
+        /**
+         * This field indicates whether the subscriber cancelled the subscription.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * This field stores the error to be signalled to the subscriber, such as a non-positive request, or
+         * <code>null</code> if there is none.
+         */
+        private volatile Throwable error;
+
+        /**
+         * This field indicates whether the publisher was closed, so the subscriber is completed once
+         * <code>buffer</code> is drained.
+         */
+        private boolean completed;
+
+        /**
+         * Default Constructor.
+         *
+         * @param subscriber the subscriber
+         * @param executor   the <code>Executor</code> calling the subscriber's methods
+         * @param capacity   the maximum number of buffered events
+         * @param overflow   the strategy used when the buffer is full
+         */
+        Subscription(Flow.Subscriber<? super PlayerEvent> subscriber, Executor executor, int capacity,
+                     Overflow overflow) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.capacity = capacity;
+            this.overflow = overflow;
+            this.buffer = new ArrayDeque<>(Math.min(capacity, 64));
+        }
+
+        /**
+         * Buffers an event according to the <code>Overflow</code> strategy, then schedules its delivery.
+         *
+         * @param event the event to be buffered
+         */
+        void offer(PlayerEvent event) {
+            if (cancelled) {
+                return;
+            }
+            synchronized (buffer) {
+                if (completed) {
+                    return;
+                }
+                if (overflow == Overflow.CONFLATE && event.getType() == PlayerEvent.Type.ATTEMPT) {
+                    Iterator<PlayerEvent> it = buffer.iterator();
+                    while (it.hasNext()) {
+                        PlayerEvent buffered = it.next();
+                        if (buffered.getType() == PlayerEvent.Type.ATTEMPT
+                                && buffered.getPlayer() == event.getPlayer()) {
+                            it.remove();
+                            break;
+                        }
+                    }
+                }
+                if (buffer.size() == capacity) {
+                    if (overflow == Overflow.DROP_LATEST) {
+                        return;
+                    }
+                    buffer.poll();
+                }
+                buffer.add(event);
+            }
+            schedule();
+        }
+
+        /**
+         * Marks the subscriber as complete, once the buffered events are delivered.
+         */
+        void complete() {
+            synchronized (buffer) {
+                completed = true;
+            }
+            schedule();
+        }
+
+        /**
+         * Adds to the number of events the subscriber is ready to receive.
+         *
+         * @param n the number of additional events, which must be positive
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested a non-positive number of events: " + n);
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            schedule();
+        }
+
+        /**
+         * Stops the delivery of events and removes the subscriber from the publisher.
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (buffer) {
+                buffer.clear();
+            }
+        }
+
+        /**
+         * Schedules a delivery task on the subscriber's <code>Executor</code>, unless one is already running.
+         */
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * Delivers the buffered events while the subscriber requests them, until no more work is left.
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Hands buffered events to the subscriber, one per unit of demand, then signals an error or completion if
+         * either is due.
+         */
+        private void drain() {
+            while (!cancelled) {
+                Throwable failure = error;
+                if (failure != null) {
+                    cancel();
+                    subscriber.onError(failure);
+                    return;
+                }
+                PlayerEvent next = null;
+                boolean done;
+                synchronized (buffer) {
+                    if (demand.get() > 0) {
+                        next = buffer.poll();
+                    }
+                    done = completed && buffer.isEmpty();
+                }
+                if (next == null) {
+                    if (done) {
+                        cancel();
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                try {
+                    subscriber.onNext(next);
+                } catch (RuntimeException e) {
+                    cancel();
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+}
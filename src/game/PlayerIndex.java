@@ -0,0 +1,196 @@
+package game;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * This class holds the secondary indexes of a <code>PlayerManager</code>, one per <code>PlayerQuery.Field</code>,
+ * ordering the <code>Player</code>s by their number of attempts, best time and last played time.<br><br>
+ * Every index maps a value to the set of <code>Player</code>s having it, in a <code>ConcurrentSkipListMap</code>, so
+ * that a range of values is found in logarithmic time and queries can walk it lazily while games are being recorded.
+ * The values a <code>Player</code> is indexed under are remembered, so that <code>update()</code> only moves the
+ * <code>Player</code> in the indexes whose value changed. <code>Player</code>s without a best time are left out of the
+ * best time index.<br><br>
+ * Changes are serialized by the index's lock, while reads take no lock and see the indexes as they were at some point
+ * during the read.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerQuery
+ * @see PlayerManager#query()
+ */
+class PlayerIndex {
+
+    /**
+     * This field stores the indexes, keyed by the field they order the <code>Player</code>s by.
+     */
+    private final Map<PlayerQuery.Field, ConcurrentSkipListMap<Double, Set<Player>>> indexes =
+            new EnumMap<>(PlayerQuery.Field.class);
+
+    /**
+     * This field stores the values every <code>Player</code> is indexed under, in the order of
+     * <code>PlayerQuery.Field.values()</code>.
+     */
+    private final Map<Player, double[]> indexed = new ConcurrentHashMap<>();
+
+    /**
+     * Default Constructor.<br><br>
+     * Creates empty indexes.
+     */
+    PlayerIndex() {
+        for (PlayerQuery.Field field : PlayerQuery.Field.values()) {
+            indexes.put(field, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /**
+     * Builds the indexes of the given <code>Player</code>s.
+     *
+     * @param players the <code>Player</code>s to be indexed
+     * @return the new <code>PlayerIndex</code>
+     */
+    static PlayerIndex build(Iterable<Player> players) {
+        PlayerIndex index = new PlayerIndex();
+        for (Player p : players) {
+            index.add(p);
+        }
+        return index;
+    }
+
+    /**
+     * Adds a <code>Player</code> to every index, or updates it if it is already indexed.
+     *
+     * @param player the <code>Player</code> to be indexed
+     */
+    synchronized void add(Player player) {
+        if (indexed.containsKey(player)) {
+            update(player);
+            return;
+        }
+        PlayerQuery.Field[] fields = PlayerQuery.Field.values();
+        double[] values = new double[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = fields[i].valueOf(player);
+            insert(fields[i], values[i], player);
+        }
+        indexed.put(player, values);
+    }
+
+    /**
+     * Removes a <code>Player</code> from every index.
+     *
+     * @param player the <code>Player</code> to be removed
+     */
+    synchronized void remove(Player player) {
+        double[] values = indexed.remove(player);
+        if (values == null) {
+            return;
+        }
+        PlayerQuery.Field[] fields = PlayerQuery.Field.values();
+        for (int i = 0; i < fields.length; i++) {
+            delete(fields[i], values[i], player);
+        }
+    }
+
+    /**
+     * Moves a <code>Player</code> in every index whose value changed since it was indexed, such as after an attempt.
+     * A <code>Player</code> that is not indexed is left out, so that a game handled after its <code>Player</code> was
+     * removed does not add it back. New <code>Player</code>s are indexed with <code>add()</code>.
+     *
+     * @param player the <code>Player</code> that changed
+     */
+    synchronized void update(Player player) {
+        double[] values = indexed.get(player);
+        if (values == null) {
+            return;
+        }
+        PlayerQuery.Field[] fields = PlayerQuery.Field.values();
+        for (int i = 0; i < fields.length; i++) {
+            double value = fields[i].valueOf(player);
+            if (Double.compare(value, values[i]) != 0) {
+                delete(fields[i], values[i], player);
+                insert(fields[i], value, player);
+                values[i] = value;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the index of a field.
+     *
+     * @param field the field the index orders the <code>Player</code>s by
+     * @return the index, mapping every value to the <code>Player</code>s having it
+     */
+    NavigableMap<Double, Set<Player>> get(PlayerQuery.Field field) {
+        return indexes.get(field);
+    }
+
+    /**
+     * Counts the <code>Player</code>s whose value of a field lies within a range, giving up once the count reaches
+     * the given limit.
+     *
+     * @param field the field
+     * @param min   the lowest value, inclusive
+     * @param max   the highest value, inclusive
+     * @param limit the count at which to stop counting
+     * @return the number of <code>Player</code>s in the range, or <code>limit</code> if there are at least as many
+     */
+    long count(PlayerQuery.Field field, double min, double max, long limit) {
+        if (!(min <= max)) {
+            return 0;
+        }
+        long count = 0;
+        for (Set<Player> players : indexes.get(field).subMap(min, true, max, true).values()) {
+            count += players.size();
+            if (count >= limit) {
+                return limit;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves the number of indexed <code>Player</code>s.
+     *
+     * @return the number of <code>Player</code>s
+     */
+    int size() {
+        return indexed.size();
+    }
+
+    /**
+     * Adds a <code>Player</code> to the index of a field, unless the value is <code>NaN</code>.
+     *
+     * @param field  the field
+     * @param value  the value of the field
+     * @param player the <code>Player</code>
+     */
+    private void insert(PlayerQuery.Field field, double value, Player player) {
+        if (!Double.isNaN(value)) {
+            indexes.get(field).computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(player);
+        }
+    }
+
+    /**
+     * Removes a <code>Player</code> from the index of a field, dropping the value once no <code>Player</code> has it.
+     *
+     * @param field  the field
+     * @param value  the value the <code>Player</code> is indexed under
+     * @param player the <code>Player</code>
+     */
+    private void delete(PlayerQuery.Field field, double value, Player player) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        ConcurrentSkipListMap<Double, Set<Player>> index = indexes.get(field);
+        Set<Player> players = index.get(value);
+        if (players != null && players.remove(player) && players.isEmpty()) {
+            index.remove(value, players);
+        }
+    }
+
+}
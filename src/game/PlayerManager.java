@@ -1,50 +1,185 @@
 package game;
 
 import java.io.*;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 /**
- * This class serves as a manager class to manage <code>Player</code> objects stored in
- * <code>PlayerDatabase</code>.<br><br>
- * Constructing the object will first scan for an object file (.ser) stored within the
+ * This class serves as a manager class to manage <code>Player</code> objects stored in a
+ * <code>PlayerStore</code>.<br><br>
+ * By default, constructing the object will first scan for an object file (.ser) stored within the
  * project files. If found, then it will read existing data from the file.<br><br>
  * Also provides means to save any changes made to the database.
  *
  * @author Samuel A. Kosasih
  *
  * @see Player
- * @see PlayerDatabase
+ * @see PlayerStore
  */
 public class PlayerManager implements Serializable {
 
     /**
-     * This field stores a <code>PlayerDatabase</code> object used within the class.<br><br>
+     * This field stores the <code>PlayerStore</code> used within the class.<br><br>
      * Access currently saved <code>Player</code> objects using this field.
+     *
+     * @see PlayerStore
+     */
+    private final transient PlayerStore store;
+
+    /**
+     * This field stores the time-windowed <code>Leaderboards</code>, built from the players' histories the first
+     * time they are requested.
+     *
+     * @see Leaderboards
+     */
+    private transient volatile Leaderboards leaderboards;
+
+    /**
+     * This field stores the secondary indexes of the database, which are built on the first query.
+     */
+    private transient volatile PlayerIndex index;
+
+    /**
+     * This field stores the columnar <code>PlayerTable</code> of the database, which is built on the first call to
+     * <code>table()</code> and kept up to date by every change made through this <code>PlayerManager</code> from
+     * then on.
+     *
+     * @see PlayerTable
+     */
+    private transient volatile PlayerTable table;
+
+    /**
+     * This field indicates whether <code>table</code> holds every <code>Player</code>, which it only does once it
+     * has been built.
+     */
+    private transient volatile boolean tableBuilt;
+
+    /**
+     * This field stores the <code>RoundEventBus</code> that completed games are published on, or <code>null</code>
+     * if games should update the <code>Leaderboards</code> directly.
+     *
+     * @see RoundEventBus
+     */
+    private transient volatile RoundEventBus eventBus;
+
+    /**
+     * This field stores the <code>PlayerEventPublisher</code> that attempts and changes to the players are
+     * published on.
+     *
+     * @see PlayerEventPublisher
+     */
+    private final transient PlayerEventPublisher publisher = new PlayerEventPublisher();
+
+    /**
+     * This field stores a stamp that changes whenever the ranking of the players may have changed, that is whenever
+     * a best time is set or a ranked <code>Player</code> is removed.
+     *
+     * @see #getRankingVersion()
      */
-    private PlayerDatabase database;
+    private final transient AtomicLong rankingVersion = new AtomicLong();
 
     /**
-     * This field stores a <code>File</code> object used for file handling purposes.<br><br>
-     * Refers to the file name <code>players.ser</code> stored within the project files.
+     * This field stores the cache of profile summaries shown by the player dialog.
+     *
+     * @see SummaryCache
      */
-    private final File file = new File("players.ser");
+    private final transient SummaryCache summaries = new SummaryCache(this, 256);
 
     /**
      * Default Constructor.<br><br>
-     * Reads from an object file referred by the file name <code>players.ser</code> stored
-     * within the project files. If not found, it will proceed with a new <code>PlayerDatabase</code>.
+     * Opens the database named by the <code>reacxion.database</code> system property, which is either a JDBC URL,
+     * the path of a directory of shards, or the path of an object file. If the property is not set, it reads from an
+     * object file referred by the file name <code>players.ser</code> stored within the project files.
      *
-     * @see PlayerDatabase
+     * @see #openStore(String)
      */
     public PlayerManager() {
-        if (!read()) {
-            this.database = new PlayerDatabase();
+        this(openStore(System.getProperty("reacxion.database", "players.ser")));
+    }
+
+    /**
+     * Constructs a <code>PlayerManager</code> backed by the given object file.<br><br>
+     * Used by tools that operate on databases other than the default <code>players.ser</code>, such as
+     * <code>PlayerMerger</code>. If the file is not found, it will proceed with a new <code>PlayerDatabase</code>.
+     *
+     * @param file the object file (.ser) to read from and save to
+     *
+     * @see FilePlayerStore
+     */
+    public PlayerManager(File file) {
+        this(new FilePlayerStore(file));
+    }
+
+    /**
+     * Constructs a <code>PlayerManager</code> backed by the given <code>PlayerStore</code>.<br><br>
+     * If the store is empty, an <code>Anonymous</code> player is added so that there is always a
+     * <code>Player</code> to select. Changes other processes saved to a shared store are applied to the leaderboards,
+     * indexes and summaries as they are read.
+     *
+     * @param store the <code>PlayerStore</code> holding the <code>Player</code>s
+     */
+    public PlayerManager(PlayerStore store) {
+        this(store, true);
+    }
+
+    /**
+     * Constructs a <code>PlayerManager</code> backed by the given <code>PlayerStore</code>, adding an
+     * <code>Anonymous</code> player to an empty store only if asked to.<br><br>
+     * Used by tools such as <code>AdminCli</code>, which inspect a database without changing it.
+     *
+     * @param store the <code>PlayerStore</code> holding the <code>Player</code>s
+     * @param seed  whether to add an <code>Anonymous</code> player if the store is empty
+     */
+    PlayerManager(PlayerStore store, boolean seed) {
+        this.store = store;
+        store.setChangeListener(new StoreChanges());
+        if (seed && store.size() == 0) {
             addPlayer("Anonymous");
         }
     }
 
+    /**
+     * Opens the <code>PlayerStore</code> at the given location.<br><br>
+     * A JDBC database keeps the <code>Player</code>s on disk, holding at most as many recently used ones in memory as
+     * the <code>reacxion.cache</code> system property, or every <code>Player</code> read if the property is not set.
+     * A location that is an existing directory, or that ends with a separator, is opened as a
+     * <code>ShardedFilePlayerStore</code>. A new one has as many shards as the <code>reacxion.shards</code> system
+     * property, or as there are available processors if the property is not set.
+     *
+     * @param location a JDBC URL, such as <code>jdbc:sqlite:players.db</code>, the path of a directory of shards, or
+     *                 the path of an object file
+     * @return a <code>JdbcPlayerStore</code> for JDBC URLs, a <code>ShardedFilePlayerStore</code> for directories, or
+     * a <code>FilePlayerStore</code> otherwise
+     * @throws IllegalStateException if the JDBC database cannot be opened
+     */
+    public static PlayerStore openStore(String location) {
+        if (location.startsWith("jdbc:")) {
+            try {
+                return new JdbcPlayerStore(location, 4, Integer.getInteger("reacxion.cache", Integer.MAX_VALUE));
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not open database " + location, e);
+            }
+        }
+        File file = new File(location);
+        if (file.isDirectory() || location.endsWith("/") || location.endsWith(File.separator)) {
+            return new ShardedFilePlayerStore(file,
+                    Integer.getInteger("reacxion.shards", Runtime.getRuntime().availableProcessors()));
+        }
+        return new FilePlayerStore(file);
+    }
+
     /**
      * Creates and adds a new <code>Player</code> with the given name to the database.
      *
@@ -55,13 +190,19 @@ public class PlayerManager implements Serializable {
      *
      * @see Player
      */
-    public boolean addPlayer(String newName) {
-        for (Player p : database.playerList) {
-            if (p.getName().equals(newName)) {
-                return false;
-            }
+    public synchronized boolean addPlayer(String newName) {
+        Player p = new Player(newName);
+        if (!store.put(p)) {
+            return false;
+        }
+        if (index != null) {
+            index.add(p);
         }
-        return database.playerList.add(new Player(newName));
+        if (table != null) {
+            table.put(p);
+        }
+        publisher.publish(PlayerEvent.added(p));
+        return true;
     }
 
     /**
@@ -73,13 +214,481 @@ public class PlayerManager implements Serializable {
      *
      * @see Player
      */
-    public boolean removePlayer(String playerName) {
-        for (Player p : database.playerList) {
-            if (p.getName().equals(playerName)) {
-                return database.playerList.remove(p);
+    public synchronized boolean removePlayer(String playerName) {
+        Player p = store.delete(playerName);
+        if (p == null) {
+            return false;
+        }
+        p.markRemoved();
+        if (leaderboards != null) {
+            leaderboards.remove(p);
+        }
+        if (index != null) {
+            index.remove(p);
+        }
+        if (table != null) {
+            table.remove(p);
+        }
+        summaries.invalidate(p);
+        if (p.getBestTime() != null) {
+            rankingVersion.incrementAndGet();
+        }
+        publisher.publish(PlayerEvent.removed(p));
+        return true;
+    }
+
+    /**
+     * Renames the given <code>Player</code>, keeping the <code>PlayerStore</code>'s name lookup up to date.
+     *
+     * @param player  the <code>Player</code> to be renamed
+     * @param newName the new name as a <code>String</code>
+     * @return <code>true</code> if the name is unchanged or not used by any other <code>Player</code>, and the
+     * <code>Player</code> has been renamed. Otherwise, it will return <code>false</code>.
+     *
+     * @see Player
+     */
+    public synchronized boolean renamePlayer(Player player, String newName) {
+        String oldName = player.getName();
+        if (newName.equals(oldName)) {
+            return true;
+        }
+        if (!store.rename(player, newName)) {
+            return false;
+        }
+        if (table != null) {
+            table.rename(player, oldName);
+        }
+        publisher.publish(PlayerEvent.renamed(player, oldName));
+        return true;
+    }
+
+    /**
+     * Creates and adds a new <code>Player</code> for every given name, such as a class roster, then saves the
+     * database once.<br><br>
+     * Names that are already taken, or repeated in <code>newNames</code>, are skipped.
+     *
+     * @param newNames the names to be given to the new <code>Player</code>s
+     * @return the number of <code>Player</code>s added
+     *
+     * @see PlayerStore#putAll(Collection)
+     */
+    public synchronized int addPlayers(Collection<String> newNames) {
+        List<Player> players = new ArrayList<>(newNames.size());
+        for (String name : newNames) {
+            players.add(new Player(name));
+        }
+        int added = store.putAll(players);
+        if (added > 0) {
+            store.flush();
+            if (index != null || table != null || publisher.hasSubscribers()) {
+                for (Player p : players) {
+                    if (store.get(p.getName()) == p) {
+                        if (index != null) {
+                            index.add(p);
+                        }
+                        if (table != null) {
+                            table.put(p);
+                        }
+                        publisher.publish(PlayerEvent.added(p));
+                    }
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes every <code>Player</code> matching the given predicate, such as those without any attempts, then
+     * saves the database once.
+     *
+     * @param filter the predicate selecting the <code>Player</code>s to be removed
+     * @return the number of <code>Player</code>s removed
+     *
+     * @see PlayerStore#deleteIf(Predicate)
+     */
+    public synchronized int removePlayers(Predicate<Player> filter) {
+        List<Player> removed = store.deleteIf(filter);
+        if (!removed.isEmpty()) {
+            for (Player p : removed) {
+                p.markRemoved();
+            }
+            if (leaderboards != null) {
+                leaderboards.removeAll(removed);
+            }
+            for (Player p : removed) {
+                if (index != null) {
+                    index.remove(p);
+                }
+                if (table != null) {
+                    table.remove(p);
+                }
+                summaries.invalidate(p);
+                publisher.publish(PlayerEvent.removed(p));
+            }
+            rankingVersion.incrementAndGet();
+            store.flush();
+        }
+        return removed.size();
+    }
+
+    /**
+     * Renames many <code>Player</code>s at once, then saves the database once.<br><br>
+     * Either every <code>Player</code> is renamed or none is.
+     *
+     * @param renames the new names, keyed by the <code>Player</code>s to be renamed
+     * @return <code>true</code> if no new name is used by another <code>Player</code> or repeated, and the
+     * <code>Player</code>s have been renamed. Otherwise, it will return <code>false</code>.
+     *
+     * @see PlayerStore#renameAll(Map)
+     */
+    public synchronized boolean renamePlayers(Map<Player, String> renames) {
+        Map<Player, String> oldNames = new HashMap<>(renames.size() * 2);
+        for (Player p : renames.keySet()) {
+            oldNames.put(p, p.getName());
+        }
+        if (!store.renameAll(renames)) {
+            return false;
+        }
+        store.flush();
+        for (Map.Entry<Player, String> e : oldNames.entrySet()) {
+            if (!e.getValue().equals(e.getKey().getName())) {
+                if (table != null) {
+                    table.rename(e.getKey(), e.getValue());
+                }
+                publisher.publish(PlayerEvent.renamed(e.getKey(), e.getValue()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records many completed games for the given <code>Player</code>, such as results imported from another
+     * machine, then saves the database once.<br><br>
+     * Unlike <code>recordAttempt()</code>, the games are not published on the <code>RoundEventBus</code>, which only
+     * carries the games played on the game thread. The <code>Leaderboards</code> are updated directly instead, if
+     * they have been built.
+     *
+     * @param player     the <code>Player</code> who completed the games
+     * @param times      the reaction times achieved, in seconds
+     * @param timestamps the times the games were played, in epoch milliseconds, in the same order as
+     *                   <code>times</code>
+     * @return <code>true</code> if one of the times is the <code>Player</code>'s new best time. Otherwise, it will
+     * return <code>false</code>.
+     *
+     * @see Player#refreshBestTime(double, long)
+     */
+    public synchronized boolean recordAttempts(Player player, double[] times, long[] timestamps) {
+        if (times.length != timestamps.length) {
+            throw new IllegalArgumentException("Expected one timestamp per time");
+        }
+        boolean best = false;
+        for (int i = 0; i < times.length; i++) {
+            boolean newBest = player.refreshBestTime(times[i], timestamps[i]);
+            best |= newBest;
+            if (leaderboards != null) {
+                leaderboards.record(player, times[i], timestamps[i]);
+            }
+            if (publisher.hasSubscribers()) {
+                publisher.publish(PlayerEvent.attempt(player, times[i], timestamps[i], newBest));
+            }
+        }
+        if (best) {
+            rankingVersion.incrementAndGet();
+        }
+        if (index != null) {
+            index.update(player);
+        }
+        if (table != null) {
+            table.update(player);
+        }
+        if (times.length > 0) {
+            store.flush();
+        }
+        return best;
+    }
+
+    /**
+     * Records a completed game for the given <code>Player</code>.<br><br>
+     * Refreshes the <code>Player</code>'s best time and history, then publishes the game on the
+     * <code>RoundEventBus</code> if one is set, which allocates nothing. Otherwise, it updates the indexes of
+     * <code>query()</code> and the <code>Leaderboards</code> if they have been built, and the subscribers of the
+     * <code>PlayerEventPublisher</code>.
+     *
+     * @param player the <code>Player</code> who completed the game
+     * @param time   the reaction time achieved, in seconds
+     * @return <code>true</code> if the time is the <code>Player</code>'s new best time. Otherwise, it will return
+     * <code>false</code>.
+     *
+     * @see Player#refreshBestTime(double, long)
+     */
+    public boolean recordAttempt(Player player, double time) {
+        return record(player, time, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a game several <code>Player</code>s played at once on the same green light, such as a head-to-head
+     * round.<br><br>
+     * Every result is recorded with the same timestamp, one after the other, as <code>recordAttempt()</code> and
+     * <code>recordFailure()</code> would record them.
+     *
+     * @param players the <code>Player</code>s who played the game
+     * @param times   the reaction time achieved by every <code>Player</code>, in seconds, in the same order as
+     *                <code>players</code>, or <code>NaN</code> for a <code>Player</code> who reacted too early
+     * @return whether every <code>Player</code> set a new best time, in the same order as <code>players</code>
+     * @throws IllegalArgumentException if there is not one time per <code>Player</code>
+     *
+     * @see HeadToHeadRound#commit(PlayerManager)
+     */
+    public boolean[] recordRound(Player[] players, double[] times) {
+        if (players.length != times.length) {
+            throw new IllegalArgumentException("Expected one time per player");
+        }
+        long timestamp = System.currentTimeMillis();
+        boolean[] newBests = new boolean[players.length];
+        for (int i = 0; i < players.length; i++) {
+            if (Double.isNaN(times[i])) {
+                fail(players[i], timestamp);
+            } else {
+                newBests[i] = record(players[i], times[i], timestamp);
+            }
+        }
+        return newBests;
+    }
+
+    /**
+     * Records a completed game, as <code>recordAttempt()</code> describes.
+     *
+     * @param player    the <code>Player</code> who completed the game
+     * @param time      the reaction time achieved, in seconds
+     * @param timestamp the time the game ended, in epoch milliseconds
+     * @return <code>true</code> if the time is the <code>Player</code>'s new best time. Otherwise, it will return
+     * <code>false</code>.
+     */
+    private boolean record(Player player, double time, long timestamp) {
+        boolean best = player.refreshBestTime(time, timestamp);
+        if (best) {
+            rankingVersion.incrementAndGet();
+        }
+        RoundEventBus bus = eventBus;
+        if (bus != null) {
+            bus.publish(player, time, timestamp, best, false);
+        } else {
+            PlayerTable columns = table;
+            if (columns != null) {
+                columns.update(player);
+            }
+            PlayerIndex indexes = index;
+            if (indexes != null) {
+                indexes.update(player);
+            }
+            Leaderboards current = leaderboards;
+            if (current != null) {
+                current.record(player, time, timestamp);
+            }
+            if (publisher.hasSubscribers()) {
+                publisher.publish(PlayerEvent.attempt(player, time, timestamp, best));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Records a game failed by the given <code>Player</code> for reacting too early.<br><br>
+     * Failed games do not count as attempts; they are only published on the <code>RoundEventBus</code> if one is
+     * set, or to the subscribers of the <code>PlayerEventPublisher</code> otherwise.
+     *
+     * @param player the <code>Player</code> who failed the game
+     */
+    public void recordFailure(Player player) {
+        fail(player, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a failed game, as <code>recordFailure()</code> describes.
+     *
+     * @param player    the <code>Player</code> who failed the game
+     * @param timestamp the time the game ended, in epoch milliseconds
+     */
+    private void fail(Player player, long timestamp) {
+        RoundEventBus bus = eventBus;
+        if (bus != null) {
+            bus.publish(player, Double.NaN, timestamp, false, true);
+        } else if (publisher.hasSubscribers()) {
+            publisher.publish(PlayerEvent.failure(player, timestamp));
+        }
+    }
+
+    /**
+     * Sets the <code>RoundEventBus</code> that completed games are published on.<br><br>
+     * Once set, <code>recordAttempt()</code> only updates the <code>Player</code> itself and leaves every other
+     * consumer, including the <code>Leaderboards</code>, the indexes of <code>query()</code> and the
+     * <code>PlayerTable</code>, to the handlers of the bus.
+     *
+     * @param eventBus the <code>RoundEventBus</code>, or <code>null</code> to update the <code>Leaderboards</code>
+     *                 directly
+     *
+     * @see #leaderboardHandler()
+     */
+    public void setEventBus(RoundEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Creates a <code>RoundEventHandler</code> that records completed games on the <code>Leaderboards</code>.<br><br>
+     * Games of a <code>Player</code> removed before they are handled are ignored by the <code>Leaderboards</code>.
+     *
+     * @return the new <code>RoundEventHandler</code>
+     */
+    public RoundEventHandler leaderboardHandler() {
+        return (event, sequence, endOfBatch) -> {
+            if (!event.isFailed()) {
+                getLeaderboards().record(event.getPlayer(), event.getTime(), event.getTimestamp());
+            }
+        };
+    }
+
+    /**
+     * Creates a <code>RoundEventHandler</code> that moves the <code>Player</code> of every completed game in the
+     * indexes of <code>query()</code>, if they have been built.<br><br>
+     * Games of a <code>Player</code> removed before they are handled leave the indexes unchanged.
+     *
+     * @return the new <code>RoundEventHandler</code>
+     */
+    public RoundEventHandler indexHandler() {
+        return (event, sequence, endOfBatch) -> {
+            PlayerIndex current = index;
+            if (current != null && !event.isFailed()) {
+                current.update(event.getPlayer());
             }
+        };
+    }
+
+    /**
+     * Creates a <code>RoundEventHandler</code> that copies the best time and attempts of the <code>Player</code> of
+     * every completed game into the <code>PlayerTable</code> of <code>table()</code>, if it has been built.<br><br>
+     * Keeps the lock of the table, which <code>table()</code> holds while copying it, off the game thread. Games of a
+     * <code>Player</code> removed before they are handled leave the table unchanged.
+     *
+     * @return the new <code>RoundEventHandler</code>
+     */
+    public RoundEventHandler tableHandler() {
+        return (event, sequence, endOfBatch) -> {
+            PlayerTable columns = table;
+            if (columns != null && !event.isFailed()) {
+                columns.update(event.getPlayer());
+            }
+        };
+    }
+
+    /**
+     * Creates a <code>RoundEventHandler</code> that forwards games to the subscribers of the
+     * <code>PlayerEventPublisher</code>.<br><br>
+     * Keeps the creation of events, and the buffering for every subscriber, off the game thread.
+     *
+     * @return the new <code>RoundEventHandler</code>
+     */
+    public RoundEventHandler publisherHandler() {
+        return (event, sequence, endOfBatch) -> {
+            if (!publisher.hasSubscribers()) {
+                return;
+            }
+            if (event.isFailed()) {
+                publisher.publish(PlayerEvent.failure(event.getPlayer(), event.getTimestamp()));
+            } else {
+                publisher.publish(PlayerEvent.attempt(event.getPlayer(), event.getTime(), event.getTimestamp(),
+                        event.isNewBest()));
+            }
+        };
+    }
+
+    /**
+     * Retrieves the ranking version of this database, which changes whenever the ranking of the players may have
+     * changed.
+     *
+     * @return the ranking version
+     *
+     * @see PlayerSummary#getRankingVersion()
+     */
+    public long getRankingVersion() {
+        return rankingVersion.get();
+    }
+
+    /**
+     * Retrieves the cache of profile summaries of the players in this database.
+     *
+     * @return the <code>SummaryCache</code>
+     *
+     * @see SummaryCache
+     */
+    public SummaryCache getSummaries() {
+        return summaries;
+    }
+
+    /**
+     * Retrieves the <code>PlayerEventPublisher</code> of this database.<br><br>
+     * Subscribers receive every attempt and failure, as well as every <code>Player</code> added, removed or
+     * renamed from then on. Games are only forwarded while a <code>RoundEventBus</code> is set if the handler from
+     * <code>publisherHandler()</code> is added to it.
+     *
+     * @return the <code>PlayerEventPublisher</code>
+     *
+     * @see PlayerEventPublisher
+     */
+    public PlayerEventPublisher getPublisher() {
+        return publisher;
+    }
+
+    /**
+     * Creates a <code>RoundEventHandler</code> that saves the database at the end of a batch of events, at most
+     * once per the given interval.<br><br>
+     * Limits the progress lost if the application crashes, without saving on the game thread.
+     *
+     * @param intervalMillis the minimum time between two saves, in milliseconds
+     * @return the new <code>RoundEventHandler</code>
+     */
+    public RoundEventHandler autosaveHandler(long intervalMillis) {
+        long[] lastSave = {System.currentTimeMillis()};
+        return (event, sequence, endOfBatch) -> {
+            if (endOfBatch && event.getTimestamp() - lastSave[0] >= intervalMillis) {
+                save();
+                lastSave[0] = System.currentTimeMillis();
+            }
+        };
+    }
+
+    /**
+     * Retrieves the daily, weekly and monthly <code>Leaderboards</code>.<br><br>
+     * They are built from the players' histories on the first call, and kept up to date by
+     * <code>recordAttempt()</code> from then on.
+     *
+     * @return the <code>Leaderboards</code> of this database
+     *
+     * @see Leaderboards
+     */
+    public synchronized Leaderboards getLeaderboards() {
+        if (leaderboards == null) {
+            leaderboards = Leaderboards.build(players(), System.currentTimeMillis());
+        }
+        return leaderboards;
+    }
+
+    /**
+     * Starts a query over the players of the database, such as those with more than 50 attempts, or those who have
+     * not played in 90 days.<br><br>
+     * The query reads the secondary indexes on attempts, best times and last played times, which are built from the
+     * players on the first call, and kept up to date by every change made through this <code>PlayerManager</code>
+     * from then on. While a <code>RoundEventBus</code> is set, games are only indexed if the handler from
+     * <code>indexHandler()</code> is added to it.
+     *
+     * @return a new <code>PlayerQuery</code> matching every <code>Player</code> until restricted
+     *
+     * @see PlayerQuery
+     */
+    public synchronized PlayerQuery query() {
+        if (index == null) {
+            index = PlayerIndex.build(players());
         }
-        return false;
+        return new PlayerQuery(index);
     }
 
     /**
@@ -90,86 +699,308 @@ public class PlayerManager implements Serializable {
      * @return the <code>Player</code> object with <code>playerName</code>. If <code>Player</code>
      * is not found, then it will return <code>null</code> instead.
      */
-    public Player getPlayer(String playerName) {
-        for (Player p : database.playerList) {
-            if (p.getName().equals(playerName)) {
-                return p;
+    public synchronized Player getPlayer(String playerName) {
+        return store.get(playerName);
+    }
+
+    /**
+     * Merges the database stored in another object file into this one.<br><br>
+     * <code>Player</code>s are joined by name through the store's lookup, so each merge is a single linear pass
+     * over the source database. Matching <code>Player</code>s keep the faster best time, the sum of their attempts
+     * and every attempt of both histories, while unknown names are added as they are, all at once through
+     * <code>PlayerStore.putAll()</code>. Only one source database is held in memory at a time, so merging the files
+     * of several machines one after another stays bounded by the size of the result.<br><br>
+     * The merged attempts within the windows of the <code>Leaderboards</code> are recorded on them, the summaries of
+     * the matching <code>Player</code>s are dropped, and every <code>Player</code> added or updated is published to
+     * the subscribers of the <code>PlayerEventPublisher</code>, as added or reloaded.<br><br>
+     * Changes are not written until <code>save()</code> is called.
+     *
+     * @param source the object file (.ser) to merge into this database
+     * @return <code>true</code> if the source file is found and merged. Otherwise, it will return
+     * <code>false</code>.
+     *
+     * @see Player#mergeFrom(Player)
+     */
+    public synchronized boolean merge(File source) {
+        PlayerDatabase other = FilePlayerStore.read(source);
+        if (other == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        Leaderboards current = leaderboards;
+        Map<String, Player> added = new LinkedHashMap<>();
+        Set<Player> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Player p : other.playerList) {
+            Player existing = store.get(p.getName());
+            if (existing == null) {
+                Player pending = added.putIfAbsent(p.getName(), p);
+                if (pending != null) {
+                    pending.mergeFrom(p);
+                }
+                continue;
+            }
+            existing.mergeFrom(p);
+            if (current != null) {
+                current.record(existing, p.getHistory(), now);
+            }
+            updated.add(existing);
+        }
+        for (Player p : updated) {
+            if (index != null) {
+                index.update(p);
+            }
+            if (table != null) {
+                table.put(p);
+            }
+            summaries.invalidate(p);
+            if (publisher.hasSubscribers()) {
+                publisher.publish(PlayerEvent.reloaded(p));
+            }
+        }
+        if (!added.isEmpty()) {
+            boolean all = store.putAll(added.values()) == added.size();
+            for (Player p : added.values()) {
+                if (!all && store.get(p.getName()) != p) {
+                    continue;
+                }
+                if (index != null) {
+                    index.add(p);
+                }
+                if (table != null) {
+                    table.put(p);
+                }
+                if (current != null) {
+                    current.record(p, p.getHistory(), now);
+                }
+                if (publisher.hasSubscribers()) {
+                    publisher.publish(PlayerEvent.added(p));
+                }
             }
         }
-        return null;
+        rankingVersion.incrementAndGet();
+        return true;
     }
 
     /**
-     * Provides an <code>Iterator</code> to iterate through the database.
+     * Provides an <code>Iterator</code> to iterate through the database.<br><br>
+     * Iterates over the copy returned by <code>players()</code>, so the store's own cursor, which may read its pages
+     * lazily, is only used under the manager's lock and never while the autosave thread is saving the store.
      *
-     * @return an <code>Iterator</code> of type <code>Player</code> from <code>PlayerDatabase</code>
+     * @return an <code>Iterator</code> of type <code>Player</code> from the <code>PlayerStore</code>
      *
      * @see Iterator
      * @see Player
      */
     public Iterator<Player> iterator() {
-        return database.iterator();
+        return players().iterator();
+    }
+
+    /**
+     * Retrieves a copy of the list of <code>Player</code>s in the database.<br><br>
+     * The copy is safe to use from background threads while the database is being modified.
+     *
+     * @return a new <code>List</code> of the <code>Player</code>s currently in the database
+     */
+    public synchronized List<Player> players() {
+        List<Player> players = new ArrayList<>(store.size());
+        Iterator<Player> it = store.scan();
+        while (it.hasNext()) {
+            players.add(it.next());
+        }
+        return players;
+    }
+
+    /**
+     * Retrieves the fastest <code>Player</code>s in the database.
+     *
+     * @param limit the maximum number of <code>Player</code>s to be returned
+     * @return a <code>List</code> of at most <code>limit</code> <code>Player</code>s, from fastest to slowest
+     *
+     * @see PlayerStore#rank(int)
+     */
+    public synchronized List<Player> topPlayers(int limit) {
+        return store.rank(limit);
+    }
+
+    /**
+     * Copies the summary of every <code>Player</code> into a columnar <code>PlayerTable</code>.<br><br>
+     * Ranking and statistics should scan the table rather than <code>iterator()</code>, which visits
+     * <code>Player</code> objects scattered across the heap. The manager keeps a table of the whole database, built
+     * from the <code>Player</code>s on the first call and updated one row at a time by every change made through the
+     * manager from then on, including every game recorded, which <code>tableHandler()</code> applies once a
+     * <code>RoundEventBus</code> is set. Every call only copies its arrays, under the table's lock, so the rows all
+     * hold the <code>Player</code>s as they were at the same moment.
+     *
+     * @return a new <code>PlayerTable</code> with one row per <code>Player</code>
+     *
+     * @see PlayerTable
+     */
+    public PlayerTable table() {
+        if (!tableBuilt) {
+            buildTable();
+        }
+        return table.copy();
+    }
+
+    /**
+     * Builds the <code>PlayerTable</code> of the database, if it is not built yet.<br><br>
+     * The empty table is published before it is filled, so that games recorded meanwhile, which do not hold the
+     * manager's lock, update the rows already added, while the rows added afterwards read the <code>Player</code>s
+     * as those games left them.
+     */
+    private synchronized void buildTable() {
+        if (tableBuilt) {
+            return;
+        }
+        PlayerTable built = new PlayerTable(store.size());
+        table = built;
+        for (Player p : store.members()) {
+            built.put(p);
+        }
+        tableBuilt = true;
+    }
+
+    /**
+     * Opens a point-in-time snapshot of the database.<br><br>
+     * Opening it takes the same few steps however large the database is, and reading it neither blocks nor is
+     * disturbed by games being recorded or <code>Player</code>s being added, removed or renamed meanwhile. Reports
+     * and exports should read a snapshot rather than <code>iterator()</code>, whose <code>Player</code>s keep changing
+     * as games are recorded.
+     * The snapshot should be closed once read.
+     *
+     * @return a new open <code>PlayerSnapshot</code>
+     *
+     * @see PlayerSnapshot
+     * @see PlayerStore#members()
+     */
+    public synchronized PlayerSnapshot snapshot() {
+        return PlayerSnapshot.open(store.members());
     }
 
     /**
      * Saves any changes made to the database within the session.<br><br>
-     * This method will write the <code>PlayerDatabase</code> object to a file referred by
-     * the field <code>file</code>.
+     * This method will flush the <code>PlayerStore</code>, which writes the <code>PlayerDatabase</code> object to
+     * its file when using the default <code>FilePlayerStore</code>.
      *
      * @return <code>true</code> if the session is successfully saved. Otherwise it will return <code>false</code>
      *
-     * @see PlayerDatabase
-     * @see ObjectOutputStream
-     * @see FileOutputStream
+     * @see PlayerStore#flush()
      */
-    public boolean save() {
-        try (ObjectOutputStream output =
-                     new ObjectOutputStream(new FileOutputStream(file))) {
-            output.writeObject(database);
-            return true;
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
-            return false;
-        }
+    public synchronized boolean save() {
+        return store.flush();
     }
 
     /**
-     * Reads existing data to the <code>PlayerDatabase</code> from a file referred by the field
-     * <code>file</code> for the current session.
+     * Reads the changes other processes saved to a shared database, only updating the <code>Player</code>s that
+     * changed. Changes not saved yet are kept, and combined with those of the other processes on the next
+     * <code>save()</code>.
      *
-     * @return <code>true</code> if file is found and data is successfully read. Otherwise, it will return
+     * @return <code>true</code> if any <code>Player</code> was added, removed or updated. Otherwise, it will return
      * <code>false</code>.
      *
-     * @see PlayerDatabase
-     * @see ObjectInputStream
-     * @see FileInputStream
+     * @see PlayerStore#refresh()
+     */
+    public synchronized boolean reload() {
+        return store.refresh();
+    }
+
+    /**
+     * Starts watching a shared database, reloading the changes other processes save as soon as they are saved.
+     *
+     * @return <code>true</code> if the database is being watched. Otherwise, it will return <code>false</code>, such
+     * as for databases that are not shared.
+     *
+     * @see PlayerStore#watch(Runnable)
+     */
+    public boolean watch() {
+        return store.watch(this::reload);
+    }
+
+    /**
+     * Completes the subscribers of the <code>PlayerEventPublisher</code> and releases the resources held by the
+     * <code>PlayerStore</code>. Changes are not saved.
+     *
+     * @see PlayerStore#close()
+     */
+    public synchronized void close() {
+        publisher.close();
+        store.close();
+    }
+
+    /**
+     * This private inner class applies the changes other processes saved to the store to the derived state of the
+     * manager, and publishes them.<br><br>
+     * Called by the store while the manager's lock is held, though possibly from several of the store's threads at
+     * once, so the <code>Leaderboards</code> are dropped and rebuilt on their next use rather than updated.
      */
-    private boolean read() {
-        if (file.exists()) {
-            try (ObjectInputStream input =
-                         new ObjectInputStream(new FileInputStream(file))) {
-                this.database = (PlayerDatabase) input.readObject();
-                return true;
-            } catch (IOException | ClassNotFoundException e) {
-                e.printStackTrace();
-                System.out.println("Data not read. Application is still safe to run without loaded data.");
-                return false;
+    private class StoreChanges implements PlayerStore.ChangeListener {
+
+        @Override
+        public void added(Player player) {
+            if (index != null) {
+                index.add(player);
+            }
+            if (table != null) {
+                table.put(player);
+            }
+            leaderboards = null;
+            rankingVersion.incrementAndGet();
+            publisher.publish(PlayerEvent.added(player));
+        }
+
+        @Override
+        public void removed(Player player) {
+            player.markRemoved();
+            if (index != null) {
+                index.remove(player);
+            }
+            if (table != null) {
+                table.remove(player);
             }
+            leaderboards = null;
+            summaries.invalidate(player);
+            rankingVersion.incrementAndGet();
+            publisher.publish(PlayerEvent.removed(player));
         }
-        return false;
+
+        @Override
+        public void reloaded(Player player) {
+            if (index != null) {
+                index.update(player);
+            }
+            if (table != null) {
+                table.update(player);
+            }
+            leaderboards = null;
+            summaries.invalidate(player);
+            rankingVersion.incrementAndGet();
+            publisher.publish(PlayerEvent.reloaded(player));
+        }
+
     }
 
     /**
-     * This private static inner class serves as the data model used only by the <code>PlayerManager</code> class
+     * This static inner class serves as the data model used by the <code>FilePlayerStore</code> class
      * to store <code>Player</code> objects.<br><br>
-     * Uses a <code>List</code> implementation <code>ArrayList</code> of type <code>Player</code> as a
-     * data structure. Efficiency will deteriorate as more <code>Player</code> objects are stored.
+     * Uses a <code>List</code> implementation <code>CopyOnWriteArrayList</code> of type <code>Player</code> as a
+     * data structure, alongside a transient <code>HashMap</code> index by name that is rebuilt on demand after
+     * the database is read. Adding or removing a <code>Player</code> replaces the array of the list rather than
+     * changing it, so that <code>members()</code> can hand the current array to a <code>PlayerSnapshot</code>
+     * without copying it. Players are rarely added or removed compared to how often they play.<br><br>
+     * The database is written with its <code>Player</code>s in an <code>ArrayList</code>, as it always was.
      *
      * @author Samuel A. Kosasih
      *
      * @see Player
+     * @see FilePlayerStore
      */
-    private static class PlayerDatabase implements Serializable {
+    static class PlayerDatabase implements Serializable {
+
+        /**
+         * Pinned serialization version, matching the one computed for the originally shipped class so that existing
+         * <code>players.ser</code> files remain readable as fields are added.
+         */
+        private static final long serialVersionUID = 7712764722077215949L;
 
         /**
          * This field stores a <code>List</code> of type <code>Player</code>.<br><br>
@@ -177,17 +1008,70 @@ public class PlayerManager implements Serializable {
          *
          * @see List
          */
-        private final List<Player> playerList;
+        final List<Player> playerList;
+
+        /**
+         * This field stores a <code>Map</code> of <code>Player</code>s keyed by their names.<br><br>
+         * Not serialized; it is rebuilt from <code>playerList</code> the first time it is needed.
+         *
+         * @see Map
+         */
+        private transient Map<String, Player> index;
 
         /**
          * Default Constructor. <br><br>
-         * Instantiates a new <code>ArrayList</code> of type <code>Player</code> to store
+         * Instantiates a new <code>CopyOnWriteArrayList</code> of type <code>Player</code> to store
          * <code>Player</code> objects
          *
-         * @see ArrayList
+         * @see CopyOnWriteArrayList
          */
         public PlayerDatabase() {
-            this.playerList = new ArrayList<>();
+            this.playerList = new CopyOnWriteArrayList<>();
+        }
+
+        /**
+         * Constructs a database holding the given <code>Player</code>s.
+         *
+         * @param players the <code>Player</code>s, which are copied into a new <code>CopyOnWriteArrayList</code>
+         */
+        PlayerDatabase(Collection<Player> players) {
+            this.playerList = new CopyOnWriteArrayList<>(players);
+        }
+
+        /**
+         * Retrieves the <code>Player</code>s of the database as a list that later changes to the database do not
+         * affect, sharing the current array of <code>playerList</code>.
+         *
+         * @return a read-only <code>List</code> of the <code>Player</code>s currently in the database
+         *
+         * @see PlayerStore#members()
+         */
+        @SuppressWarnings("unchecked")
+        List<Player> members() {
+            return Collections.unmodifiableList(
+                    (List<Player>) ((CopyOnWriteArrayList<Player>) playerList).clone());
+        }
+
+        /**
+         * Writes the database, with its <code>Player</code>s in an <code>ArrayList</code>.
+         *
+         * @param out the stream to write to
+         * @throws IOException if an I/O error occurs
+         */
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            ObjectOutputStream.PutField fields = out.putFields();
+            fields.put("playerList", new ArrayList<>(playerList));
+            out.writeFields();
+        }
+
+        /**
+         * Replaces a database just read, whose <code>Player</code>s are in an <code>ArrayList</code>, with one
+         * holding them in a <code>CopyOnWriteArrayList</code>.
+         *
+         * @return the database to be used
+         */
+        private Object readResolve() {
+            return playerList instanceof CopyOnWriteArrayList ? this : new PlayerDatabase(playerList);
         }
 
         /**
@@ -202,6 +1086,55 @@ public class PlayerManager implements Serializable {
             return playerList.iterator();
         }
 
+        /**
+         * Retrieves the name index of the database, building it from <code>playerList</code> if needed.
+         *
+         * @return a <code>Map</code> of <code>Player</code>s keyed by their names
+         */
+        public Map<String, Player> index() {
+            if (index == null) {
+                index = new HashMap<>(Math.max(16, playerList.size() * 2));
+                for (Player p : playerList) {
+                    index.put(p.getName(), p);
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Adds a <code>Player</code> to both <code>playerList</code> and the name index.
+         *
+         * @param player the <code>Player</code> to be added
+         * @return <code>true</code> if the <code>Player</code> is added
+         */
+        public boolean add(Player player) {
+            index().put(player.getName(), player);
+            return playerList.add(player);
+        }
+
+        /**
+         * Adds many <code>Player</code>s to both <code>playerList</code> and the name index, copying the array of
+         * <code>playerList</code> once rather than once per <code>Player</code>.
+         *
+         * @param players the <code>Player</code>s to be added, whose names are not in the database yet
+         */
+        void addAll(Collection<Player> players) {
+            Map<String, Player> names = index();
+            for (Player p : players) {
+                names.put(p.getName(), p);
+            }
+            playerList.addAll(players);
+        }
+
+        /**
+         * Discards the name index, so that it is rebuilt from <code>playerList</code> the next time it is needed.
+         * <br><br>
+         * Used after bulk changes, which rebuild the index once instead of updating it for every <code>Player</code>.
+         */
+        void reindex() {
+            index = null;
+        }
+
     }
 
 }
@@ -0,0 +1,44 @@
+package game;
+
+import java.io.File;
+
+/**
+ * A command line tool to combine the <code>players.ser</code> files collected from several machines into one
+ * database.<br><br>
+ * Usage: <code>PlayerMerger &lt;output.ser&gt; &lt;input.ser&gt; [&lt;input.ser&gt; ...]</code><br><br>
+ * The output file is read first if it already exists, and every input file is then merged into it one at a time
+ * using <code>PlayerManager.merge()</code>. Does not require the JavaFX toolkit to run.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerManager#merge(File)
+ */
+public class PlayerMerger {
+
+    /**
+     * Merges the given input databases into the output database.
+     *
+     * @param args the output file, followed by one or more input files
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: PlayerMerger <output.ser> <input.ser> [<input.ser> ...]");
+            System.exit(2);
+        }
+        PlayerManager manager = new PlayerManager(new File(args[0]));
+        int failed = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (manager.merge(new File(args[i]))) {
+                System.out.println("Merged " + args[i]);
+            } else {
+                System.out.println("Skipped " + args[i] + " (not found or unreadable)");
+                failed++;
+            }
+        }
+        if (!manager.save()) {
+            System.exit(1);
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+}
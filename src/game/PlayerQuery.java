@@ -0,0 +1,322 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class is a query over the <code>Player</code>s of a <code>PlayerManager</code>, combining ranges of attempts,
+ * best times and last played times with an ordering and a limit, such as:
+ * <pre>
+ *     playerManager.query()
+ *             .between(PlayerQuery.Field.BEST_TIME, 0.18, 0.22)
+ *             .atLeast(PlayerQuery.Field.ATTEMPTS, 51)
+ *             .orderBy(PlayerQuery.Field.BEST_TIME, false)
+ *             .limit(10)
+ *             .list();
+ * </pre>
+ * Rather than walking every <code>Player</code>, the query reads one of the <code>PlayerIndex</code>es: the index of
+ * the ordering if the query is limited, so that the results come in order and the walk stops at the limit, and
+ * otherwise the index of the range holding the fewest <code>Player</code>s. The other ranges and filters are checked
+ * on the <code>Player</code>s read, and the results are only sorted if they were not read in order.<br><br>
+ * Results are streamed lazily from the index, so a query can be read while games are recorded. Every result matches
+ * the query when it is read, and is read once, though a <code>Player</code> whose values change during the read may
+ * be missed.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerIndex
+ * @see PlayerManager#query()
+ */
+public class PlayerQuery {
+
+    /**
+     * The number of <code>Player</code>s after which a range stops being counted when choosing an index.
+     */
+    private static final long COUNT_LIMIT = 4096;
+
+    /**
+     * The indexed fields of a <code>Player</code>.
+     */
+    public enum Field {
+
+        /**
+         * The number of attempts.
+         *
+         * @see Player#getAttempts()
+         */
+        ATTEMPTS,
+
+        /**
+         * The best time in seconds. <code>Player</code>s without attempts have no best time, and never match a range
+         * or ordering on it.
+         *
+         * @see Player#getBestTime()
+         */
+        BEST_TIME,
+
+        /**
+         * The time of the latest attempt, in epoch milliseconds, or <code>0</code> if unknown.
+         *
+         * @see Player#getLastPlayed()
+         */
+        LAST_PLAYED;
+
+        /**
+         * Reads the value of the field from a <code>Player</code>.
+         *
+         * @param player the <code>Player</code>
+         * @return the value, or <code>NaN</code> if the <code>Player</code> has none
+         */
+        double valueOf(Player player) {
+            switch (this) {
+                case ATTEMPTS:
+                    return player.getAttempts();
+                case BEST_TIME:
+                    Double best = player.getBestTime();
+                    return best == null ? Double.NaN : best;
+                default:
+                    return player.getLastPlayed();
+            }
+        }
+
+    }
+
+    /**
+     * This field stores the indexes the query reads from.
+     */
+    private final PlayerIndex index;
+
+    /**
+     * This field stores the ranges of the query, as the lowest and highest values allowed, both inclusive.
+     */
+    private final Map<Field, double[]> ranges = new EnumMap<>(Field.class);
+
+    /**
+     * This field stores the filters that cannot use an index.
+     */
+    private final List<Predicate<Player>> filters = new ArrayList<>();
+
+    /**
+     * This field stores the field the results are ordered by, or <code>null</code> for no particular order.
+     */
+    private Field orderBy;
+
+    /**
+     * This field indicates whether the results are ordered from the highest value to the lowest.
+     */
+    private boolean descending;
+
+    /**
+     * This field stores the maximum number of results.
+     */
+    private long limit = Long.MAX_VALUE;
+
+    /**
+     * Default Constructor.
+     *
+     * @param index the indexes the query reads from
+     */
+    PlayerQuery(PlayerIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Restricts the results to the <code>Player</code>s whose value of a field lies within a range. Ranges on the
+     * same field are intersected.
+     *
+     * @param field the field
+     * @param min   the lowest value allowed, inclusive
+     * @param max   the highest value allowed, inclusive
+     * @return this <code>PlayerQuery</code>
+     */
+    public PlayerQuery between(Field field, double min, double max) {
+        double[] range = ranges.get(field);
+        if (range == null) {
+            ranges.put(field, new double[]{min, max});
+        } else {
+            range[0] = Math.max(range[0], min);
+            range[1] = Math.min(range[1], max);
+        }
+        return this;
+    }
+
+    /**
+     * Restricts the results to the <code>Player</code>s whose value of a field is at least the given value.
+     *
+     * @param field the field
+     * @param min   the lowest value allowed, inclusive
+     * @return this <code>PlayerQuery</code>
+     */
+    public PlayerQuery atLeast(Field field, double min) {
+        return between(field, min, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Restricts the results to the <code>Player</code>s whose value of a field is at most the given value.
+     *
+     * @param field the field
+     * @param max   the highest value allowed, inclusive
+     * @return this <code>PlayerQuery</code>
+     */
+    public PlayerQuery atMost(Field field, double max) {
+        return between(field, Double.NEGATIVE_INFINITY, max);
+    }
+
+    /**
+     * Restricts the results to the <code>Player</code>s matching a predicate, which is checked on every
+     * <code>Player</code> read from the index rather than used to choose it.
+     *
+     * @param filter the predicate
+     * @return this <code>PlayerQuery</code>
+     */
+    public PlayerQuery filter(Predicate<Player> filter) {
+        filters.add(filter);
+        return this;
+    }
+
+    /**
+     * Orders the results by a field. <code>Player</code>s without a value for the field are left out.
+     *
+     * @param field      the field
+     * @param descending whether to order from the highest value to the lowest
+     * @return this <code>PlayerQuery</code>
+     */
+    public PlayerQuery orderBy(Field field, boolean descending) {
+        this.orderBy = field;
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * Limits the number of results.
+     *
+     * @param limit the maximum number of results
+     * @return this <code>PlayerQuery</code>
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    public PlayerQuery limit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Runs the query, streaming the results lazily from the chosen index.
+     *
+     * @return a <code>Stream</code> of the matching <code>Player</code>s
+     */
+    public Stream<Player> stream() {
+        Field driver = chooseIndex();
+        double[] range = ranges.get(driver);
+        NavigableMap<Double, Set<Player>> entries = index.get(driver);
+        if (range != null) {
+            if (!(range[0] <= range[1])) {
+                return Stream.empty();
+            }
+            entries = entries.subMap(range[0], true, range[1], true);
+        }
+        boolean inOrder = orderBy == null || orderBy == driver;
+        if (descending && orderBy == driver) {
+            entries = entries.descendingMap();
+        }
+        Stream<Player> results = entries.values().stream().flatMap(Set::stream).filter(this::matches).distinct();
+        if (!inOrder) {
+            Comparator<Player> order = Comparator.comparingDouble(orderBy::valueOf);
+            results = results.sorted(descending ? order.reversed() : order);
+        }
+        return results.limit(limit);
+    }
+
+    /**
+     * Runs the query, iterating lazily through the results.
+     *
+     * @return an <code>Iterator</code> of the matching <code>Player</code>s
+     */
+    public Iterator<Player> iterator() {
+        return stream().iterator();
+    }
+
+    /**
+     * Runs the query, collecting the results.
+     *
+     * @return a new <code>List</code> of the matching <code>Player</code>s
+     */
+    public List<Player> list() {
+        return stream().collect(Collectors.toList());
+    }
+
+    /**
+     * Describes how the query would be run, naming the index read and whether the results need sorting.
+     *
+     * @return the description
+     */
+    public String explain() {
+        Field driver = chooseIndex();
+        double[] range = ranges.get(driver);
+        return "index " + driver + (range == null ? " (full)" : " [" + range[0] + ", " + range[1] + "]")
+                + (orderBy == null || orderBy == driver ? "" : ", sort by " + orderBy)
+                + (limit == Long.MAX_VALUE ? "" : ", limit " + limit);
+    }
+
+    /**
+     * Chooses the index to read: that of the ordering if the query is limited or has no range, and otherwise that of
+     * the range holding the fewest <code>Player</code>s.
+     *
+     * @return the field whose index is read
+     */
+    private Field chooseIndex() {
+        if (orderBy != null && (limit != Long.MAX_VALUE || ranges.isEmpty())) {
+            return orderBy;
+        }
+        Field best = null;
+        long fewest = Long.MAX_VALUE;
+        for (Map.Entry<Field, double[]> e : ranges.entrySet()) {
+            long count = index.count(e.getKey(), e.getValue()[0], e.getValue()[1], Math.min(fewest, COUNT_LIMIT));
+            if (count < fewest) {
+                best = e.getKey();
+                fewest = count;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        return orderBy != null ? orderBy : Field.ATTEMPTS;
+    }
+
+    /**
+     * Checks a <code>Player</code> read from an index against every range and filter, with its current values.
+     *
+     * @param player the <code>Player</code>
+     * @return <code>true</code> if the <code>Player</code> matches the query. Otherwise, it will return
+     * <code>false</code>.
+     */
+    private boolean matches(Player player) {
+        for (Map.Entry<Field, double[]> e : ranges.entrySet()) {
+            double value = e.getKey().valueOf(player);
+            if (!(value >= e.getValue()[0] && value <= e.getValue()[1])) {
+                return false;
+            }
+        }
+        if (orderBy != null && Double.isNaN(orderBy.valueOf(player))) {
+            return false;
+        }
+        for (Predicate<Player> filter : filters) {
+            if (!filter.test(player)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,263 @@
+package game;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents a point-in-time view of the <code>Player</code>s of a database, which later changes to the
+ * database do not affect.<br><br>
+ * Every change to a <code>Player</code> is stamped with the value of a clock shared by the whole process, and every
+ * snapshot is given its own value of the clock when it is opened. Opening a snapshot only records that value and
+ * keeps the list of the <code>Player</code>s of the store as it is, which the store never changes in place, so it
+ * takes the same few steps however large the database is and never waits for the game.<br><br>
+ * A <code>Player</code> about to be changed while an open snapshot can still see its current state first keeps a
+ * frozen copy of it, sharing the full blocks of its history. The copies are dropped once no open snapshot can see
+ * them, so the memory taken by a snapshot follows the changes made while it is open rather than the size of the
+ * database, and nothing is copied at all while no snapshot is open.<br><br>
+ * Iterating a snapshot gives, for every <code>Player</code>, a frozen copy of the <code>Player</code> as it was when
+ * the snapshot was opened. A <code>Player</code> that did not change since it was last read hands out the same copy
+ * again, to any snapshot, so reading a database again only copies the <code>Player</code>s that changed. The copies
+ * are read-only, and are not the <code>Player</code>s of the database: they should not be changed, nor used where the
+ * identity of a <code>Player</code> matters. A snapshot should be closed once read, so that the copies kept for it
+ * can be dropped.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerManager#snapshot()
+ * @see Player#asOf(long)
+ */
+public class PlayerSnapshot implements Iterable<Player>, AutoCloseable {
+
+    /**
+     * The clock stamping the changes to the <code>Player</code>s and the snapshots.
+     */
+    private static final AtomicLong CLOCK = new AtomicLong();
+
+    /**
+     * The number of snapshots being opened, whose value of the clock may not be among <code>OPEN</code> yet.
+     */
+    private static final AtomicInteger OPENING = new AtomicInteger();
+
+    /**
+     * The open snapshots, keyed by their value of the clock.
+     */
+    private static final ConcurrentSkipListMap<Long, PlayerSnapshot> OPEN = new ConcurrentSkipListMap<>();
+
+    /**
+     * The <code>Player</code>s keeping frozen copies of themselves, which are pruned as snapshots are closed.
+     */
+    private static final Queue<Player> RETAINED = new ConcurrentLinkedQueue<>();
+
+    /**
+     * This field stores the value of the clock the snapshot was opened at.
+     */
+    private final long epoch;
+
+    /**
+     * This field stores the <code>Player</code>s of the database when the snapshot was opened.
+     */
+    private final List<Player> members;
+
+    /**
+     * This field indicates whether the snapshot was closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Opens a snapshot.
+     *
+     * @param epoch   the value of the clock the snapshot is opened at
+     * @param members the <code>Player</code>s of the database, which are not changed afterwards
+     */
+    private PlayerSnapshot(long epoch, List<Player> members) {
+        this.epoch = epoch;
+        this.members = members;
+    }
+
+    /**
+     * Opens a snapshot of the given <code>Player</code>s.<br><br>
+     * The list must not be changed afterwards, and must be taken while no <code>Player</code> is added to or removed
+     * from the database.
+     *
+     * @param members the <code>Player</code>s of the database, such as from <code>PlayerStore.members()</code>
+     * @return the open snapshot
+     *
+     * @see PlayerStore#members()
+     */
+    static PlayerSnapshot open(List<Player> members) {
+        OPENING.incrementAndGet();
+        try {
+            long epoch = CLOCK.incrementAndGet();
+            PlayerSnapshot snapshot = new PlayerSnapshot(epoch, members);
+            OPEN.put(epoch, snapshot);
+            return snapshot;
+        } finally {
+            OPENING.decrementAndGet();
+        }
+    }
+
+    /**
+     * Advances the clock, as a <code>Player</code> is about to change. Allocates nothing.
+     *
+     * @return the value of the clock stamping the change
+     */
+    static long tick() {
+        return CLOCK.incrementAndGet();
+    }
+
+    /**
+     * Checks whether an open snapshot may still see a state of a <code>Player</code>, which must then be kept
+     * before it is changed. Allocates nothing while no snapshot is open.<br><br>
+     * A snapshot being opened is assumed to see every state, as its value of the clock is not known yet.
+     *
+     * @param from the value of the clock the state was written at
+     * @param to   the value of the clock the state was replaced at, or <code>Long.MAX_VALUE</code> if it is current
+     * @return <code>true</code> if a snapshot may see the state. Otherwise, it will return <code>false</code>.
+     */
+    static boolean isVisible(long from, long to) {
+        if (OPENING.get() > 0) {
+            return true;
+        }
+        if (OPEN.isEmpty()) {
+            return false;
+        }
+        Long epoch = OPEN.ceilingKey(from);
+        return epoch != null && epoch < to;
+    }
+
+    /**
+     * Registers a <code>Player</code> that started keeping frozen copies of itself, so that they are pruned as
+     * snapshots are closed.
+     *
+     * @param player the <code>Player</code>
+     */
+    static void retain(Player player) {
+        RETAINED.add(player);
+    }
+
+    /**
+     * Retrieves the number of <code>Player</code>s in the snapshot.
+     *
+     * @return the number of <code>Player</code>s
+     */
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * Provides an <code>Iterator</code> over the <code>Player</code>s as they were when the snapshot was opened.
+     *
+     * @return an <code>Iterator</code> of frozen copies of the <code>Player</code>s
+     * @throws IllegalStateException if the snapshot was closed
+     */
+    @Override
+    public Iterator<Player> iterator() {
+        checkOpen();
+        Iterator<Player> it = members.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Player next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return resolve(it.next());
+            }
+        };
+    }
+
+    /**
+     * Retrieves the <code>Player</code>s of the database when the snapshot was opened, as they are now.
+     *
+     * @return the <code>Player</code>s, which should be read through <code>resolve()</code>
+     */
+    List<Player> members() {
+        return members;
+    }
+
+    /**
+     * Retrieves a <code>Player</code> of the database as it was when the snapshot was opened.
+     *
+     * @param player a <code>Player</code> of the database
+     * @return a frozen copy of the <code>Player</code>
+     * @throws IllegalStateException if the snapshot was closed
+     */
+    Player resolve(Player player) {
+        checkOpen();
+        return player.asOf(epoch);
+    }
+
+    /**
+     * Closes the snapshot, and drops the frozen copies no other open snapshot can see.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        OPEN.remove(epoch, this);
+        for (int n = RETAINED.size(); n > 0; n--) {
+            Player p = RETAINED.poll();
+            if (p == null) {
+                break;
+            }
+            if (p.pruneImages()) {
+                RETAINED.add(p);
+            }
+        }
+    }
+
+    /**
+     * Checks that the snapshot is still open.
+     *
+     * @throws IllegalStateException if the snapshot was closed
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Snapshot is closed");
+        }
+    }
+
+    /**
+     * Joins the lists of <code>Player</code>s of several stores into one list, without copying them.
+     *
+     * @param parts the lists, which are not changed afterwards
+     * @return a read-only <code>List</code> of the <code>Player</code>s of every list, in order
+     */
+    static List<Player> join(List<List<Player>> parts) {
+        return new AbstractList<>() {
+            @Override
+            public Player get(int index) {
+                for (List<Player> part : parts) {
+                    if (index < part.size()) {
+                        return part.get(index);
+                    }
+                    index -= part.size();
+                }
+                throw new IndexOutOfBoundsException();
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (List<Player> part : parts) {
+                    size += part.size();
+                }
+                return size;
+            }
+        };
+    }
+
+}
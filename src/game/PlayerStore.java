@@ -0,0 +1,262 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The storage interface behind <code>PlayerManager</code>.<br><br>
+ * A store holds <code>Player</code> objects keyed by their names. The <code>Player</code> objects handed out by a
+ * store are live: the same name maps to the same instance while it is in use, and changes made to it are persisted
+ * by the next <code>flush()</code>. Implementations need not be thread-safe; <code>PlayerManager</code> serializes
+ * every call.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerManager
+ * @see FilePlayerStore
+ * @see JdbcPlayerStore
+ */
+public interface PlayerStore {
+
+    /**
+     * Retrieves the <code>Player</code> with the given name.
+     *
+     * @param name the name of the <code>Player</code>
+     * @return the <code>Player</code>, or <code>null</code> if not found
+     */
+    Player get(String name);
+
+    /**
+     * Adds a new <code>Player</code> to the store.
+     *
+     * @param player the <code>Player</code> to be added
+     * @return <code>true</code> if no other <code>Player</code> has the same name and the <code>Player</code> is
+     * added. Otherwise, it will return <code>false</code>.
+     */
+    boolean put(Player player);
+
+    /**
+     * Removes the <code>Player</code> with the given name.
+     *
+     * @param name the name of the <code>Player</code>
+     * @return the removed <code>Player</code>, or <code>null</code> if not found
+     */
+    Player delete(String name);
+
+    /**
+     * Renames a <code>Player</code> held by the store.
+     *
+     * @param player  the <code>Player</code> to be renamed
+     * @param newName the new name
+     * @return <code>true</code> if the new name is not used by any other <code>Player</code> and the
+     * <code>Player</code> is renamed. Otherwise, it will return <code>false</code>.
+     */
+    boolean rename(Player player, String newName);
+
+    /**
+     * Adds many new <code>Player</code>s to the store.<br><br>
+     * <code>Player</code>s whose names are already taken, either in the store or earlier in
+     * <code>players</code>, are skipped. Implementations should do this in a single pass.
+     *
+     * @param players the <code>Player</code>s to be added
+     * @return the number of <code>Player</code>s added
+     */
+    default int putAll(Collection<Player> players) {
+        int added = 0;
+        for (Player p : players) {
+            if (put(p)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes every <code>Player</code> matching the given predicate.<br><br>
+     * Implementations should do this in a single pass, rather than deleting the <code>Player</code>s one by one.
+     *
+     * @param filter the predicate selecting the <code>Player</code>s to be removed
+     * @return the removed <code>Player</code>s
+     */
+    default List<Player> deleteIf(Predicate<Player> filter) {
+        List<Player> matches = new ArrayList<>();
+        Iterator<Player> it = scan();
+        while (it.hasNext()) {
+            Player p = it.next();
+            if (filter.test(p)) {
+                matches.add(p);
+            }
+        }
+        for (Player p : matches) {
+            delete(p.getName());
+        }
+        return matches;
+    }
+
+    /**
+     * Renames many <code>Player</code>s held by the store at once.<br><br>
+     * Either every <code>Player</code> is renamed or none is: the batch is rejected if a new name is used by a
+     * <code>Player</code> in the store, or by more than one entry of the batch. Entries keeping their current name
+     * are ignored.
+     *
+     * @param renames the new names, keyed by the <code>Player</code>s to be renamed
+     * @return <code>true</code> if the <code>Player</code>s are renamed. Otherwise, it will return
+     * <code>false</code>.
+     */
+    default boolean renameAll(Map<Player, String> renames) {
+        if (!canRenameAll(renames)) {
+            return false;
+        }
+        for (Map.Entry<Player, String> e : renames.entrySet()) {
+            if (!e.getValue().equals(e.getKey().getName())) {
+                rename(e.getKey(), e.getValue());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that a batch of renames can be applied as a whole.
+     *
+     * @param renames the new names, keyed by the <code>Player</code>s to be renamed
+     * @return <code>true</code> if no new name is taken in the store or repeated within the batch
+     *
+     * @see #renameAll(Map)
+     */
+    default boolean canRenameAll(Map<Player, String> renames) {
+        Set<String> newNames = new HashSet<>();
+        for (Map.Entry<Player, String> e : renames.entrySet()) {
+            String newName = e.getValue();
+            if (!newName.equals(e.getKey().getName()) && (!newNames.add(newName) || get(newName) != null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Provides an <code>Iterator</code> over every <code>Player</code> in the store.
+     *
+     * @return an <code>Iterator</code> of type <code>Player</code>
+     */
+    Iterator<Player> scan();
+
+    /**
+     * Retrieves the fastest <code>Player</code>s, ordered by best time.
+     *
+     * @param limit the maximum number of <code>Player</code>s to be returned
+     * @return a <code>List</code> of at most <code>limit</code> <code>Player</code>s with a best time
+     */
+    List<Player> rank(int limit);
+
+    /**
+     * Retrieves the number of <code>Player</code>s in the store.
+     *
+     * @return the number of <code>Player</code>s
+     */
+    int size();
+
+    /**
+     * Retrieves the <code>Player</code>s of the store as a list that later changes to the store do not affect, to
+     * open a <code>PlayerSnapshot</code> on.<br><br>
+     * The default copies the <code>Player</code>s from <code>scan()</code>, so a store keeping only some of its
+     * <code>Player</code>s in memory loads all of them, and they stay reachable for as long as the list is. Stores
+     * keeping their <code>Player</code>s in a list that is never changed in place return it as it is, without copying
+     * it.
+     *
+     * @return a <code>List</code> of the <code>Player</code>s currently in the store
+     *
+     * @see PlayerSnapshot
+     */
+    default List<Player> members() {
+        List<Player> members = new ArrayList<>(size());
+        Iterator<Player> it = scan();
+        while (it.hasNext()) {
+            members.add(it.next());
+        }
+        return members;
+    }
+
+    /**
+     * Persists every change made to the store and to the <code>Player</code>s it handed out.
+     *
+     * @return <code>true</code> if the changes are persisted. Otherwise, it will return <code>false</code>.
+     */
+    boolean flush();
+
+    /**
+     * Sets the listener told about the changes other processes saved to the store, as they are read by
+     * <code>refresh()</code> or <code>flush()</code>. Stores that are not shared ignore it.
+     *
+     * @param listener the listener, or <code>null</code> for none
+     */
+    default void setChangeListener(ChangeListener listener) {
+    }
+
+    /**
+     * Reads the changes other processes saved to the store since it was last read or flushed, only updating the
+     * <code>Player</code>s that changed. Changes not flushed yet are kept.
+     *
+     * @return <code>true</code> if any <code>Player</code> was added, removed or updated. Otherwise, it will return
+     * <code>false</code>, as it always does for stores that are not shared.
+     */
+    default boolean refresh() {
+        return false;
+    }
+
+    /**
+     * Starts watching the store for changes saved by other processes on a daemon thread, which runs the given
+     * callback after every change, until the store is closed. The callback is expected to call <code>refresh()</code>
+     * while holding the same lock as every other call to the store.
+     *
+     * @param onChange the callback
+     * @return <code>true</code> if the store is being watched. Otherwise, it will return <code>false</code>, as it
+     * always does for stores that are not shared.
+     */
+    default boolean watch(Runnable onChange) {
+        return false;
+    }
+
+    /**
+     * Releases the resources held by the store, without flushing.
+     */
+    void close();
+
+    /**
+     * The listener of a shared store, told about every <code>Player</code> other processes added, removed or
+     * changed as the changes are read into the store.
+     *
+     * @see #setChangeListener(ChangeListener)
+     */
+    interface ChangeListener {
+
+        /**
+         * Called after a <code>Player</code> added by another process is added to the store.
+         *
+         * @param player the <code>Player</code> added
+         */
+        void added(Player player);
+
+        /**
+         * Called after a <code>Player</code> removed by another process is removed from the store.
+         *
+         * @param player the <code>Player</code> removed
+         */
+        void removed(Player player);
+
+        /**
+         * Called after a <code>Player</code> changed by another process is updated in place.
+         *
+         * @param player the <code>Player</code> updated
+         */
+        void reloaded(Player player);
+
+    }
+
+}
@@ -0,0 +1,257 @@
+package game;
+
+/**
+ * This class is an immutable profile summary of a <code>Player</code>, as shown when the <code>Player</code> is
+ * selected in the player dialog.<br><br>
+ * Besides the <code>Player</code>'s own results, it places the <code>Player</code> among every other
+ * <code>Player</code> and summarizes the attempts of the last <code>RECENT_DAYS</code> days. Summaries remember
+ * the version stamps they were computed from, so that <code>SummaryCache</code> can tell when they are stale.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see SummaryCache
+ */
+public class PlayerSummary {
+
+    /**
+     * The number of days covered by the recent statistics.
+     */
+    public static final int RECENT_DAYS = 30;
+
+    /**
+     * This field stores the name of the <code>Player</code>.
+     */
+    private final String name;
+
+    /**
+     * This field stores the best time of the <code>Player</code>, or <code>null</code>.
+     */
+    private final Double bestTime;
+
+    /**
+     * This field stores the number of attempts of the <code>Player</code>.
+     */
+    private final int attempts;
+
+    /**
+     * This field stores the position of the <code>Player</code> among the ranked <code>Player</code>s, or
+     * <code>0</code>.
+     */
+    private final int rank;
+
+    /**
+     * This field stores the number of <code>Player</code>s with a best time.
+     */
+    private final int rankedPlayers;
+
+    /**
+     * This field stores the share of ranked <code>Player</code>s who are slower, or <code>NaN</code>.
+     */
+    private final double shareBeaten;
+
+    /**
+     * This field stores the number of attempts in the last <code>RECENT_DAYS</code> days.
+     */
+    private final long recentAttempts;
+
+    /**
+     * This field stores the mean time of the recent attempts, or <code>NaN</code>.
+     */
+    private final double recentMean;
+
+    /**
+     * This field stores the standard deviation of the recent attempts, or <code>NaN</code>.
+     */
+    private final double recentStandardDeviation;
+
+    /**
+     * This field stores the version stamp of the <code>Player</code> the summary is computed from.
+     */
+    private final long version;
+
+    /**
+     * This field stores the ranking version of the <code>PlayerManager</code> the summary is computed from.
+     */
+    private final long rankingVersion;
+
+    /**
+     * Default Constructor.
+     *
+     * @param name           the name of the <code>Player</code>
+     * @param bestTime       the best time of the <code>Player</code>, or <code>null</code>
+     * @param attempts       the number of attempts of the <code>Player</code>
+     * @param rank           the position of the <code>Player</code>, or <code>0</code> if unranked
+     * @param rankedPlayers  the number of <code>Player</code>s with a best time
+     * @param shareBeaten    the share of ranked <code>Player</code>s who are slower, or <code>NaN</code>
+     * @param recent         the statistics of the recent attempts
+     * @param version        the version stamp of the <code>Player</code> the summary is computed from
+     * @param rankingVersion the ranking version of the <code>PlayerManager</code> the summary is computed from
+     */
+    private PlayerSummary(String name, Double bestTime, int attempts, int rank, int rankedPlayers,
+                          double shareBeaten, AttemptRollup recent, long version, long rankingVersion) {
+        this.name = name;
+        this.bestTime = bestTime;
+        this.attempts = attempts;
+        this.rank = rank;
+        this.rankedPlayers = rankedPlayers;
+        this.shareBeaten = shareBeaten;
+        this.recentAttempts = recent.getCount();
+        this.recentMean = recent.getMean();
+        this.recentStandardDeviation = recent.getStandardDeviation();
+        this.version = version;
+        this.rankingVersion = rankingVersion;
+    }
+
+    /**
+     * Computes the summary of a <code>Player</code>.<br><br>
+     * The version stamp should be read before the <code>Player</code>, so that a change made while computing
+     * leaves the summary marked as stale rather than the other way around.
+     *
+     * @param player         the <code>Player</code> to be summarized
+     * @param version        the version stamp of the <code>Player</code>, read beforehand
+     * @param rankedTimes    the best times of every ranked <code>Player</code>, in ascending order
+     * @param rankingVersion the ranking version of the <code>PlayerManager</code> the best times were read at
+     * @param now            the current time in epoch milliseconds
+     * @return the new <code>PlayerSummary</code>
+     */
+    static PlayerSummary compute(Player player, long version, double[] rankedTimes, long rankingVersion,
+                                 long now) {
+        Double best = player.getBestTime();
+        int rank = 0;
+        double shareBeaten = Double.NaN;
+        if (best != null && rankedTimes.length > 0) {
+            rank = countBelow(rankedTimes, best, false) + 1;
+            shareBeaten = (double) (rankedTimes.length - countBelow(rankedTimes, best, true)) / rankedTimes.length;
+        }
+        AttemptRollup recent = player.getStats(RetentionPolicy.DEFAULT,
+                now - RECENT_DAYS * 24 * 60 * 60 * 1000L, Long.MAX_VALUE);
+        return new PlayerSummary(player.getName(), best, player.getAttempts(), rank, rankedTimes.length,
+                shareBeaten, recent, version, rankingVersion);
+    }
+
+    /**
+     * Counts the times lower than the given one, using a binary search.
+     *
+     * @param sorted    the times in ascending order
+     * @param time      the time to be placed
+     * @param inclusive whether times equal to <code>time</code> are counted as well
+     * @return the number of times lower than, or if <code>inclusive</code> lower than or equal to, <code>time</code>
+     */
+    private static int countBelow(double[] sorted, double time, boolean inclusive) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < time || inclusive && sorted[mid] == time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Retrieves the name of the <code>Player</code>.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieves the best time of the <code>Player</code>.
+     *
+     * @return the best time in seconds, or <code>null</code> if the <code>Player</code> has no attempts
+     */
+    public Double getBestTime() {
+        return bestTime;
+    }
+
+    /**
+     * Retrieves the number of attempts of the <code>Player</code>.
+     *
+     * @return the number of attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Retrieves the position of the <code>Player</code> among every <code>Player</code> with a best time.
+     *
+     * @return the rank starting from <code>1</code>, or <code>0</code> if the <code>Player</code> has no attempts
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * Retrieves the number of <code>Player</code>s with a best time.
+     *
+     * @return the number of ranked <code>Player</code>s
+     */
+    public int getRankedPlayers() {
+        return rankedPlayers;
+    }
+
+    /**
+     * Retrieves the share of ranked <code>Player</code>s whose best time is slower than this one.
+     *
+     * @return the share between 0 and 1, or <code>NaN</code> if the <code>Player</code> has no attempts
+     */
+    public double getShareBeaten() {
+        return shareBeaten;
+    }
+
+    /**
+     * Retrieves the number of attempts in the last <code>RECENT_DAYS</code> days.
+     *
+     * @return the number of recent attempts
+     */
+    public long getRecentAttempts() {
+        return recentAttempts;
+    }
+
+    /**
+     * Retrieves the mean time of the attempts in the last <code>RECENT_DAYS</code> days.
+     *
+     * @return the mean in seconds, or <code>NaN</code> if there are no recent attempts
+     */
+    public double getRecentMean() {
+        return recentMean;
+    }
+
+    /**
+     * Retrieves the standard deviation of the attempts in the last <code>RECENT_DAYS</code> days.
+     *
+     * @return the standard deviation in seconds, or <code>NaN</code> if there are no recent attempts
+     */
+    public double getRecentStandardDeviation() {
+        return recentStandardDeviation;
+    }
+
+    /**
+     * Retrieves the version stamp of the <code>Player</code> the summary is computed from.
+     *
+     * @return the version stamp
+     *
+     * @see Player#getVersion()
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves the ranking version of the <code>PlayerManager</code> the summary is computed from.
+     *
+     * @return the ranking version
+     *
+     * @see PlayerManager#getRankingVersion()
+     */
+    public long getRankingVersion() {
+        return rankingVersion;
+    }
+
+}
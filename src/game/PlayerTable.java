@@ -0,0 +1,621 @@
+package game;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class stores the summary of many <code>Player</code>s as a table of parallel primitive arrays.<br><br>
+ * Best times are stored in a <code>double[]</code> with <code>NaN</code> standing for a player without attempts,
+ * attempts in an <code>int[]</code>, registration times in a <code>long[]</code>, and names in a single UTF-8 byte
+ * dictionary addressed by offsets. Compared to a list of <code>Player</code>s, each row takes a few dozen bytes
+ * instead of several objects scattered across the heap, and full-table scans run as tight loops over contiguous
+ * arrays.<br><br>
+ * A <code>PlayerManager</code> keeps one table for its whole database, built the first time it is requested and
+ * then kept up to date by every change made through the manager, one row at a time: <code>put()</code>,
+ * <code>update()</code>, <code>rename()</code> and <code>remove()</code> find the row of a <code>Player</code> from
+ * the hint it keeps, checked against the name of the row, and look the name up in a map of rows when the hint is
+ * stale, so that every change takes the same few steps however large the table is. The map is only built the first
+ * time a hint is missed, so copies handed to readers do not pay for it. Removing a row moves the last row into its
+ * place, and the bytes of names that were replaced are reclaimed once they make up half of the dictionary. Those methods are synchronized, so that games recorded on the game thread can update the
+ * table while it is read.<br><br>
+ * Readers are given a detached <code>copy()</code>, which later changes do not reach, and can read its rows
+ * through a reusable <code>Row</code> view.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerManager#table()
+ */
+public class PlayerTable {
+
+    /**
+     * This field stores the number of rows in the table.
+     */
+    private int size;
+
+    /**
+     * This field stores the best time of each row, or <code>NaN</code> if the player has no attempts.
+     */
+    private double[] bestTimes;
+
+    /**
+     * This field stores the number of attempts of each row.
+     */
+    private int[] attempts;
+
+    /**
+     * This field stores the registration time of each row, in epoch milliseconds, or <code>0</code> if unknown.
+     */
+    private long[] registered;
+
+    /**
+     * This field stores the UTF-8 encoded names of every row, one after another.
+     */
+    private byte[] names;
+
+    /**
+     * This field stores the offset of each row's name in <code>names</code>.
+     */
+    private int[] nameOffsets;
+
+    /**
+     * This field stores the length in bytes of each row's name.
+     */
+    private int[] nameLengths;
+
+    /**
+     * This field stores the number of bytes of <code>names</code> in use, including those of replaced names.
+     */
+    private int namesEnd;
+
+    /**
+     * This field stores the number of bytes of <code>names</code> holding names that were replaced or removed.
+     */
+    private int garbage;
+
+    /**
+     * This field stores the row of every name, or <code>null</code> until a name is first looked up without a valid
+     * hint.
+     */
+    private Map<String, Integer> rows;
+
+    /**
+     * Constructs an empty table with room for the given number of rows.
+     *
+     * @param capacity the initial number of rows the table can hold
+     */
+    public PlayerTable(int capacity) {
+        capacity = Math.max(capacity, 8);
+        bestTimes = new double[capacity];
+        attempts = new int[capacity];
+        registered = new long[capacity];
+        names = new byte[capacity * 8];
+        nameOffsets = new int[capacity];
+        nameLengths = new int[capacity];
+    }
+
+    /**
+     * Builds a table from a collection of <code>Player</code>s.
+     *
+     * @param players the <code>Player</code>s to be copied into the table
+     * @return a new <code>PlayerTable</code> with one row per <code>Player</code>, in iteration order
+     */
+    public static PlayerTable of(Collection<Player> players) {
+        PlayerTable table = new PlayerTable(players.size());
+        for (Player p : players) {
+            table.add(p);
+        }
+        return table;
+    }
+
+    /**
+     * Appends a row for the given <code>Player</code>.
+     *
+     * @param player the <code>Player</code> to be copied into the table
+     */
+    public void add(Player player) {
+        Double best = player.getBestTime();
+        add(player.getName(), best == null ? Double.NaN : best, player.getAttempts(), player.getRegistered());
+    }
+
+    /**
+     * Appends a row.
+     *
+     * @param name       the player's name
+     * @param bestTime   the player's best time, or <code>NaN</code> if the player has no attempts
+     * @param attempts   the player's number of attempts
+     * @param registered the player's registration time in epoch milliseconds, or <code>0</code> if unknown
+     */
+    public synchronized void add(String name, double bestTime, int attempts, long registered) {
+        if (size == bestTimes.length) {
+            int capacity = size * 2;
+            bestTimes = Arrays.copyOf(bestTimes, capacity);
+            this.attempts = Arrays.copyOf(this.attempts, capacity);
+            this.registered = Arrays.copyOf(this.registered, capacity);
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+            nameLengths = Arrays.copyOf(nameLengths, capacity);
+        }
+        setName(size, name);
+        if (rows != null) {
+            rows.put(name, size);
+        }
+        bestTimes[size] = bestTime;
+        this.attempts[size] = attempts;
+        this.registered[size++] = registered;
+    }
+
+    /**
+     * Adds a row for the given <code>Player</code>, or updates its row if it already has one.<br><br>
+     * The columns are read while holding the lock of the <code>Player</code>, so that they all come from the same
+     * state.
+     *
+     * @param player the <code>Player</code> to be copied into the table
+     */
+    synchronized void put(Player player) {
+        synchronized (player) {
+            int row = find(player.getName(), player.row);
+            if (row < 0) {
+                player.row = size;
+                add(player.getName(), player.getBestTimeOrNaN(), player.getAttempts(), player.getRegistered());
+            } else {
+                player.row = row;
+                copyColumns(row, player);
+            }
+        }
+    }
+
+    /**
+     * Updates the row of the given <code>Player</code>, such as after a game.<br><br>
+     * Does nothing for a <code>Player</code> without a row, such as one removed meanwhile, which is left out rather
+     * than added back. Allocates nothing while the hint of the <code>Player</code> is up to date.
+     *
+     * @param player the <code>Player</code> whose row should be updated
+     * @return <code>true</code> if the <code>Player</code> has a row. Otherwise, it will return <code>false</code>.
+     */
+    synchronized boolean update(Player player) {
+        synchronized (player) {
+            int row = find(player.getName(), player.row);
+            if (row < 0) {
+                return false;
+            }
+            player.row = row;
+            copyColumns(row, player);
+            return true;
+        }
+    }
+
+    /**
+     * Renames the row of the given <code>Player</code>, which has already been renamed.
+     *
+     * @param player  the renamed <code>Player</code>
+     * @param oldName the name the <code>Player</code> had before
+     */
+    synchronized void rename(Player player, String oldName) {
+        int row = find(oldName, player.row);
+        if (row >= 0) {
+            garbage += nameLengths[row];
+            setName(row, player.getName());
+            if (rows != null) {
+                rows.remove(oldName);
+                rows.put(player.getName(), row);
+            }
+            player.row = row;
+        }
+    }
+
+    /**
+     * Removes the row of the given <code>Player</code>, moving the last row into its place. The hint of the
+     * <code>Player</code> of the moved row goes stale, and its row is found in the map of rows next time.
+     *
+     * @param player the removed <code>Player</code>
+     */
+    synchronized void remove(Player player) {
+        int row = find(player.getName(), player.row);
+        if (row < 0) {
+            return;
+        }
+        garbage += nameLengths[row];
+        int last = --size;
+        if (rows != null) {
+            rows.remove(player.getName());
+            if (row != last) {
+                rows.put(getName(last), row);
+            }
+        }
+        bestTimes[row] = bestTimes[last];
+        attempts[row] = attempts[last];
+        registered[row] = registered[last];
+        nameOffsets[row] = nameOffsets[last];
+        nameLengths[row] = nameLengths[last];
+        if (size == 0) {
+            namesEnd = 0;
+            garbage = 0;
+        }
+    }
+
+    /**
+     * Creates a detached copy of the table, which later changes to this table do not reach. The names are copied
+     * without the bytes of replaced names.
+     *
+     * @return a new <code>PlayerTable</code> holding the same rows
+     */
+    synchronized PlayerTable copy() {
+        PlayerTable copy = new PlayerTable(size);
+        System.arraycopy(bestTimes, 0, copy.bestTimes, 0, size);
+        System.arraycopy(attempts, 0, copy.attempts, 0, size);
+        System.arraycopy(registered, 0, copy.registered, 0, size);
+        copy.names = new byte[namesEnd - garbage];
+        for (int row = 0; row < size; row++) {
+            System.arraycopy(names, nameOffsets[row], copy.names, copy.namesEnd, nameLengths[row]);
+            copy.nameOffsets[row] = copy.namesEnd;
+            copy.nameLengths[row] = nameLengths[row];
+            copy.namesEnd += nameLengths[row];
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Copies the best time and attempts of a <code>Player</code> into its row.
+     *
+     * @param row    the row of the <code>Player</code>
+     * @param player the <code>Player</code>, whose lock is held
+     */
+    private void copyColumns(int row, Player player) {
+        bestTimes[row] = player.getBestTimeOrNaN();
+        attempts[row] = player.getAttempts();
+        registered[row] = player.getRegistered();
+    }
+
+    /**
+     * Finds the row holding the given name.<br><br>
+     * Allocates nothing while the hint is up to date, or once the map of rows is built.
+     *
+     * @param name the name
+     * @param hint the row the name was last found at, which is tried first
+     * @return the row, or <code>-1</code> if no row holds the name
+     */
+    private int find(String name, int hint) {
+        if (hint >= 0 && hint < size && nameEquals(hint, name)) {
+            return hint;
+        }
+        if (rows == null) {
+            rows = new HashMap<>(Math.max(16, bestTimes.length * 2));
+            for (int row = 0; row < size; row++) {
+                rows.put(getName(row), row);
+            }
+        }
+        Integer row = rows.get(name);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * Checks whether a row holds the given name, comparing it to the UTF-8 bytes of the row without decoding them.
+     * Allocates nothing.
+     *
+     * @param row  the row
+     * @param name the name
+     * @return <code>true</code> if the row holds the name. Otherwise, it will return <code>false</code>.
+     */
+    private boolean nameEquals(int row, String name) {
+        int pos = nameOffsets[row];
+        int end = pos + nameLengths[row];
+        int length = name.length();
+        for (int i = 0; i < length; i++) {
+            int c = name.charAt(i);
+            if (Character.isHighSurrogate((char) c) && i + 1 < length
+                    && Character.isLowSurrogate(name.charAt(i + 1))) {
+                c = Character.toCodePoint((char) c, name.charAt(++i));
+            } else if (Character.isSurrogate((char) c)) {
+                c = '?';
+            }
+            int extra = c < 0x80 ? 0 : c < 0x800 ? 1 : c < 0x10000 ? 2 : 3;
+            if (pos + extra >= end) {
+                return false;
+            }
+            int lead = extra == 0 ? c : extra == 1 ? 0xC0 | c >> 6 : extra == 2 ? 0xE0 | c >> 12 : 0xF0 | c >> 18;
+            if (names[pos++] != (byte) lead) {
+                return false;
+            }
+            for (int shift = (extra - 1) * 6; shift >= 0; shift -= 6) {
+                if (names[pos++] != (byte) (0x80 | (c >> shift & 0x3F))) {
+                    return false;
+                }
+            }
+        }
+        return pos == end;
+    }
+
+    /**
+     * Stores the name of a row at the end of the dictionary, first dropping the bytes of replaced names if they make
+     * up half of it.
+     *
+     * @param row  the row
+     * @param name the name
+     */
+    private void setName(int row, String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        if (garbage > 0 && garbage * 2 >= namesEnd) {
+            compactNames(row);
+        }
+        if (namesEnd + encoded.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, namesEnd + encoded.length));
+        }
+        System.arraycopy(encoded, 0, names, namesEnd, encoded.length);
+        nameOffsets[row] = namesEnd;
+        nameLengths[row] = encoded.length;
+        namesEnd += encoded.length;
+    }
+
+    /**
+     * Moves the names of every row to the start of a new dictionary, dropping the bytes of replaced names.
+     *
+     * @param skipped a row whose name is about to be replaced, which is not kept, or <code>size</code> for none
+     */
+    private void compactNames(int skipped) {
+        byte[] compacted = new byte[names.length];
+        int end = 0;
+        for (int row = 0; row < size; row++) {
+            if (row == skipped) {
+                continue;
+            }
+            System.arraycopy(names, nameOffsets[row], compacted, end, nameLengths[row]);
+            nameOffsets[row] = end;
+            end += nameLengths[row];
+        }
+        names = compacted;
+        namesEnd = end;
+        garbage = 0;
+    }
+
+    /**
+     * Retrieves the number of rows in the table.
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the name of a row.
+     *
+     * @param row the index of the row
+     * @return the player's name
+     */
+    public String getName(int row) {
+        return new String(names, nameOffsets[row], nameLengths[row], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Retrieves the best time of a row.
+     *
+     * @param row the index of the row
+     * @return the player's best time, or <code>NaN</code> if the player has no attempts
+     */
+    public double getBestTime(int row) {
+        return bestTimes[row];
+    }
+
+    /**
+     * Retrieves the number of attempts of a row.
+     *
+     * @param row the index of the row
+     * @return the player's number of attempts
+     */
+    public int getAttempts(int row) {
+        return attempts[row];
+    }
+
+    /**
+     * Retrieves the registration time of a row.
+     *
+     * @param row the index of the row
+     * @return the player's registration time in epoch milliseconds, or <code>0</code> if unknown
+     */
+    public long getRegistered(int row) {
+        return registered[row];
+    }
+
+    /**
+     * Copies the attempts column.
+     *
+     * @return a new array holding the number of attempts of every row
+     */
+    public int[] attemptsColumn() {
+        return Arrays.copyOf(attempts, size);
+    }
+
+    /**
+     * Counts the players with a recorded best time strictly slower than the given time.
+     *
+     * @param time the time in seconds
+     * @return the number of players beaten by <code>time</code>
+     */
+    public int countSlowerThan(double time) {
+        int count = 0;
+        double[] best = bestTimes;
+        for (int i = 0; i < size; i++) {
+            if (best[i] > time) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the players with at least one attempt.
+     *
+     * @return the number of players with a recorded best time
+     */
+    public int countRanked() {
+        int count = 0;
+        double[] best = bestTimes;
+        for (int i = 0; i < size; i++) {
+            if (!Double.isNaN(best[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sums the attempts of every player.
+     *
+     * @return the total number of attempts in the table
+     */
+    public long totalAttempts() {
+        long total = 0;
+        int[] counts = attempts;
+        for (int i = 0; i < size; i++) {
+            total += counts[i];
+        }
+        return total;
+    }
+
+    /**
+     * Finds the rows of the fastest players, ordered from fastest to slowest.<br><br>
+     * Keeps a bounded max-heap of <code>k</code> rows, so it runs in a single pass regardless of the table size.
+     *
+     * @param k the maximum number of rows to be returned
+     * @return the row indices of at most <code>k</code> players with a recorded best time
+     */
+    public int[] top(int k) {
+        int[] heap = new int[Math.max(0, Math.min(k, size))];
+        int n = 0;
+        for (int i = 0; i < size && heap.length > 0; i++) {
+            double t = bestTimes[i];
+            if (Double.isNaN(t)) {
+                continue;
+            }
+            if (n < heap.length) {
+                heap[n] = i;
+                siftUp(heap, n++);
+            } else if (t < bestTimes[heap[0]]) {
+                heap[0] = i;
+                siftDown(heap, n);
+            }
+        }
+        int[] result = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i);
+        }
+        return result;
+    }
+
+    /**
+     * Restores the max-heap order of <code>heap</code> after inserting at the given position.
+     *
+     * @param heap the heap of row indices, ordered by best time
+     * @param pos  the position of the inserted row
+     */
+    private void siftUp(int[] heap, int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) / 2;
+            if (bestTimes[heap[parent]] >= bestTimes[heap[pos]]) {
+                return;
+            }
+            int tmp = heap[parent];
+            heap[parent] = heap[pos];
+            heap[pos] = tmp;
+            pos = parent;
+        }
+    }
+
+    /**
+     * Restores the max-heap order of <code>heap</code> after replacing its root.
+     *
+     * @param heap the heap of row indices, ordered by best time
+     * @param n    the number of rows in the heap
+     */
+    private void siftDown(int[] heap, int n) {
+        int pos = 0;
+        while (true) {
+            int largest = pos;
+            int left = pos * 2 + 1;
+            int right = left + 1;
+            if (left < n && bestTimes[heap[left]] > bestTimes[heap[largest]]) {
+                largest = left;
+            }
+            if (right < n && bestTimes[heap[right]] > bestTimes[heap[largest]]) {
+                largest = right;
+            }
+            if (largest == pos) {
+                return;
+            }
+            int tmp = heap[largest];
+            heap[largest] = heap[pos];
+            heap[pos] = tmp;
+            pos = largest;
+        }
+    }
+
+    /**
+     * Creates a reusable view over the rows of this table.
+     *
+     * @return a new <code>Row</code> positioned at the first row
+     */
+    public Row row() {
+        return new Row();
+    }
+
+    /**
+     * This class is a lightweight, movable view of a single row of the table.<br><br>
+     * Allows code written against <code>Player</code>-like accessors to scan the table without creating one object
+     * per row.
+     *
+     * @author Samuel A. Kosasih
+     */
+    public class Row {
+
+        /**
+         * This field stores the index of the row currently viewed.
+         */
+        private int index;
+
+        /**
+         * Moves the view to the given row.
+         *
+         * @param index the index of the row
+         * @return this <code>Row</code>
+         */
+        public Row moveTo(int index) {
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * Retrieves the name of the viewed row.
+         *
+         * @return the player's name
+         */
+        public String getName() {
+            return PlayerTable.this.getName(index);
+        }
+
+        /**
+         * Retrieves the best time of the viewed row.
+         *
+         * @return the player's best time, or <code>null</code> if the player has no attempts, as in
+         * <code>Player.getBestTime()</code>
+         */
+        public Double getBestTime() {
+            double t = bestTimes[index];
+            return Double.isNaN(t) ? null : t;
+        }
+
+        /**
+         * Retrieves the number of attempts of the viewed row.
+         *
+         * @return the player's number of attempts
+         */
+        public int getAttempts() {
+            return attempts[index];
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package game;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * This class describes how long attempt data is kept at each level of detail.<br><br>
+ * Individual attempts are kept for <code>rawDays</code> days. Older attempts are rolled up into one
+ * <code>AttemptRollup</code> per day, which are kept for <code>dailyDays</code> days, after which they are rolled up
+ * into one <code>AttemptRollup</code> per month and kept indefinitely. Days and months follow the given time zone.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see AttemptRollup
+ * @see HistoryCompactor
+ */
+public class RetentionPolicy {
+
+    /**
+     * The policy used by the application: raw attempts for 90 days and daily rollups for a year.
+     */
+    public static final RetentionPolicy DEFAULT = new RetentionPolicy(90, 365, ZoneId.systemDefault());
+
+    /**
+     * This field stores the number of days individual attempts are kept for.
+     */
+    private final int rawDays;
+
+    /**
+     * This field stores the number of days daily rollups are kept for.
+     */
+    private final int dailyDays;
+
+    /**
+     * This field stores the time zone used to determine days and months.
+     */
+    private final ZoneId zone;
+
+    /**
+     * Default Constructor.
+     *
+     * @param rawDays   the number of days individual attempts are kept for
+     * @param dailyDays the number of days daily rollups are kept for, at least <code>rawDays</code>
+     * @param zone      the time zone used to determine days and months
+     */
+    public RetentionPolicy(int rawDays, int dailyDays, ZoneId zone) {
+        if (rawDays < 0 || dailyDays < rawDays) {
+            throw new IllegalArgumentException("Invalid retention: raw " + rawDays + " days, daily " + dailyDays + " days");
+        }
+        this.rawDays = rawDays;
+        this.dailyDays = dailyDays;
+        this.zone = zone;
+    }
+
+    /**
+     * Retrieves the earliest timestamp whose individual attempts are still kept.
+     *
+     * @param now the current time in epoch milliseconds
+     * @return the start of the raw window in epoch milliseconds, aligned to the start of a day
+     */
+    public long rawCutoff(long now) {
+        return startOfDay(day(now) - rawDays);
+    }
+
+    /**
+     * Retrieves the earliest day whose daily rollup is still kept.
+     *
+     * @param now the current time in epoch milliseconds
+     * @return the first kept day, as a number of days since the epoch
+     */
+    public long dailyCutoff(long now) {
+        return day(now) - dailyDays;
+    }
+
+    /**
+     * Retrieves the day a timestamp falls on.
+     *
+     * @param timestamp the time in epoch milliseconds
+     * @return the day as a number of days since the epoch
+     */
+    public long day(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Retrieves the month a day falls in.
+     *
+     * @param day the day as a number of days since the epoch
+     * @return the month as a number of months since the year zero
+     */
+    public long month(long day) {
+        LocalDate date = LocalDate.ofEpochDay(day);
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+
+    /**
+     * Retrieves the first day of a month.
+     *
+     * @param month the month as a number of months since the year zero
+     * @return the first day of the month, as a number of days since the epoch
+     */
+    public long firstDay(long month) {
+        return LocalDate.of((int) Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1, 1).toEpochDay();
+    }
+
+    /**
+     * Retrieves the time at which a day starts.
+     *
+     * @param day the day as a number of days since the epoch
+     * @return the start of the day in epoch milliseconds
+     */
+    public long startOfDay(long day) {
+        return LocalDate.ofEpochDay(day).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+}
@@ -0,0 +1,102 @@
+package game;
+
+/**
+ * This class represents the outcome of a single round, as published on the <code>RoundEventBus</code>.<br><br>
+ * Instances are preallocated by the bus and reused for every lap around its ring, so consumers must copy any value
+ * they want to keep beyond the call to <code>RoundEventHandler.onEvent()</code>.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see RoundEventBus
+ * @see RoundEventHandler
+ */
+public class RoundEvent {
+
+    /**
+     * This field stores the <code>Player</code> who played the round.
+     */
+    private Player player;
+
+    /**
+     * This field stores the reaction time achieved, in seconds, or <code>NaN</code> if the round failed.
+     */
+    private double time;
+
+    /**
+     * This field stores the time the round ended, in epoch milliseconds.
+     */
+    private long timestamp;
+
+    /**
+     * This field indicates whether the round set a new best time for the <code>Player</code>.
+     */
+    private boolean newBest;
+
+    /**
+     * This field indicates whether the round failed because the <code>Player</code> reacted too early.
+     */
+    private boolean failed;
+
+    /**
+     * Overwrites the event with the outcome of a new round.
+     *
+     * @param player    the <code>Player</code> who played the round
+     * @param time      the reaction time achieved, in seconds, or <code>NaN</code> if the round failed
+     * @param timestamp the time the round ended, in epoch milliseconds
+     * @param newBest   whether the round set a new best time
+     * @param failed    whether the round failed
+     */
+    void set(Player player, double time, long timestamp, boolean newBest, boolean failed) {
+        this.player = player;
+        this.time = time;
+        this.timestamp = timestamp;
+        this.newBest = newBest;
+        this.failed = failed;
+    }
+
+    /**
+     * Retrieves the <code>Player</code> who played the round.
+     *
+     * @return the <code>Player</code>
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Retrieves the reaction time achieved.
+     *
+     * @return the reaction time in seconds, or <code>NaN</code> if the round failed
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Retrieves the time the round ended.
+     *
+     * @return the time in epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Indicates whether the round set a new best time for the <code>Player</code>.
+     *
+     * @return <code>true</code> if the round set a new best time
+     */
+    public boolean isNewBest() {
+        return newBest;
+    }
+
+    /**
+     * Indicates whether the round failed because the <code>Player</code> reacted too early.
+     *
+     * @return <code>true</code> if the round failed
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+}
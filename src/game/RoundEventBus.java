@@ -0,0 +1,226 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is a single-producer, multi-consumer event bus carrying <code>RoundEvent</code>s from the game to the
+ * rest of the application.<br><br>
+ * Events live in a ring of preallocated entries. The game thread claims the next sequence number, overwrites the
+ * entry in place and publishes it by advancing the <code>cursor</code>, without taking locks or allocating. Each
+ * <code>RoundEventHandler</code> runs on its own daemon thread, tracks its own sequence, and processes every event
+ * published since it last looked as one batch. The producer only waits if the slowest handler falls a full ring
+ * behind.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see RoundEvent
+ * @see RoundEventHandler
+ */
+public class RoundEventBus {
+
+    /**
+     * This field stores the preallocated entries of the ring.
+     */
+    private final RoundEvent[] ring;
+
+    /**
+     * This field stores the mask mapping a sequence number to its index in <code>ring</code>.
+     */
+    private final int mask;
+
+    /**
+     * This field stores the sequence number of the latest published event.
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    /**
+     * This field stores the sequence number of the latest event claimed by the producer.
+     */
+    private long claimed = -1;
+
+    /**
+     * This field stores the consumers of the bus.
+     */
+    private final List<Consumer> consumers = new ArrayList<>();
+
+    /**
+     * This field stores the sequence numbers of the consumers, read by the producer to avoid overwriting unread
+     * entries.
+     */
+    private volatile AtomicLong[] gating = new AtomicLong[0];
+
+    /**
+     * This field indicates whether the consumers should keep running.
+     */
+    private volatile boolean running;
+
+    /**
+     * Default Constructor.
+     *
+     * @param capacity the number of entries in the ring, a power of two
+     */
+    public RoundEventBus(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        ring = new RoundEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new RoundEvent();
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds a handler, which will receive every event published after <code>start()</code> is called.
+     *
+     * @param name    the name of the handler's thread
+     * @param handler the handler to be added
+     */
+    public synchronized void addHandler(String name, RoundEventHandler handler) {
+        if (running) {
+            throw new IllegalStateException("Handlers must be added before the bus is started");
+        }
+        consumers.add(new Consumer(name, handler));
+    }
+
+    /**
+     * Starts a thread for every handler.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        AtomicLong[] sequences = new AtomicLong[consumers.size()];
+        for (int i = 0; i < sequences.length; i++) {
+            Consumer consumer = consumers.get(i);
+            consumer.sequence.set(cursor.get());
+            sequences[i] = consumer.sequence;
+            consumer.thread.start();
+        }
+        gating = sequences;
+    }
+
+    /**
+     * Publishes the outcome of a round. Must only be called from a single thread.
+     *
+     * @param player    the <code>Player</code> who played the round
+     * @param time      the reaction time achieved, in seconds, or <code>NaN</code> if the round failed
+     * @param timestamp the time the round ended, in epoch milliseconds
+     * @param newBest   whether the round set a new best time
+     * @param failed    whether the round failed
+     */
+    public void publish(Player player, double time, long timestamp, boolean newBest, boolean failed) {
+        long sequence = ++claimed;
+        long wrapPoint = sequence - ring.length;
+        while (wrapPoint > minimumSequence()) {
+            Thread.onSpinWait();
+        }
+        ring[(int) sequence & mask].set(player, time, timestamp, newBest, failed);
+        cursor.set(sequence);
+    }
+
+    /**
+     * Stops every handler once it has processed the events published so far.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        long last = cursor.get();
+        for (Consumer consumer : consumers) {
+            while (consumer.thread.isAlive() && consumer.sequence.get() < last) {
+                LockSupport.parkNanos(1_000_000);
+            }
+        }
+        running = false;
+        gating = new AtomicLong[0];
+        for (Consumer consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+    }
+
+    /**
+     * Finds the sequence number of the slowest consumer.
+     *
+     * @return the lowest consumer sequence, or the <code>cursor</code> if there are no running consumers
+     */
+    private long minimumSequence() {
+        long minimum = cursor.get();
+        for (AtomicLong sequence : gating) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * This private inner class runs a single handler on its own thread.
+     */
+    private class Consumer implements Runnable {
+
+        /**
+         * This field stores the handler the events are handed to.
+         */
+        private final RoundEventHandler handler;
+
+        /**
+         * This field stores the sequence of the latest event the handler has finished with, which the publisher
+         * waits on before reusing its slot of the ring.
+         */
+        private final AtomicLong sequence = new AtomicLong(-1);
+
+        /**
+         * This field refers to the thread the handler runs on.
+         */
+        private final Thread thread;
+
+        /**
+         * Default Constructor.
+         *
+         * @param name    the name of the thread
+         * @param handler the handler to be run
+         */
+        Consumer(String name, RoundEventHandler handler) {
+            this.handler = handler;
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Waits for published events and hands them to the handler in batches, backing off from spinning to
+         * parking while the bus is idle.
+         */
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                long next = sequence.get() + 1;
+                long available = cursor.get();
+                if (available < next) {
+                    idle = Math.min(idle + 1, 1000);
+                    if (idle < 100) {
+                        Thread.onSpinWait();
+                    } else if (idle < 200) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(idle < 1000 ? 100_000 : 1_000_000);
+                    }
+                    continue;
+                }
+                idle = 0;
+                for (long s = next; s <= available; s++) {
+                    try {
+                        handler.onEvent(ring[(int) s & mask], s, s == available);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+                sequence.set(available);
+            }
+        }
+    }
+
+}
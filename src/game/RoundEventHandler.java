@@ -0,0 +1,23 @@
+package game;
+
+/**
+ * A consumer of the <code>RoundEvent</code>s published on a <code>RoundEventBus</code>.<br><br>
+ * Each handler runs on its own thread and receives events in the order they were published, in batches of every
+ * event available when it wakes up.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see RoundEventBus
+ */
+public interface RoundEventHandler {
+
+    /**
+     * Handles a single event.
+     *
+     * @param event      the event, only valid for the duration of the call
+     * @param sequence   the sequence number of the event
+     * @param endOfBatch whether the event is the last one of the current batch, allowing handlers to flush work
+     */
+    void onEvent(RoundEvent event, long sequence, boolean endOfBatch);
+
+}
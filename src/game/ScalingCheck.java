@@ -0,0 +1,201 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A headless check that operations over the whole database take time in proportion to its size.<br><br>
+ * Usage: <code>ScalingCheck [--option=value ...]</code>, with the following options:
+ * <ul>
+ *     <li><code>players</code>: the number of <code>Player</code>s of the smaller database (default: 10000)</li>
+ *     <li><code>factor</code>: how many times larger the larger database is (default: 8)</li>
+ * </ul>
+ * Every operation is timed on both databases, taking the fastest of three runs after a warm-up run, and the ratio of
+ * the two times is reported. An operation whose time grows in proportion to the size has a ratio near
+ * <code>factor</code>, and one whose time grows with its square a ratio near the square of <code>factor</code>. The
+ * process exits with status <code>1</code> if any ratio exceeds twice <code>factor</code>.<br><br>
+ * The operations are:
+ * <ul>
+ *     <li><code>table_build</code>: the first <code>PlayerManager.table()</code> of a database whose
+ *     <code>Player</code>s were just read, so that none of them has a row hint yet</li>
+ *     <li><code>table_remove</code>: removing half the rows of a <code>PlayerTable</code>, in random order, then
+ *     updating every remaining row, whose hints the removals left stale</li>
+ *     <li><code>merge_new</code>: <code>PlayerManager.merge()</code> of a file holding only <code>Player</code>s
+ *     the database does not have yet, including reading the file</li>
+ * </ul>
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerTable
+ */
+public class ScalingCheck {
+
+    /**
+     * This private interface is an operation timed by the check.
+     */
+    private interface Operation {
+
+        /**
+         * Sets up a database of the given size and times the operation on it.
+         *
+         * @param players the number of <code>Player</code>s
+         * @return the time the operation took, in nanoseconds
+         * @throws IOException if a database file cannot be created
+         */
+        long time(int players) throws IOException;
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args the options of the run, as <code>--option=value</code>
+     * @throws IOException if a database file cannot be created
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                System.out.println("Unrecognised argument: " + arg);
+                System.exit(2);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        int players = Integer.parseInt(options.getOrDefault("players", "10000"));
+        int factor = Integer.parseInt(options.getOrDefault("factor", "8"));
+
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("table_build", ScalingCheck::tableBuild);
+        operations.put("table_remove", ScalingCheck::tableRemove);
+        operations.put("merge_new", ScalingCheck::mergeNew);
+
+        boolean linear = true;
+        System.out.println("operation,players,millis,larger_players,larger_millis,ratio");
+        for (Map.Entry<String, Operation> e : operations.entrySet()) {
+            long small = fastest(e.getValue(), players);
+            long large = fastest(e.getValue(), players * factor);
+            double ratio = (double) large / Math.max(1, small);
+            linear &= ratio <= 2.0 * factor;
+            System.out.printf(Locale.ROOT, "%s,%d,%.1f,%d,%.1f,%.2f%n", e.getKey(), players, small / 1e6,
+                    players * factor, large / 1e6, ratio);
+        }
+        System.exit(linear ? 0 : 1);
+    }
+
+    /**
+     * Times an operation, keeping the fastest of three runs after a warm-up run.
+     *
+     * @param operation the operation
+     * @param players   the number of <code>Player</code>s
+     * @return the fastest time, in nanoseconds
+     * @throws IOException if a database file cannot be created
+     */
+    private static long fastest(Operation operation, int players) throws IOException {
+        operation.time(players);
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            best = Math.min(best, operation.time(players));
+        }
+        return best;
+    }
+
+    /**
+     * Creates <code>Player</code>s with a few attempts each, as if read from a database.
+     *
+     * @param count  the number of <code>Player</code>s
+     * @param prefix the start of their names
+     * @return the new <code>Player</code>s
+     */
+    private static List<Player> players(int count, String prefix) {
+        List<Player> players = new ArrayList<>(count);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Player p = new Player(prefix + i);
+            p.refreshBestTime(0.2 + i % 1000 / 10000.0, now - i);
+            p.refreshBestTime(0.3, now);
+            players.add(p);
+        }
+        return players;
+    }
+
+    /**
+     * Times the first <code>table()</code> of a database, which is never saved.
+     *
+     * @param count the number of <code>Player</code>s
+     * @return the time taken, in nanoseconds
+     */
+    private static long tableBuild(int count) {
+        PlayerManager.PlayerDatabase database = new PlayerManager.PlayerDatabase(players(count, "player"));
+        PlayerManager manager = new PlayerManager(new FilePlayerStore(
+                new File(System.getProperty("java.io.tmpdir"), "scaling-check.ser"), database), false);
+        long start = System.nanoTime();
+        manager.table();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Times removing half the rows of a table, then updating the remaining rows.
+     *
+     * @param count the number of <code>Player</code>s
+     * @return the time taken, in nanoseconds
+     */
+    private static long tableRemove(int count) {
+        List<Player> players = players(count, "player");
+        PlayerTable table = new PlayerTable(count);
+        for (Player p : players) {
+            table.put(p);
+        }
+        List<Player> removed = new ArrayList<>(players.subList(0, count / 2));
+        List<Player> kept = players.subList(count / 2, count);
+        Collections.shuffle(removed, new Random(count));
+        long start = System.nanoTime();
+        for (Player p : removed) {
+            table.remove(p);
+        }
+        for (Player p : kept) {
+            table.update(p);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Times merging a file of new <code>Player</code>s into a database holding as many other ones.
+     *
+     * @param count the number of <code>Player</code>s in the file
+     * @return the time taken, in nanoseconds
+     * @throws IOException if a database file cannot be created
+     */
+    private static long mergeNew(int count) throws IOException {
+        File source = File.createTempFile("scaling", ".ser");
+        File target = File.createTempFile("scaling", ".ser");
+        source.delete();
+        target.delete();
+        try {
+            new FilePlayerStore(source, new PlayerManager.PlayerDatabase(players(count, "merged"))).flush();
+            PlayerManager manager = new PlayerManager(
+                    new FilePlayerStore(target, new PlayerManager.PlayerDatabase(players(count, "player"))), false);
+            long start = System.nanoTime();
+            manager.merge(source);
+            long elapsed = System.nanoTime() - start;
+            int merged = manager.players().size();
+            if (merged != 2 * count) {
+                throw new IllegalStateException("Merged " + merged + " players, expected " + 2 * count);
+            }
+            return elapsed;
+        } finally {
+            for (File file : new File[] {source, target}) {
+                file.delete();
+                new File(file.getPath() + ".lock").delete();
+            }
+        }
+    }
+
+}
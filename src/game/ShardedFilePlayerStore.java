@@ -0,0 +1,512 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * A <code>PlayerStore</code> splitting the players into shards by the hash of their names, each shard being a
+ * <code>FilePlayerStore</code> with its own object file.<br><br>
+ * The shards of a store live in one directory, as <code>players-&lt;i&gt;-of-&lt;n&gt;.ser</code>, so the number of
+ * shards a directory was created with is kept in the names of its files and taken over when it is opened again.
+ * Shards are read and written in parallel on the common <code>ForkJoinPool</code>, and <code>flush()</code> only
+ * writes the shards that changed since they were last saved: those that gained, lost or renamed a player, and those
+ * holding a player whose version stamp moved. Finding the latter is not free: every flush, and every
+ * <code>refresh()</code>, sums the version stamps of every player in memory, one pass over the whole store that
+ * grows with its size even when nothing changed, though far cheaper than serializing the shards it spares. A file
+ * that cannot be read only empties its own shard, and is kept aside as <code>.corrupt</code> instead of being
+ * overwritten.<br><br>
+ * Every shard is shared with other processes the way a <code>FilePlayerStore</code> is, with its own lock file, so
+ * that processes only contend for the shards they both write.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see FilePlayerStore
+ * @see Player#getVersion()
+ */
+public class ShardedFilePlayerStore implements PlayerStore {
+
+    /**
+     * The pattern of the names of shard files.
+     */
+    private static final Pattern SHARD_FILE = Pattern.compile("players-(\\d+)-of-(\\d+)\\.ser");
+
+    /**
+     * This field stores the directory holding the shard files.
+     */
+    private final File directory;
+
+    /**
+     * This field stores the shards.
+     */
+    private final FilePlayerStore[] shards;
+
+    /**
+     * This field indicates, for every shard, whether players were added, removed or renamed since it was saved.
+     */
+    private final boolean[] dirty;
+
+    /**
+     * This field stores, for every shard, the sum of the version stamps of its players when it was last saved.
+     */
+    private final long[] savedVersions;
+
+    /**
+     * This field stores the watcher of the directory, or <code>null</code> if it is not watched.
+     */
+    private StoreWatcher watcher;
+
+    /**
+     * Default Constructor.<br><br>
+     * Reads every shard of the given directory in parallel. If the directory holds no shards yet, it will proceed
+     * with the given number of empty shards.
+     *
+     * @param directory the directory holding the shard files, which is created if needed
+     * @param shards    the number of shards of a new store; ignored if the directory already holds shards
+     * @throws IllegalArgumentException if the number of shards is not positive
+     */
+    public ShardedFilePlayerStore(File directory, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Number of shards must be positive: " + shards);
+        }
+        this.directory = directory;
+        directory.mkdirs();
+        int count = existingShards(directory);
+        if (count == 0) {
+            count = shards;
+        }
+        this.shards = new FilePlayerStore[count];
+        this.dirty = new boolean[count];
+        this.savedVersions = new long[count];
+        IntStream.range(0, count).parallel().forEach(this::load);
+    }
+
+    /**
+     * Retrieves the <code>Player</code> with the given name from its shard.
+     *
+     * @param name the name of the <code>Player</code>
+     * @return the <code>Player</code>, or <code>null</code> if not found
+     */
+    @Override
+    public Player get(String name) {
+        return shards[shardOf(name)].get(name);
+    }
+
+    /**
+     * Adds a new <code>Player</code> to its shard.
+     *
+     * @param player the <code>Player</code> to be added
+     * @return <code>true</code> if no other <code>Player</code> has the same name and the <code>Player</code> is
+     * added. Otherwise, it will return <code>false</code>.
+     */
+    @Override
+    public boolean put(Player player) {
+        int shard = shardOf(player.getName());
+        if (!shards[shard].put(player)) {
+            return false;
+        }
+        dirty[shard] = true;
+        return true;
+    }
+
+    /**
+     * Removes the <code>Player</code> with the given name from its shard.
+     *
+     * @param name the name of the <code>Player</code>
+     * @return the removed <code>Player</code>, or <code>null</code> if not found
+     */
+    @Override
+    public Player delete(String name) {
+        int shard = shardOf(name);
+        Player p = shards[shard].delete(name);
+        if (p != null) {
+            dirty[shard] = true;
+        }
+        return p;
+    }
+
+    /**
+     * Renames a <code>Player</code>, moving it to the shard of its new name if that is another shard.
+     *
+     * @param player  the <code>Player</code> to be renamed
+     * @param newName the new name
+     * @return <code>true</code> if the new name is not used by any other <code>Player</code> and the
+     * <code>Player</code> is renamed. Otherwise, it will return <code>false</code>.
+     */
+    @Override
+    public boolean rename(Player player, String newName) {
+        if (get(newName) != null) {
+            return false;
+        }
+        int from = shardOf(player.getName());
+        int to = shardOf(newName);
+        if (from == to) {
+            if (!shards[from].rename(player, newName)) {
+                return false;
+            }
+        } else {
+            shards[from].delete(player.getName());
+            player.setName(newName);
+            shards[to].put(player);
+            dirty[to] = true;
+        }
+        dirty[from] = true;
+        return true;
+    }
+
+    /**
+     * Adds many new <code>Player</code>s, each to its shard.
+     *
+     * @param players the <code>Player</code>s to be added
+     * @return the number of <code>Player</code>s added
+     */
+    @Override
+    public int putAll(Collection<Player> players) {
+        List<List<Player>> byShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (Player p : players) {
+            byShard.get(shardOf(p.getName())).add(p);
+        }
+        int added = 0;
+        for (int i = 0; i < shards.length; i++) {
+            int n = shards[i].putAll(byShard.get(i));
+            if (n > 0) {
+                dirty[i] = true;
+                added += n;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes every <code>Player</code> matching the given predicate, one shard after another.
+     *
+     * @param filter the predicate selecting the <code>Player</code>s to be removed
+     * @return the removed <code>Player</code>s
+     */
+    @Override
+    public List<Player> deleteIf(Predicate<Player> filter) {
+        List<Player> removed = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            List<Player> fromShard = shards[i].deleteIf(filter);
+            if (!fromShard.isEmpty()) {
+                dirty[i] = true;
+                removed.addAll(fromShard);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Renames many <code>Player</code>s at once, moving each to the shard of its new name.
+     *
+     * @param renames the new names, keyed by the <code>Player</code>s to be renamed
+     * @return <code>true</code> if the <code>Player</code>s are renamed. Otherwise, it will return
+     * <code>false</code>.
+     */
+    @Override
+    public boolean renameAll(Map<Player, String> renames) {
+        if (!canRenameAll(renames)) {
+            return false;
+        }
+        List<Player> moved = new ArrayList<>();
+        for (Map.Entry<Player, String> e : renames.entrySet()) {
+            Player p = e.getKey();
+            if (e.getValue().equals(p.getName())) {
+                continue;
+            }
+            int from = shardOf(p.getName());
+            shards[from].delete(p.getName());
+            dirty[from] = true;
+            p.setName(e.getValue());
+            moved.add(p);
+        }
+        for (Player p : moved) {
+            int to = shardOf(p.getName());
+            shards[to].put(p);
+            dirty[to] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Provides an <code>Iterator</code> over every <code>Player</code>, one shard after another.
+     *
+     * @return an <code>Iterator</code> of type <code>Player</code>
+     */
+    @Override
+    public Iterator<Player> scan() {
+        return new Iterator<>() {
+
+            /**
+             * This field stores the index of the shard being read.
+             */
+            private int shard;
+
+            /**
+             * This field stores the <code>Iterator</code> over the shard being read.
+             */
+            private Iterator<Player> current = shards[0].scan();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && shard < shards.length - 1) {
+                    current = shards[++shard].scan();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Player next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    /**
+     * Retrieves the fastest <code>Player</code>s by merging the fastest <code>Player</code>s of every shard.
+     *
+     * @param limit the maximum number of <code>Player</code>s to be returned
+     * @return a <code>List</code> of at most <code>limit</code> <code>Player</code>s, from fastest to slowest
+     */
+    @Override
+    public List<Player> rank(int limit) {
+        List<Player> ranked = new ArrayList<>();
+        for (FilePlayerStore shard : shards) {
+            ranked.addAll(shard.rank(limit));
+        }
+        ranked.sort(Comparator.comparing(Player::getBestTime));
+        return new ArrayList<>(ranked.subList(0, Math.min(limit, ranked.size())));
+    }
+
+    /**
+     * Retrieves the number of <code>Player</code>s across every shard.
+     *
+     * @return the number of <code>Player</code>s
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (FilePlayerStore shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Retrieves the <code>Player</code>s of every shard, joined without copying them.
+     *
+     * @return a read-only <code>List</code> of the <code>Player</code>s currently in the store, shard by shard
+     */
+    @Override
+    public List<Player> members() {
+        List<List<Player>> parts = new ArrayList<>(shards.length);
+        for (FilePlayerStore shard : shards) {
+            parts.add(shard.members());
+        }
+        return PlayerSnapshot.join(parts);
+    }
+
+    /**
+     * Writes the shards that changed since they were last saved, in parallel.<br><br>
+     * Every shard is scanned to sum the version stamps of its players, so a flush costs one pass over every
+     * <code>Player</code> in memory even if no shard is written.
+     *
+     * @return <code>true</code> if every changed shard is written. Otherwise it will return <code>false</code>, and
+     * the shards that could not be written stay marked as changed.
+     */
+    @Override
+    public boolean flush() {
+        return IntStream.range(0, shards.length).parallel()
+                .mapToObj(this::save)
+                .reduce(true, Boolean::logicalAnd);
+    }
+
+    /**
+     * Sets the listener told about the changes read from other processes into any shard.
+     *
+     * @param listener the listener, or <code>null</code> for none
+     */
+    @Override
+    public void setChangeListener(ChangeListener listener) {
+        for (FilePlayerStore shard : shards) {
+            shard.setChangeListener(listener);
+        }
+    }
+
+    /**
+     * Reads the changes other processes saved to every shard. A shard that had no changes of its own stays marked as
+     * saved.
+     *
+     * @return <code>true</code> if any <code>Player</code> was added, removed or updated. Otherwise, it will return
+     * <code>false</code>.
+     */
+    @Override
+    public boolean refresh() {
+        boolean changed = false;
+        for (int i = 0; i < shards.length; i++) {
+            boolean clean = !dirty[i] && versionSum(shards[i]) == savedVersions[i];
+            if (shards[i].refresh()) {
+                changed = true;
+                if (clean) {
+                    savedVersions[i] = versionSum(shards[i]);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Starts watching the directory for saves to any shard by other processes.
+     *
+     * @param onChange the callback run after every save
+     * @return <code>true</code> if the directory is being watched. Otherwise, it will return <code>false</code>.
+     */
+    @Override
+    public boolean watch(Runnable onChange) {
+        if (watcher != null) {
+            return true;
+        }
+        try {
+            watcher = new StoreWatcher(directory,
+                    name -> SHARD_FILE.matcher(name.endsWith(".lock") ? name.substring(0, name.length() - 5) : name)
+                            .matches(), onChange);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Stops watching the directory, if it is watched. The store holds no other resources between flushes.
+     */
+    @Override
+    public void close() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Retrieves the number of shards.
+     *
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Finds the shard a name belongs to.
+     *
+     * @param name the name of a <code>Player</code>
+     * @return the index of the shard
+     */
+    private int shardOf(String name) {
+        int h = name.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    /**
+     * Retrieves the file of a shard.
+     *
+     * @param shard the index of the shard
+     * @return the object file of the shard
+     */
+    private File fileOf(int shard) {
+        return new File(directory, "players-" + shard + "-of-" + shards.length + ".ser");
+    }
+
+    /**
+     * Reads a shard, keeping its file aside if it exists but cannot be read.
+     *
+     * @param shard the index of the shard
+     */
+    private void load(int shard) {
+        File file = fileOf(shard);
+        PlayerManager.PlayerDatabase database = FilePlayerStore.read(file);
+        if (database == null && file.exists()) {
+            File corrupt = new File(file.getPath() + ".corrupt");
+            if (file.renameTo(corrupt)) {
+                System.out.println("Shard " + shard + " could not be read and was moved to " + corrupt);
+            }
+            dirty[shard] = true;
+        }
+        shards[shard] = new FilePlayerStore(file, database);
+        savedVersions[shard] = versionSum(shards[shard]);
+    }
+
+    /**
+     * Writes a shard if it changed since it was last saved.
+     *
+     * @param shard the index of the shard
+     * @return <code>true</code> if the shard is unchanged or written. Otherwise, it will return <code>false</code>.
+     */
+    private boolean save(int shard) {
+        long versions = versionSum(shards[shard]);
+        if (!dirty[shard] && versions == savedVersions[shard]) {
+            return true;
+        }
+        if (!shards[shard].flush()) {
+            return false;
+        }
+        dirty[shard] = false;
+        savedVersions[shard] = versions;
+        return true;
+    }
+
+    /**
+     * Sums the version stamps of the players of a shard.<br><br>
+     * Stamps only ever grow, so the sum changes whenever any player of the shard changes. Visits every player of the
+     * shard, so it costs time in proportion to the size of the shard.
+     *
+     * @param shard the shard
+     * @return the sum of the version stamps
+     */
+    private static long versionSum(FilePlayerStore shard) {
+        long sum = 0;
+        Iterator<Player> it = shard.scan();
+        while (it.hasNext()) {
+            sum += it.next().getVersion();
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the number of shards a directory was created with.
+     *
+     * @param directory the directory holding the shard files
+     * @return the number of shards, or <code>0</code> if the directory holds no shards
+     */
+    private static int existingShards(File directory) {
+        String[] names = directory.list();
+        if (names == null) {
+            return 0;
+        }
+        for (String name : names) {
+            Matcher matcher = SHARD_FILE.matcher(name);
+            if (matcher.matches()) {
+                return Integer.parseInt(matcher.group(2));
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,355 @@
+package game;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A headless soak test for the persistence layer, driving a <code>PlayerManager</code> with a synthetic workload for
+ * a long period of time.<br><br>
+ * Usage: <code>SoakHarness [--option=value ...]</code>, with the following options:
+ * <ul>
+ *     <li><code>file</code>: the database file to use (default: a new temporary file)</li>
+ *     <li><code>duration</code>: the length of the run, in seconds (default: 3600)</li>
+ *     <li><code>players</code>: the number of synthetic players (default: 5000)</li>
+ *     <li><code>rate</code>: the target number of operations per second, or 0 for no limit (default: 1000)</li>
+ *     <li><code>save-every</code>: the time between calls to <code>save()</code>, in seconds (default: 30)</li>
+ *     <li><code>report-every</code>: the time between reports, in seconds (default: 60)</li>
+ *     <li><code>warmup</code>: the time after which the heap retained after GC is taken as the baseline of its
+ *     growth, in seconds (default: 60)</li>
+ *     <li><code>slo-op-p99-us</code>: the maximum 99th percentile latency of an operation, in microseconds</li>
+ *     <li><code>slo-save-max-ms</code>: the maximum duration of a single <code>save()</code>, in milliseconds</li>
+ *     <li><code>slo-gc-pause-max-ms</code>: the maximum duration of a single GC pause, in milliseconds</li>
+ *     <li><code>slo-heap-growth-mb</code>: the maximum growth of the heap retained after GC, in megabytes</li>
+ * </ul>
+ * Operations are 90% attempts, 4% renames and 6% deletions, each deletion being followed by the registration of a
+ * new player to keep the population steady. Every report prints the throughput, operation and save latency
+ * percentiles, heap retained after GC, GC pauses and the size of the database file. The process exits with status
+ * <code>1</code> if any configured SLO is exceeded.<br><br>
+ * The heap retained after GC only means something once the heap has been collected, and only settles once the
+ * population and the database have been loaded and the caches filled, so the growth of the heap is measured from
+ * the first report after the warm-up at which a collection has run. Runs too short to reach it do not measure the
+ * growth of the heap.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerManager
+ */
+public class SoakHarness {
+
+    /**
+     * This field stores the longest GC pause observed since the start of the run, in milliseconds.
+     */
+    private static final AtomicLong maxGcPause = new AtomicLong();
+
+    /**
+     * This field stores the total duration of GC pauses observed since the start of the run, in milliseconds.
+     */
+    private static final AtomicLong totalGcPause = new AtomicLong();
+
+    /**
+     * Runs the soak test.
+     *
+     * @param args the options of the run, as <code>--option=value</code>
+     * @throws Exception if the database file cannot be created
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                System.out.println("Unrecognised argument: " + arg);
+                System.exit(2);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        File file;
+        if (options.containsKey("file")) {
+            file = new File(options.get("file"));
+        } else {
+            file = File.createTempFile("soak", ".ser");
+            file.deleteOnExit();
+            file.delete();
+        }
+        long duration = Long.parseLong(options.getOrDefault("duration", "3600")) * 1_000_000_000L;
+        int population = Integer.parseInt(options.getOrDefault("players", "5000"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "1000"));
+        long saveEvery = Long.parseLong(options.getOrDefault("save-every", "30")) * 1_000_000_000L;
+        long reportEvery = Long.parseLong(options.getOrDefault("report-every", "60")) * 1_000_000_000L;
+        long warmup = Long.parseLong(options.getOrDefault("warmup", "60")) * 1_000_000_000L;
+        double opP99Slo = Double.parseDouble(options.getOrDefault("slo-op-p99-us", "Infinity"));
+        double saveMaxSlo = Double.parseDouble(options.getOrDefault("slo-save-max-ms", "Infinity"));
+        double gcPauseSlo = Double.parseDouble(options.getOrDefault("slo-gc-pause-max-ms", "Infinity"));
+        double heapGrowthSlo = Double.parseDouble(options.getOrDefault("slo-heap-growth-mb", "Infinity"));
+
+        listenForGcPauses();
+        PlayerManager manager = new PlayerManager(file);
+        List<String> names = new ArrayList<>(population);
+        for (int i = 0; i < population; i++) {
+            String name = "player-" + i;
+            manager.addPlayer(name);
+            names.add(name);
+        }
+        manager.save();
+
+        Random random = new Random(42);
+        Histogram ops = new Histogram();
+        Histogram saves = new Histogram();
+        int nextId = population;
+        long operations = 0;
+        long intervalOperations = 0;
+        double baselineHeap = Double.NaN;
+        double worstOpP99 = 0;
+        double worstHeapGrowth = 0;
+        long begin = System.nanoTime();
+        long nextSave = begin + saveEvery;
+        long nextReport = begin + reportEvery;
+        long intervalStart = begin;
+
+        System.out.println("elapsed_s,ops_per_s,op_p50_us,op_p99_us,op_p999_us,save_p99_ms,save_max_ms,"
+                + "heap_retained_mb,gc_pause_max_ms,gc_pause_total_ms,file_kb");
+        while (true) {
+            long now = System.nanoTime();
+            if (now - begin >= duration) {
+                break;
+            }
+            if (rate > 0) {
+                long due = begin + operations * 1_000_000_000L / rate;
+                if (due > now) {
+                    LockSupport.parkNanos(due - now);
+                }
+            }
+            int slot = random.nextInt(names.size());
+            int roll = random.nextInt(100);
+            long start = System.nanoTime();
+            if (roll < 90) {
+                Player p = manager.getPlayer(names.get(slot));
+                manager.recordAttempt(p, 0.15 + random.nextDouble() * 0.35);
+            } else if (roll < 94) {
+                String newName = "player-" + nextId++;
+                if (manager.renamePlayer(manager.getPlayer(names.get(slot)), newName)) {
+                    names.set(slot, newName);
+                }
+            } else {
+                manager.removePlayer(names.get(slot));
+                String newName = "player-" + nextId++;
+                manager.addPlayer(newName);
+                names.set(slot, newName);
+            }
+            long end = System.nanoTime();
+            ops.record((end - start) / 1000);
+            operations++;
+            intervalOperations++;
+
+            if (end >= nextSave) {
+                long saveStart = System.nanoTime();
+                manager.save();
+                saves.record((System.nanoTime() - saveStart) / 1000);
+                nextSave = System.nanoTime() + saveEvery;
+            }
+            if (end >= nextReport) {
+                double heap = retainedHeapMb();
+                double seconds = (end - intervalStart) / 1e9;
+                double opP99 = ops.percentile(99);
+                worstOpP99 = Math.max(worstOpP99, opP99);
+                if (!Double.isNaN(baselineHeap)) {
+                    worstHeapGrowth = Math.max(worstHeapGrowth, heap - baselineHeap);
+                } else if (end - begin >= warmup && collections() > 0) {
+                    baselineHeap = heap;
+                }
+                System.out.println(String.format(Locale.ROOT, "%.0f,%.0f,%.0f,%.0f,%.0f,%.1f,%.1f,%.1f,%d,%d,%d",
+                        (end - begin) / 1e9, intervalOperations / seconds, ops.percentile(50), opP99,
+                        ops.percentile(99.9), saves.percentile(99) / 1000.0, saves.max() / 1000.0, heap,
+                        maxGcPause.get(), totalGcPause.get(), file.length() / 1024));
+                ops = new Histogram();
+                intervalOperations = 0;
+                intervalStart = end;
+                nextReport = end + reportEvery;
+            }
+        }
+        long saveStart = System.nanoTime();
+        manager.save();
+        saves.record((System.nanoTime() - saveStart) / 1000);
+        worstOpP99 = Math.max(worstOpP99, ops.percentile(99));
+        if (!Double.isNaN(baselineHeap)) {
+            worstHeapGrowth = Math.max(worstHeapGrowth, retainedHeapMb() - baselineHeap);
+        }
+
+        List<String> violations = new ArrayList<>();
+        if (worstOpP99 > opP99Slo) {
+            violations.add("operation p99 " + worstOpP99 + "us > " + opP99Slo + "us");
+        }
+        if (saves.max() / 1000.0 > saveMaxSlo) {
+            violations.add("save max " + saves.max() / 1000.0 + "ms > " + saveMaxSlo + "ms");
+        }
+        if (maxGcPause.get() > gcPauseSlo) {
+            violations.add("GC pause " + maxGcPause.get() + "ms > " + gcPauseSlo + "ms");
+        }
+        if (worstHeapGrowth > heapGrowthSlo) {
+            violations.add("heap growth " + worstHeapGrowth + "MB > " + heapGrowthSlo + "MB");
+        }
+        System.out.println("Completed " + operations + " operations; database is " + file.length() / 1024 + " KB");
+        if (Double.isNaN(baselineHeap)) {
+            System.out.println("Heap growth not measured: no report after the warm-up followed a collection");
+        }
+        for (String violation : violations) {
+            System.out.println("SLO exceeded: " + violation);
+        }
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Subscribes to the notifications of every garbage collector to track the duration of each pause.
+     */
+    private static void listenForGcPauses() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter)) {
+                continue;
+            }
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    long pause = GarbageCollectionNotificationInfo
+                            .from((CompositeData) notification.getUserData()).getGcInfo().getDuration();
+                    totalGcPause.addAndGet(pause);
+                    maxGcPause.accumulateAndGet(pause, Math::max);
+                }
+            }, null, null);
+        }
+    }
+
+    /**
+     * Counts the garbage collections run since the start of the process.
+     *
+     * @return the number of collections of every collector
+     */
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Measures the heap retained after the latest garbage collection of each heap pool.
+     *
+     * @return the retained heap, in megabytes
+     */
+    private static double retainedHeapMb() {
+        long bytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null) {
+                bytes += usage.getUsed();
+            }
+        }
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    /**
+     * This private static inner class is a log-linear histogram of non-negative values, with 32 linear
+     * sub-buckets per power of two, giving a relative error of about 3%.
+     */
+    private static class Histogram {
+
+        /**
+         * This field stores the number of values recorded in every sub-bucket.
+         */
+        private final long[] counts = new long[64 * 32];
+
+        /**
+         * This field stores the number of values recorded.
+         */
+        private long total;
+
+        /**
+         * This field stores the largest value recorded.
+         */
+        private long max;
+
+        /**
+         * Records a value.
+         *
+         * @param value the value to be recorded
+         */
+        void record(long value) {
+            value = Math.max(0, value);
+            counts[index(value)]++;
+            total++;
+            max = Math.max(max, value);
+        }
+
+        /**
+         * Retrieves the largest recorded value.
+         *
+         * @return the largest value, or <code>0</code> if nothing is recorded
+         */
+        long max() {
+            return max;
+        }
+
+        /**
+         * Retrieves an approximate percentile of the recorded values.
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the upper bound of the bucket holding the percentile, or <code>0</code> if nothing is recorded
+         */
+        double percentile(double percentile) {
+            long rank = (long) Math.ceil(percentile / 100.0 * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(max, upperBound(i));
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Finds the bucket of a value.
+         *
+         * @param value the value
+         * @return the index of the bucket
+         */
+        private static int index(long value) {
+            if (value < 32) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - 5)) & 31;
+            return (exponent - 4) * 32 + sub;
+        }
+
+        /**
+         * Finds the largest value falling in a bucket.
+         *
+         * @param index the index of the bucket
+         * @return the upper bound of the bucket
+         */
+        private static long upperBound(int index) {
+            if (index < 32) {
+                return index;
+            }
+            int exponent = index / 32 + 4;
+            int sub = index % 32;
+            return ((32L + sub + 1) << (exponent - 5)) - 1;
+        }
+    }
+
+}
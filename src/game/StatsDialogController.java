@@ -0,0 +1,186 @@
+package game;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+
+import java.text.DecimalFormat;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class serves as the controller class for <code>statsDialog.fxml</code>.<br><br>
+ * Displays the analytics computed by <code>PlayerAnalytics</code> over every <code>Player</code> in the database.
+ * The computation runs as a background <code>Task</code>, so the dialog opens immediately and fills in once the
+ * results are ready.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerAnalytics
+ */
+public class StatsDialogController {
+
+    /**
+     * This field refers to the <code>Label</code> indicating whether the analytics are still being computed.
+     */
+    @FXML
+    private Label statusLabel;
+
+    /**
+     * This field refers to the <code>Label</code> used to display the number of players.
+     */
+    @FXML
+    private Label playersLabel;
+
+    /**
+     * This field refers to the <code>Label</code> used to display the fastest best time.
+     */
+    @FXML
+    private Label fastestLabel;
+
+    /**
+     * This field refers to the <code>Label</code> used to display the average best time.
+     */
+    @FXML
+    private Label meanLabel;
+
+    /**
+     * This field refers to the <code>Label</code> used to display percentiles of attempts per player.
+     */
+    @FXML
+    private Label attemptsLabel;
+
+    /**
+     * This field refers to the <code>Label</code> used to display the share of players beaten by the selected
+     * <code>Player</code>'s best time.
+     */
+    @FXML
+    private Label beatenLabel;
+
+    /**
+     * This field refers to the <code>ListView</code> used to display the cohorts by registration month.
+     */
+    @FXML
+    private ListView<String> cohortListView;
+
+    /**
+     * This field refers to the <code>ListView</code> used to display the daily, weekly and monthly leaderboards.
+     */
+    @FXML
+    private ListView<String> leaderboardListView;
+
+    /**
+     * This field refers to the <code>BarChart</code> used to display the distribution of best times.
+     */
+    @FXML
+    private BarChart<String, Number> distributionChart;
+
+    /**
+     * This field is a <code>DecimalFormat</code> variable used to format <code>Double</code> variables to be displayed
+     * with three (3) decimal places.
+     */
+    private final DecimalFormat df = new DecimalFormat("#.###");
+
+    /**
+     * Starts computing the analytics in the background.<br><br>
+     * <b>This method must be called first before displaying the <code>Dialog</code></b>.
+     *
+     * @param playerManager  the <code>PlayerManager</code> object from the main application
+     * @param selectedPlayer the currently selected <code>Player</code>, whose best time is compared to the others
+     *
+     * @see PlayerAnalytics
+     */
+    public void initialize(PlayerManager playerManager, Player selectedPlayer) {
+        Double reference = selectedPlayer == null ? null : selectedPlayer.getBestTime();
+        Task<PlayerAnalytics.Report> task = new Task<>() {
+            @Override
+            protected PlayerAnalytics.Report call() {
+                playerManager.getLeaderboards();
+                return PlayerAnalytics.compute(playerManager.table(),
+                        reference == null ? Double.NaN : reference, RetentionPolicy.DEFAULT);
+            }
+        };
+        task.setOnSucceeded(workerStateEvent -> {
+            show(task.getValue(), reference != null);
+            showLeaderboards(playerManager.getLeaderboards());
+        });
+        task.setOnFailed(workerStateEvent -> statusLabel.setText("Statistics could not be computed."));
+        Thread thread = new Thread(task, "stats");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Displays a computed <code>Report</code>.
+     *
+     * @param report       the <code>Report</code> to be displayed
+     * @param hasReference whether the selected <code>Player</code> has a best time to compare
+     */
+    private void show(PlayerAnalytics.Report report, boolean hasReference) {
+        AttemptRollup best = report.getBestTimes();
+        statusLabel.setText("");
+        playersLabel.setText(report.getPlayers() + " (" + best.getCount() + " with attempts)");
+        fastestLabel.setText(best.getCount() == 0 ? "N/A" : df.format(best.getBest()));
+        meanLabel.setText(best.getCount() == 0 ? "N/A" : df.format(best.getMean()));
+        attemptsLabel.setText(report.getAttemptsPercentile(50) + " / " + report.getAttemptsPercentile(90)
+                + " / " + report.getAttemptsPercentile(99));
+        beatenLabel.setText(!hasReference || Double.isNaN(report.getShareBeaten()) ? "N/A"
+                : Math.round(report.getShareBeaten() * 100) + "% of players");
+
+        ObservableList<String> cohorts = FXCollections.observableArrayList();
+        for (Map.Entry<Long, PlayerAnalytics.Cohort> entry : report.getCohorts().entrySet()) {
+            long month = entry.getKey();
+            PlayerAnalytics.Cohort cohort = entry.getValue();
+            String name = month == PlayerAnalytics.UNKNOWN_COHORT ? "Unknown"
+                    : YearMonth.of((int) (month / 12), (int) (month % 12) + 1).toString();
+            String mean = cohort.getBestTimes().getCount() == 0 ? "N/A" : df.format(cohort.getBestTimes().getMean());
+            cohorts.add(name + ": " + cohort.getPlayers() + " players, avg best " + mean);
+        }
+        cohortListView.setItems(cohorts);
+
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        int[] histogram = best.getHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            String label = i == histogram.length - 1 ? df.format(i * AttemptRollup.BUCKET_WIDTH) + "+"
+                    : df.format(i * AttemptRollup.BUCKET_WIDTH);
+            series.getData().add(new XYChart.Data<>(label, histogram[i]));
+        }
+        distributionChart.getData().clear();
+        distributionChart.getData().add(series);
+    }
+
+    /**
+     * Displays the top three <code>Player</code>s of each leaderboard.
+     *
+     * @param leaderboards the <code>Leaderboards</code> to be displayed
+     */
+    private void showLeaderboards(Leaderboards leaderboards) {
+        ObservableList<String> lines = FXCollections.observableArrayList();
+        addLeaderboard(lines, "Today", leaderboards.daily(3));
+        addLeaderboard(lines, "This Week", leaderboards.weekly(3));
+        addLeaderboard(lines, "This Month", leaderboards.monthly(3));
+        leaderboardListView.setItems(lines);
+    }
+
+    /**
+     * Adds the lines of a single leaderboard to a list.
+     *
+     * @param lines     the list to be added to
+     * @param title     the title of the leaderboard
+     * @param standings the <code>Standing</code>s of the leaderboard
+     */
+    private void addLeaderboard(ObservableList<String> lines, String title, List<Leaderboard.Standing> standings) {
+        lines.add(title + (standings.isEmpty() ? ": no attempts yet" : ":"));
+        for (int i = 0; i < standings.size(); i++) {
+            Leaderboard.Standing standing = standings.get(i);
+            lines.add("  " + (i + 1) + ". " + standing.getPlayer().getName() + " - " + df.format(standing.getTime()));
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+package game;
+
+import javafx.event.EventHandler;
+import javafx.geometry.VPos;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import javafx.stage.Window;
+
+/**
+ * This class shows the games of the low-latency presentation mode on a full-screen <code>Stage</code>, whose scene
+ * holds nothing but a <code>Canvas</code>.<br><br>
+ * The lights and the click area of the main window are nodes laid out in a <code>VBox</code> and styled by CSS, so
+ * every change of color or text there goes through CSS and layout passes before the frame is rendered. Here, the
+ * whole screen is both the lights and the click area: every frame is drawn on the <code>Canvas</code>, which is not
+ * resizable, has no style sheet and sits alone in a <code>Group</code>, so that drawing it marks nothing for CSS or
+ * layout. The onset frame in particular is a single fill of the whole <code>Canvas</code> in green, without any
+ * text.<br><br>
+ * The screen stays up from the start of a game until the player dismisses the result, and the controller leaves
+ * the main window alone meanwhile, so that its own CSS and layout work does not run in the pulses rendering the
+ * screen. Must be used on the JavaFX Application Thread.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see MainController
+ */
+class StimulusScreen {
+
+    /**
+     * This field stores the full-screen <code>Stage</code> showing the <code>Canvas</code>.
+     */
+    private final Stage stage;
+
+    /**
+     * This field stores the <code>Canvas</code> every frame is drawn on.
+     */
+    private final Canvas canvas;
+
+    /**
+     * This field stores the <code>GraphicsContext</code> of the <code>Canvas</code>.
+     */
+    private final GraphicsContext graphics;
+
+    /**
+     * This field stores the font of the headline of a frame.
+     */
+    private final Font headlineFont = Font.font("Arial", 96);
+
+    /**
+     * This field stores the font of the detail line of a frame.
+     */
+    private final Font detailFont = Font.font("Arial", 28);
+
+    /**
+     * This field stores the background color of the current frame.
+     */
+    private Color background = Color.BLACK;
+
+    /**
+     * This field stores the headline of the current frame, or <code>null</code> for none.
+     */
+    private String headline;
+
+    /**
+     * This field stores the detail line of the current frame, or <code>null</code> for none.
+     */
+    private String detail;
+
+    /**
+     * Default Constructor.<br><br>
+     * Builds the <code>Stage</code> without showing it. The full-screen exit hint is turned off, as it would be drawn
+     * over the first frames, and leaving full-screen is left to the controller.
+     *
+     * @param owner   the main window
+     * @param onKey   the handler of the keys pressed on the screen
+     * @param onClick the handler of the mouse clicks on the screen, timed on the same event as a click on the main
+     *                window
+     */
+    StimulusScreen(Window owner, EventHandler<KeyEvent> onKey, EventHandler<MouseEvent> onClick) {
+        canvas = new Canvas();
+        graphics = canvas.getGraphicsContext2D();
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.CENTER);
+        Scene scene = new Scene(new Group(canvas), Color.BLACK);
+        scene.addEventHandler(KeyEvent.KEY_PRESSED, onKey);
+        scene.addEventHandler(MouseEvent.MOUSE_CLICKED, onClick);
+        scene.widthProperty().addListener((observable, oldWidth, width) -> resize());
+        scene.heightProperty().addListener((observable, oldHeight, height) -> resize());
+        stage = new Stage(StageStyle.UNDECORATED);
+        stage.initOwner(owner);
+        stage.setTitle("ReacXion");
+        stage.setScene(scene);
+        stage.setFullScreenExitHint("");
+        stage.setFullScreenExitKeyCombination(KeyCombination.NO_MATCH);
+    }
+
+    /**
+     * Shows the screen in full-screen, if it is not shown yet.
+     */
+    void show() {
+        if (!stage.isShowing()) {
+            stage.setFullScreen(true);
+            stage.show();
+        }
+        stage.requestFocus();
+    }
+
+    /**
+     * Hides the screen, going back to the main window.
+     */
+    void hide() {
+        stage.hide();
+    }
+
+    /**
+     * Checks whether the screen is shown.
+     *
+     * @return <code>true</code> if the screen is shown. Otherwise, it will return <code>false</code>.
+     */
+    boolean isShowing() {
+        return stage.isShowing();
+    }
+
+    /**
+     * Retrieves the <code>Scene</code> of the screen, such as to filter the keys of a head-to-head round.
+     *
+     * @return the <code>Scene</code>
+     */
+    Scene getScene() {
+        return stage.getScene();
+    }
+
+    /**
+     * Retrieves the <code>Canvas</code> of the screen, which covers all of it.
+     *
+     * @return the <code>Canvas</code>
+     */
+    Canvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * Draws the onset frame: the whole screen in green, and nothing else.
+     */
+    void drawOnset() {
+        draw(Color.GREEN, null, null);
+    }
+
+    /**
+     * Draws a frame filling the screen with a color, with a headline and a detail line below it.
+     *
+     * @param background the color of the screen
+     * @param headline   the headline, or <code>null</code> for none
+     * @param detail     the detail line, which may span several lines, or <code>null</code> for none
+     */
+    void draw(Color background, String headline, String detail) {
+        this.background = background;
+        this.headline = headline;
+        this.detail = detail;
+        paint();
+    }
+
+    /**
+     * Resizes the <code>Canvas</code> to the <code>Scene</code>, and draws the current frame again.
+     */
+    private void resize() {
+        canvas.setWidth(canvas.getScene().getWidth());
+        canvas.setHeight(canvas.getScene().getHeight());
+        paint();
+    }
+
+    /**
+     * Draws the current frame. Clearing the whole <code>Canvas</code> first also drops the commands buffered for
+     * the frames it replaces.
+     */
+    private void paint() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        graphics.clearRect(0, 0, width, height);
+        graphics.setFill(background);
+        graphics.fillRect(0, 0, width, height);
+        if (headline == null && detail == null) {
+            return;
+        }
+        Color ink = background.getBrightness() > 0.6 ? Color.BLACK : Color.WHITE;
+        graphics.setFill(ink);
+        if (headline != null) {
+            graphics.setFont(headlineFont);
+            graphics.fillText(headline, width / 2, height / 2 - 40);
+        }
+        if (detail != null) {
+            graphics.setFont(detailFont);
+            graphics.fillText(detail, width / 2, height / 2 + 60);
+        }
+    }
+
+}
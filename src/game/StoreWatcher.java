@@ -0,0 +1,120 @@
+package game;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.function.Predicate;
+
+/**
+ * This class watches the directory of a shared store through a <code>WatchService</code>, running a callback on a
+ * daemon thread whenever one of the store's files is created, modified or deleted.<br><br>
+ * A save touches several files at once, so the watcher waits for the events to settle and runs the callback once per
+ * burst. The callback also runs after the store's own saves, and is expected to find out cheaply that nothing
+ * changed.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see FilePlayerStore#watch(Runnable)
+ * @see ShardedFilePlayerStore#watch(Runnable)
+ */
+class StoreWatcher implements Closeable {
+
+    /**
+     * The time, in milliseconds, the watcher waits for further events before running the callback.
+     */
+    private static final long SETTLE_MILLIS = 50;
+
+    /**
+     * This field stores the <code>WatchService</code> the directory is registered with.
+     */
+    private final WatchService service;
+
+    /**
+     * Default Constructor.<br><br>
+     * Registers the directory and starts the watching thread.
+     *
+     * @param directory the directory holding the store's files
+     * @param files     selects the names of the store's files among those of the directory
+     * @param onChange  the callback run after the store's files changed
+     * @throws IOException if the directory cannot be watched
+     */
+    StoreWatcher(File directory, Predicate<String> files, Runnable onChange) throws IOException {
+        this.service = FileSystems.getDefault().newWatchService();
+        try {
+            directory.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            service.close();
+            throw e;
+        }
+        Thread thread = new Thread(() -> run(files, onChange), "store-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the directory.
+     */
+    @Override
+    public void close() {
+        try {
+            service.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Waits for events until the watcher is closed, running the callback once the events of a burst touching the
+     * store's files have settled.
+     *
+     * @param files    selects the names of the store's files
+     * @param onChange the callback
+     */
+    private void run(Predicate<String> files, Runnable onChange) {
+        try {
+            while (true) {
+                if (!drain(service.take(), files)) {
+                    continue;
+                }
+                Thread.sleep(SETTLE_MILLIS);
+                WatchKey more;
+                while ((more = service.poll()) != null) {
+                    drain(more, files);
+                }
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Reads the pending events of a key and resets it.
+     *
+     * @param key   the key
+     * @param files selects the names of the store's files
+     * @return <code>true</code> if any event touched the store's files, or events were lost
+     */
+    private static boolean drain(WatchKey key, Predicate<String> files) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || files.test(String.valueOf(event.context()))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+}
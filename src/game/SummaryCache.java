@@ -0,0 +1,249 @@
+package game;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class is a size-bounded cache of <code>PlayerSummary</code> objects, keyed by <code>Player</code>.<br><br>
+ * A cached summary is reused as long as it was computed from the current version stamp of its
+ * <code>Player</code>, which changes whenever the <code>Player</code> is renamed or records an attempt, and from the
+ * current ranking version of the <code>PlayerManager</code>, which changes whenever a best time is set or a ranked
+ * <code>Player</code> leaves. Stale summaries are recomputed on access, and the least recently used summaries are
+ * evicted once the cache is full.<br><br>
+ * The best times every summary is ranked against are sorted once per ranking version and shared, so computing a
+ * summary takes a binary search and the <code>Player</code>'s recent statistics rather than a pass over every
+ * <code>Player</code>. Sorting them reads the <code>PlayerManager</code>'s table, which may have to be built first,
+ * so the JavaFX Application Thread should use <code>getIfReady()</code> and leave <code>get()</code> to a background
+ * thread when it returns <code>null</code>.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see PlayerSummary
+ * @see PlayerManager#getSummaries()
+ */
+public class SummaryCache {
+
+    /**
+     * This field stores the <code>PlayerManager</code> whose <code>Player</code>s are summarized.
+     */
+    private final PlayerManager playerManager;
+
+    /**
+     * This field stores the cached summaries, in access order.
+     */
+    private final LinkedHashMap<Player, PlayerSummary> entries;
+
+    /**
+     * This field stores the best times of every ranked <code>Player</code>, in ascending order.
+     */
+    private double[] rankedTimes = new double[0];
+
+    /**
+     * This field stores the ranking version <code>rankedTimes</code> were read at.
+     */
+    private long rankedTimesVersion = -1;
+
+    /**
+     * This field stores the lock held while <code>rankedTimes</code> are read again, so that threads asking for the
+     * same ranking version sort the best times only once.
+     */
+    private final Object rankingLock = new Object();
+
+    /**
+     * This field stores the number of lookups answered by a cached summary.
+     */
+    private long hits;
+
+    /**
+     * This field stores the number of lookups that had to compute a summary.
+     */
+    private long misses;
+
+    /**
+     * This field stores the number of summaries evicted to keep the cache within its size.
+     */
+    private long evictions;
+
+    /**
+     * Default Constructor.
+     *
+     * @param playerManager the <code>PlayerManager</code> whose <code>Player</code>s are summarized
+     * @param maxSize       the maximum number of summaries kept
+     */
+    public SummaryCache(PlayerManager playerManager, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.playerManager = playerManager;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Player, PlayerSummary> eldest) {
+                if (size() > maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retrieves the summary of a <code>Player</code>, computing it if it is not cached or stale.
+     *
+     * @param player the <code>Player</code> to be summarized
+     * @return the up-to-date <code>PlayerSummary</code>
+     */
+    public PlayerSummary get(Player player) {
+        long ranking = playerManager.getRankingVersion();
+        long version = player.getVersion();
+        synchronized (this) {
+            PlayerSummary summary = entries.get(player);
+            if (summary != null && summary.getVersion() == version && summary.getRankingVersion() == ranking) {
+                hits++;
+                return summary;
+            }
+            misses++;
+        }
+        PlayerSummary summary = PlayerSummary.compute(player, version, rankedTimes(ranking), ranking,
+                System.currentTimeMillis());
+        synchronized (this) {
+            entries.put(player, summary);
+        }
+        return summary;
+    }
+
+    /**
+     * Retrieves the summary of a <code>Player</code> without reading the <code>PlayerManager</code>'s table.<br><br>
+     * The summary is computed here only if the best times of the current ranking version are already sorted;
+     * otherwise nothing is computed and <code>get()</code> must be called, off the JavaFX Application Thread, to
+     * sort them.
+     *
+     * @param player the <code>Player</code> to be summarized
+     * @return the up-to-date <code>PlayerSummary</code>, or <code>null</code> if the best times must be sorted first
+     */
+    public PlayerSummary getIfReady(Player player) {
+        long ranking = playerManager.getRankingVersion();
+        long version = player.getVersion();
+        double[] times;
+        synchronized (this) {
+            PlayerSummary summary = entries.get(player);
+            if (summary != null && summary.getVersion() == version && summary.getRankingVersion() == ranking) {
+                hits++;
+                return summary;
+            }
+            if (rankedTimesVersion != ranking) {
+                return null;
+            }
+            misses++;
+            times = rankedTimes;
+        }
+        PlayerSummary summary = PlayerSummary.compute(player, version, times, ranking, System.currentTimeMillis());
+        synchronized (this) {
+            entries.put(player, summary);
+        }
+        return summary;
+    }
+
+    /**
+     * Discards the summary of a <code>Player</code>, if cached.
+     *
+     * @param player the <code>Player</code> whose summary should be discarded
+     */
+    public synchronized void invalidate(Player player) {
+        entries.remove(player);
+    }
+
+    /**
+     * Discards every cached summary.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Retrieves the number of cached summaries.
+     *
+     * @return the number of summaries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Retrieves the number of lookups answered by a cached summary.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of lookups that had to compute a summary.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Retrieves the number of summaries evicted to keep the cache within its size.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Retrieves the share of lookups answered by a cached summary.
+     *
+     * @return the hit rate between 0 and 1, or <code>NaN</code> if nothing has been looked up yet
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? Double.NaN : (double) hits / lookups;
+    }
+
+    /**
+     * Retrieves the sorted best times of every ranked <code>Player</code>, reading them again from the
+     * <code>PlayerManager</code> if the ranking version has changed.<br><br>
+     * The times are read without holding the cache's lock, as the <code>PlayerManager</code> takes its own, but
+     * under <code>rankingLock</code>, so that concurrent lookups wait for a single read rather than repeating it.
+     *
+     * @param ranking the current ranking version
+     * @return the best times in ascending order
+     */
+    private double[] rankedTimes(long ranking) {
+        synchronized (this) {
+            if (rankedTimesVersion == ranking) {
+                return rankedTimes;
+            }
+        }
+        synchronized (rankingLock) {
+            synchronized (this) {
+                if (rankedTimesVersion == ranking) {
+                    return rankedTimes;
+                }
+            }
+            PlayerTable table = playerManager.table();
+            double[] sorted = new double[table.countRanked()];
+            int n = 0;
+            for (int row = 0; row < table.size(); row++) {
+                double best = table.getBestTime(row);
+                if (!Double.isNaN(best)) {
+                    sorted[n++] = best;
+                }
+            }
+            Arrays.sort(sorted);
+            synchronized (this) {
+                rankedTimes = sorted;
+                rankedTimesVersion = ranking;
+            }
+            return sorted;
+        }
+    }
+
+}
@@ -0,0 +1,598 @@
+package game;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.paint.Color;
+import javafx.scene.robot.Robot;
+import javafx.scene.shape.Rectangle;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * A benchmark of the accuracy of the reaction times measured by the game.<br><br>
+ * Usage: <code>TimingBenchmark [--option=value ...]</code>, with the following options:
+ * <ul>
+ *     <li><code>trials</code>: the number of measured games (default: 200)</li>
+ *     <li><code>warmup</code>: the number of games played before measuring (default: 20)</li>
+ *     <li><code>offsets</code>: the comma-separated reaction times injected in turn, in milliseconds
+ *     (default: 150,250,400)</li>
+ *     <li><code>input</code>: <code>click</code>, <code>enter</code> or <code>both</code>, alternating between
+ *     mouse clicks and ENTER presses (default: both)</li>
+ *     <li><code>onset-delay</code>: the delay before the lights turn green, in milliseconds (default: 300)</li>
+ *     <li><code>players</code>: the number of players, from 1 to 4. With more than one, the games are head-to-head
+ *     rounds, and every player's key is pressed at the same offset, so that the presses queue up behind each other
+ *     (default: 1)</li>
+ *     <li><code>csv</code>: whether to print every game as well as the summary (default: false)</li>
+ *     <li><code>presentation</code>: <code>standard</code> to play in the main window, or <code>low-latency</code>
+ *     to play on the full-screen <code>StimulusScreen</code> (default: standard)</li>
+ *     <li><code>latency</code>: whether to also measure when the frames reach the screen, with a single player
+ *     (default: false)</li>
+ * </ul>
+ * Runs the real <code>MainController</code> from <code>mainWindow.fxml</code> against a temporary database. For
+ * every game, it waits for the lights to turn green, then injects a mouse click or an ENTER press through the
+ * JavaFX <code>Robot</code> at the chosen offset after the time the controller starts timing from. The time
+ * recorded by the game, read from the <code>PlayerManager</code>'s <code>PlayerEventPublisher</code>, is compared
+ * with the injected offset, and the bias and jitter of the difference are reported for each kind of input, or for
+ * each player of a head-to-head round.<br><br>
+ * With <code>--latency=true</code>, every game also reads the screen back through the <code>Robot</code>: from the
+ * time the controller starts timing until the centre of the stimulus turns green, the onset-to-frame latency, and
+ * from the time the input is injected until the centre of the response area changes, the input-to-frame latency.
+ * Both are reported with the same distribution as the errors, so that the two presentation modes can be compared
+ * by running the benchmark once with each. Reading the screen back measures until the frame is composed, but not
+ * the scan-out and response of the display itself, and the readback runs on the JavaFX Application Thread, which
+ * disturbs the timing of the game: the errors of a run measuring the latency should not be compared with those of
+ * a run that does not.<br><br>
+ * Without a display, run it on the headless Monocle platform, with the Monocle jar on the module path and
+ * <code>-Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw</code>. The process exits with status
+ * <code>1</code> if a game is lost.
+ *
+ * @author Samuel A. Kosasih
+ *
+ * @see MainController
+ */
+public class TimingBenchmark extends Application {
+
+    /**
+     * The kinds of input injected.
+     */
+    private enum Input {
+        CLICK, ENTER
+    }
+
+    /**
+     * This field stores the controller of the game under test.
+     */
+    private MainController controller;
+
+    /**
+     * This field stores the root of the game's scene.
+     */
+    private Parent root;
+
+    /**
+     * Launches the benchmark.
+     *
+     * @param args the options of the run, as <code>--option=value</code>
+     */
+    public static void main(String[] args) {
+        launch(args);
+    }
+
+    /**
+     * Shows the game on the given stage, then plays the games on a separate thread.
+     *
+     * @param stage the primary stage
+     * @throws Exception if the game cannot be loaded
+     */
+    @Override
+    public void start(Stage stage) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : getParameters().getRaw()) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                System.out.println("Unrecognised argument: " + arg);
+                System.exit(2);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        File file = File.createTempFile("timing", ".ser");
+        file.deleteOnExit();
+        file.delete();
+        PlayerManager manager = new PlayerManager(file);
+        int count = Integer.parseInt(options.getOrDefault("players", "1"));
+        if (count < 1 || count > HeadToHeadRound.KEYS.length) {
+            System.out.println("Players must be between 1 and " + HeadToHeadRound.KEYS.length);
+            System.exit(2);
+        }
+        Player[] players = new Player[count];
+        for (int i = 0; i < count; i++) {
+            manager.addPlayer("benchmark-" + i);
+            players[i] = manager.getPlayer("benchmark-" + i);
+        }
+        Player player = players[0];
+
+        FXMLLoader loader = new FXMLLoader(MainController.class.getResource("mainWindow.fxml"));
+        loader.setControllerFactory(type -> new MainController(manager, player));
+        root = loader.load();
+        controller = loader.getController();
+        controller.setOnsetDelay(Long.parseLong(options.getOrDefault("onset-delay", "300")));
+        stage.setTitle("ReacXion Timing Benchmark");
+        stage.setScene(new Scene(root, 500, 500));
+        stage.show();
+        if (count > 1) {
+            controller.setHeadToHead(new HeadToHeadRound(players,
+                    Arrays.copyOf(HeadToHeadRound.KEYS, count)));
+        }
+
+        Thread driver = new Thread(() -> run(manager, players, options), "timing-benchmark");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    /**
+     * Plays the warm-up and measured games, then prints the report and exits.
+     *
+     * @param manager the <code>PlayerManager</code> the game records to
+     * @param players the players of the games, more than one for head-to-head rounds
+     * @param options the options of the run
+     */
+    private void run(PlayerManager manager, Player[] players, Map<String, String> options) {
+        int trials = Integer.parseInt(options.getOrDefault("trials", "200"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "20"));
+        long[] offsets = Arrays.stream(options.getOrDefault("offsets", "150,250,400").split(","))
+                .mapToLong(offset -> TimeUnit.MILLISECONDS.toNanos(Long.parseLong(offset.trim())))
+                .toArray();
+        String input = options.getOrDefault("input", "both");
+        boolean csv = Boolean.parseBoolean(options.getOrDefault("csv", "false"));
+        boolean lowLatency = options.getOrDefault("presentation", "standard").equals("low-latency");
+        boolean latency = Boolean.parseBoolean(options.getOrDefault("latency", "false"));
+        onFxThread(() -> controller.setLowLatency(lowLatency));
+
+        BlockingQueue<PlayerEvent> results = new ArrayBlockingQueue<>(16);
+        manager.getPublisher().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(PlayerEvent event) {
+                if (event.getType() == PlayerEvent.Type.ATTEMPT) {
+                    results.offer(event);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throwable.printStackTrace();
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        }, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "timing-results");
+            thread.setDaemon(true);
+            return thread;
+        }), 16, PlayerEventPublisher.Overflow.DROP_LATEST);
+
+        Robot[] robot = new Robot[1];
+        onFxThread(() -> {
+            Point2D clickPoint = locateClickArea(root);
+            if (clickPoint == null) {
+                System.out.println("Click area not found");
+                System.exit(1);
+            }
+            robot[0] = new Robot();
+            robot[0].mouseMove(clickPoint);
+        });
+
+        if (players.length > 1) {
+            finish(runHeadToHead(players, results, robot[0], trials, warmup, offsets, csv));
+            return;
+        }
+
+        Map<Input, List<Double>> errors = new HashMap<>();
+        List<Double> onsetFrames = new ArrayList<>();
+        List<Double> inputFrames = new ArrayList<>();
+        int lost = 0;
+        if (csv) {
+            System.out.println("trial,input,injected_ms,measured_ms,error_ms");
+        }
+        for (int trial = -warmup; trial < trials; trial++) {
+            Input kind = input.equals("click") ? Input.CLICK
+                    : input.equals("enter") ? Input.ENTER
+                    : Math.floorMod(trial, 2) == 0 ? Input.CLICK : Input.ENTER;
+            long offset = offsets[Math.floorMod(trial, offsets.length)];
+
+            AtomicLong onset = new AtomicLong();
+            CountDownLatch green = new CountDownLatch(1);
+            results.clear();
+            onFxThread(() -> {
+                controller.setOnsetListener(start -> {
+                    onset.set(start);
+                    green.countDown();
+                });
+                controller.startRound();
+            });
+            PlayerEvent result;
+            long injected;
+            long onsetFrame = -1;
+            long inputFrame = -1;
+            try {
+                if (!green.await(10, TimeUnit.SECONDS)) {
+                    lost++;
+                    continue;
+                }
+                Rectangle2D[] regions = new Rectangle2D[2];
+                WritableImage[] before = new WritableImage[1];
+                if (latency) {
+                    onFxThread(() -> {
+                        regions[0] = probeRegion(controller.getStimulus());
+                        regions[1] = probeRegion(controller.getResponseArea());
+                    });
+                    long frame = awaitFrame(robot[0], regions[0], image -> isMostly(image, Color.GREEN));
+                    if (frame >= 0) {
+                        onsetFrame = frame - onset.get();
+                    }
+                    onFxThread(() -> before[0] = robot[0].getScreenCapture(null, regions[1], false));
+                }
+                long target = onset.get() + offset;
+                long remaining;
+                while ((remaining = target - System.nanoTime()) > 2_000_000) {
+                    LockSupport.parkNanos(remaining - 2_000_000);
+                }
+                while (System.nanoTime() < target) {
+                    Thread.onSpinWait();
+                }
+                long injectedAt = System.nanoTime();
+                injected = injectedAt - onset.get();
+                Platform.runLater(kind == Input.CLICK
+                        ? () -> robot[0].mouseClick(MouseButton.PRIMARY)
+                        : () -> robot[0].keyType(KeyCode.ENTER));
+                if (latency) {
+                    long frame = awaitFrame(robot[0], regions[1], image -> !isSame(image, before[0]));
+                    if (frame >= 0) {
+                        inputFrame = frame - injectedAt;
+                    }
+                }
+                result = results.poll(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (result == null) {
+                lost++;
+                continue;
+            }
+            if (trial < 0) {
+                continue;
+            }
+            double injectedMs = injected / 1e6;
+            double measuredMs = result.getTime() * 1e3;
+            double error = measuredMs - injectedMs;
+            errors.computeIfAbsent(kind, k -> new ArrayList<>()).add(error);
+            if (onsetFrame >= 0) {
+                onsetFrames.add(onsetFrame / 1e6);
+            }
+            if (inputFrame >= 0) {
+                inputFrames.add(inputFrame / 1e6);
+            }
+            if (csv) {
+                System.out.printf(Locale.ROOT, "%d,%s,%.3f,%.3f,%.3f%n", trial,
+                        kind.name().toLowerCase(Locale.ROOT), injectedMs, measuredMs, error);
+            }
+        }
+
+        System.out.println("input,games,bias_ms,jitter_ms,min_ms,p50_ms,p90_ms,p99_ms,max_ms");
+        for (Input kind : Input.values()) {
+            List<Double> list = errors.get(kind);
+            if (list != null && !list.isEmpty()) {
+                report(kind.name().toLowerCase(Locale.ROOT), list);
+            }
+        }
+        if (latency) {
+            System.out.println("latency,frames,mean_ms,jitter_ms,min_ms,p50_ms,p90_ms,p99_ms,max_ms");
+            if (!onsetFrames.isEmpty()) {
+                report("onset-to-frame", onsetFrames);
+            }
+            if (!inputFrames.isEmpty()) {
+                report("input-to-frame", inputFrames);
+            }
+        }
+        finish(lost);
+    }
+
+    /**
+     * Plays the warm-up and measured head-to-head rounds, pressing the key of every player at the same offset after
+     * the lights turn green, and prints the errors of every player.
+     *
+     * @param players the players of the rounds
+     * @param results the queue the recorded attempts are put on
+     * @param robot   the <code>Robot</code> injecting the key presses
+     * @param trials  the number of measured rounds
+     * @param warmup  the number of rounds played before measuring
+     * @param offsets the offsets used in turn, in nanoseconds
+     * @param csv     whether to print every press as well as the summary
+     * @return the number of presses lost
+     */
+    private int runHeadToHead(Player[] players, BlockingQueue<PlayerEvent> results, Robot robot, int trials,
+                              int warmup, long[] offsets, boolean csv) {
+        List<List<Double>> errors = new ArrayList<>();
+        for (int i = 0; i < players.length; i++) {
+            errors.add(new ArrayList<>());
+        }
+        int lost = 0;
+        if (csv) {
+            System.out.println("trial,player,injected_ms,measured_ms,error_ms");
+        }
+        for (int trial = -warmup; trial < trials; trial++) {
+            long offset = offsets[Math.floorMod(trial, offsets.length)];
+            AtomicLong onset = new AtomicLong();
+            CountDownLatch green = new CountDownLatch(1);
+            results.clear();
+            onFxThread(() -> {
+                controller.setOnsetListener(start -> {
+                    onset.set(start);
+                    green.countDown();
+                });
+                controller.startRound();
+            });
+            long[] injected = new long[players.length];
+            Map<Player, PlayerEvent> recorded = new HashMap<>();
+            try {
+                if (!green.await(10, TimeUnit.SECONDS)) {
+                    lost += players.length;
+                    continue;
+                }
+                long target = onset.get() + offset;
+                long remaining;
+                while ((remaining = target - System.nanoTime()) > 2_000_000) {
+                    LockSupport.parkNanos(remaining - 2_000_000);
+                }
+                while (System.nanoTime() < target) {
+                    Thread.onSpinWait();
+                }
+                for (int i = 0; i < players.length; i++) {
+                    KeyCode key = HeadToHeadRound.KEYS[i];
+                    injected[i] = System.nanoTime() - onset.get();
+                    Platform.runLater(() -> robot.keyType(key));
+                }
+                for (int i = 0; i < players.length; i++) {
+                    PlayerEvent result = results.poll(10, TimeUnit.SECONDS);
+                    if (result == null) {
+                        break;
+                    }
+                    recorded.put(result.getPlayer(), result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return lost;
+            }
+            for (int i = 0; i < players.length; i++) {
+                PlayerEvent result = recorded.get(players[i]);
+                if (result == null) {
+                    lost++;
+                    continue;
+                }
+                if (trial < 0) {
+                    continue;
+                }
+                double injectedMs = injected[i] / 1e6;
+                double measuredMs = result.getTime() * 1e3;
+                errors.get(i).add(measuredMs - injectedMs);
+                if (csv) {
+                    System.out.printf(Locale.ROOT, "%d,%d,%.3f,%.3f,%.3f%n", trial, i, injectedMs, measuredMs,
+                            measuredMs - injectedMs);
+                }
+            }
+        }
+
+        System.out.println("player,games,bias_ms,jitter_ms,min_ms,p50_ms,p90_ms,p99_ms,max_ms");
+        for (int i = 0; i < players.length; i++) {
+            if (!errors.get(i).isEmpty()) {
+                report("player-" + i + "-" + HeadToHeadRound.KEYS[i].getName(), errors.get(i));
+            }
+        }
+        return lost;
+    }
+
+    /**
+     * Prints the number of lost games, then shuts the game down and exits.
+     *
+     * @param lost the number of games lost
+     */
+    private void finish(int lost) {
+        System.out.println("lost=" + lost);
+        int status = lost == 0 ? 0 : 1;
+        Platform.runLater(() -> {
+            controller.handleShutDown();
+            System.exit(status);
+        });
+    }
+
+    /**
+     * Prints the bias, that is the mean error, and the jitter, that is the standard deviation of the errors, along
+     * with the distribution of the errors of one kind of input or one player.
+     *
+     * @param label  the kind of input, or the player, the errors were measured for
+     * @param errors the differences between the measured and the injected times, in milliseconds
+     */
+    private static void report(String label, List<Double> errors) {
+        double[] sorted = errors.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (double error : sorted) {
+            sum += error;
+            sumOfSquares += error * error;
+        }
+        double mean = sum / sorted.length;
+        double deviation = Math.sqrt(Math.max(0, sumOfSquares / sorted.length - mean * mean));
+        System.out.printf(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                label, sorted.length, mean, deviation, sorted[0],
+                percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+                sorted[sorted.length - 1]);
+    }
+
+    /**
+     * Finds a percentile of sorted values, using the nearest rank.
+     *
+     * @param sorted   the values in ascending order
+     * @param quantile the percentile, between 0 and 1
+     * @return the value at the percentile
+     */
+    private static double percentile(double[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    /**
+     * Finds the centre of the game's click area, in screen coordinates.<br><br>
+     * The click area is the transparent, outlined <code>Rectangle</code> of the game.
+     *
+     * @param root the root of the game's scene
+     * @return the centre of the click area, or <code>null</code> if not found
+     */
+    private static Point2D locateClickArea(Parent root) {
+        for (Node node : root.lookupAll("Rectangle")) {
+            if (node instanceof Rectangle && ((Rectangle) node).getStroke() != null) {
+                Bounds bounds = node.localToScreen(node.getBoundsInLocal());
+                return new Point2D(bounds.getCenterX(), bounds.getCenterY());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the region of the screen read back to tell when a node changes: a square of up to 64 pixels at its
+     * centre, in screen coordinates.
+     *
+     * @param node the node
+     * @return the region of the screen
+     */
+    private static Rectangle2D probeRegion(Node node) {
+        Bounds bounds = node.localToScreen(node.getBoundsInLocal());
+        double size = Math.max(1, Math.floor(Math.min(64, Math.min(bounds.getWidth(), bounds.getHeight()))));
+        return new Rectangle2D(Math.floor(bounds.getCenterX() - size / 2), Math.floor(bounds.getCenterY() - size / 2),
+                size, size);
+    }
+
+    /**
+     * Reads a region of the screen back until it shows the expected frame, for up to a second.
+     *
+     * @param robot    the <code>Robot</code> reading the screen back
+     * @param region   the region of the screen
+     * @param expected tells whether a capture of the region shows the expected frame
+     * @return the <code>System.nanoTime()</code> the expected frame was read back, or <code>-1</code> if it was not
+     * shown in time
+     */
+    private static long awaitFrame(Robot robot, Rectangle2D region, Predicate<WritableImage> expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        WritableImage[] capture = new WritableImage[1];
+        while (System.nanoTime() < deadline) {
+            onFxThread(() -> capture[0] = robot.getScreenCapture(capture[0], region, false));
+            if (expected.test(capture[0])) {
+                return System.nanoTime();
+            }
+            LockSupport.parkNanos(200_000);
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether most of a capture shows a color, allowing for the blending of its edges.
+     *
+     * @param image the capture
+     * @param color the color
+     * @return <code>true</code> if at least nine pixels in ten are close to the color. Otherwise, it will return
+     * <code>false</code>.
+     */
+    private static boolean isMostly(WritableImage image, Color color) {
+        PixelReader reader = image.getPixelReader();
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int matching = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                Color c = reader.getColor(x, y);
+                if (Math.abs(c.getRed() - color.getRed()) < 0.1 && Math.abs(c.getGreen() - color.getGreen()) < 0.1
+                        && Math.abs(c.getBlue() - color.getBlue()) < 0.1) {
+                    matching++;
+                }
+            }
+        }
+        return matching * 10 >= width * height * 9;
+    }
+
+    /**
+     * Checks whether two captures of the same region show the same pixels.
+     *
+     * @param image the capture
+     * @param other the other capture
+     * @return <code>true</code> if every pixel is the same. Otherwise, it will return <code>false</code>.
+     */
+    private static boolean isSame(WritableImage image, WritableImage other) {
+        PixelReader reader = image.getPixelReader();
+        PixelReader otherReader = other.getPixelReader();
+        int width = (int) Math.min(image.getWidth(), other.getWidth());
+        int height = (int) Math.min(image.getHeight(), other.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (reader.getArgb(x, y) != otherReader.getArgb(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs an action on the JavaFX Application Thread and waits for it to complete.
+     *
+     * @param action the action to be run
+     */
+    private static void onFxThread(Runnable action) {
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                action.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
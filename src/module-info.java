@@ -2,6 +2,9 @@ module ReacXion {
 
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.management;
+    requires java.sql;
+    requires jdk.management;
     requires org.jetbrains.annotations;
 
     opens game;